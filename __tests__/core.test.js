@@ -31,6 +31,7 @@ jest.mock("mixpanel-react-native/javascript/mixpanel-config", () => ({
       getFlushBatchSize: jest.fn().mockReturnValue(50),
       getServerURL: jest.fn(),
       getUseIpAddressForGeolocation: jest.fn(),
+      getGzipCompression: jest.fn(),
     }),
   },
 }));
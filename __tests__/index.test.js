@@ -1,5 +1,5 @@
 import { Mixpanel } from "mixpanel-react-native";
-import { NativeModules } from "react-native";
+import { NativeModules, Platform } from "react-native";
 
 test(`it calls MixpanelReactNative initialize`, async () => {
   const mixpanel = await Mixpanel.init("token", true);
@@ -84,6 +84,240 @@ test(`it calls MixpanelReactNative setFlushBatchSize`, async () => {
   );
 });
 
+test(`it calls MixpanelReactNative setAsyncInitializationEnabled on Android`, async () => {
+  const originalOS = Platform.OS;
+  Platform.OS = "android";
+  try {
+    const mixpanel = new Mixpanel("token", true);
+    mixpanel.setAsyncInitializationEnabled(true);
+    expect(
+      NativeModules.MixpanelReactNative.setAsyncInitializationEnabled
+    ).toBeCalledWith("token", true, 500);
+    mixpanel.init();
+  } finally {
+    Platform.OS = originalOS;
+  }
+});
+
+test(`it calls MixpanelReactNative setSerialExecutionEnabled on Android`, async () => {
+  const originalOS = Platform.OS;
+  Platform.OS = "android";
+  try {
+    const mixpanel = new Mixpanel("token", true);
+    mixpanel.init();
+    mixpanel.setSerialExecutionEnabled(true);
+    expect(
+      NativeModules.MixpanelReactNative.setSerialExecutionEnabled
+    ).toBeCalledWith("token", true);
+  } finally {
+    Platform.OS = originalOS;
+  }
+});
+
+test(`it calls MixpanelReactNative setParallelConversionEnabled on Android`, async () => {
+  const originalOS = Platform.OS;
+  Platform.OS = "android";
+  try {
+    const mixpanel = new Mixpanel("token", true);
+    mixpanel.init();
+    mixpanel.setParallelConversionEnabled(true);
+    expect(
+      NativeModules.MixpanelReactNative.setParallelConversionEnabled
+    ).toBeCalledWith("token", true, 2);
+  } finally {
+    Platform.OS = originalOS;
+  }
+});
+
+test(`it calls MixpanelReactNative setSamplingPolicies on Android`, async () => {
+  const originalOS = Platform.OS;
+  Platform.OS = "android";
+  try {
+    const mixpanel = new Mixpanel("token", true);
+    mixpanel.init();
+    const policies = {
+      "Scroll Depth": {sampleRate: 0.1, perDistinctId: true},
+      Impression: {maxPerSecond: 5},
+    };
+    mixpanel.setSamplingPolicies(policies);
+    expect(
+      NativeModules.MixpanelReactNative.setSamplingPolicies
+    ).toBeCalledWith("token", policies);
+  } finally {
+    Platform.OS = originalOS;
+  }
+});
+
+test(`it calls promise-less MixpanelReactNative methods when fire-and-forget is enabled`, async () => {
+  const mixpanel = new Mixpanel("token", true);
+  mixpanel.init();
+  mixpanel.setFireAndForgetEnabled(true);
+  mixpanel.track("event name", {"Cool Property": "Property Value"});
+  expect(NativeModules.MixpanelReactNative.trackVoid).toBeCalledWith(
+    "token",
+    "event name",
+    {
+      $lib_version: expect.any(String),
+      mp_lib: "react-native",
+      "Cool Property": "Property Value",
+    }
+  );
+  mixpanel.getPeople().set("a", 1);
+  expect(NativeModules.MixpanelReactNative.setVoid).toBeCalledWith("token", {
+    a: 1,
+  });
+});
+
+test(`it calls MixpanelReactNative getDistinctIdSync on Android`, async () => {
+  const originalOS = Platform.OS;
+  Platform.OS = "android";
+  try {
+    NativeModules.MixpanelReactNative.getDistinctIdSync.mockReturnValue("id");
+    const mixpanel = new Mixpanel("token", true);
+    mixpanel.init();
+    expect(mixpanel.getDistinctIdSync()).toBe("id");
+    expect(
+      NativeModules.MixpanelReactNative.getDistinctIdSync
+    ).toBeCalledWith("token");
+  } finally {
+    Platform.OS = originalOS;
+  }
+});
+
+test(`it calls MixpanelReactNative setTrackBufferingEnabled on Android`, async () => {
+  const originalOS = Platform.OS;
+  Platform.OS = "android";
+  try {
+    const mixpanel = new Mixpanel("token", true);
+    mixpanel.init();
+    mixpanel.setTrackBufferingEnabled(true, 20);
+    expect(
+      NativeModules.MixpanelReactNative.setTrackBufferingEnabled
+    ).toBeCalledWith("token", true, 20, 100);
+  } finally {
+    Platform.OS = originalOS;
+  }
+});
+
+test(`it calls MixpanelReactNative setPropertyInterningEnabled on Android`, async () => {
+  const originalOS = Platform.OS;
+  Platform.OS = "android";
+  try {
+    const mixpanel = new Mixpanel("token", true);
+    mixpanel.init();
+    mixpanel.setPropertyInterningEnabled(true);
+    expect(
+      NativeModules.MixpanelReactNative.setPropertyInterningEnabled
+    ).toBeCalledWith("token", true, 1024);
+  } finally {
+    Platform.OS = originalOS;
+  }
+});
+
+test(`it calls MixpanelReactNative setPayloadLimits with the default limits on Android`, async () => {
+  const originalOS = Platform.OS;
+  Platform.OS = "android";
+  try {
+    const mixpanel = new Mixpanel("token", true);
+    mixpanel.init();
+    mixpanel.setPayloadLimits({maxBytes: 1024, reject: true});
+    expect(NativeModules.MixpanelReactNative.setPayloadLimits).toBeCalledWith(
+      "token",
+      {
+        maxDepth: 8,
+        maxKeys: 255,
+        maxArrayLength: 255,
+        maxBytes: 1024,
+        reject: true,
+      }
+    );
+  } finally {
+    Platform.OS = originalOS;
+  }
+});
+
+test(`it calls MixpanelReactNative setPerformanceStatsEnabled on Android`, async () => {
+  const originalOS = Platform.OS;
+  Platform.OS = "android";
+  try {
+    const mixpanel = new Mixpanel("token", true);
+    mixpanel.init();
+    mixpanel.setPerformanceStatsEnabled(true);
+    expect(
+      NativeModules.MixpanelReactNative.setPerformanceStatsEnabled
+    ).toBeCalledWith("token", true, 0);
+    mixpanel.getPerformanceStats();
+    expect(
+      NativeModules.MixpanelReactNative.getPerformanceStats
+    ).toBeCalledWith("token");
+  } finally {
+    Platform.OS = originalOS;
+  }
+});
+
+test(`it caches super properties until they change on Android`, async () => {
+  const originalOS = Platform.OS;
+  Platform.OS = "android";
+  try {
+    const mixpanel = new Mixpanel("token", true);
+    mixpanel.init();
+    mixpanel.setSuperPropertiesCacheEnabled(true);
+    expect(
+      NativeModules.MixpanelReactNative.setSuperPropertiesCacheEnabled
+    ).toBeCalledWith("token", true);
+    const getSuperProperties =
+      NativeModules.MixpanelReactNative.getSuperProperties;
+    getSuperProperties.mockResolvedValueOnce({super: "property"});
+    const calls = getSuperProperties.mock.calls.length;
+    expect(await mixpanel.getSuperProperties()).toEqual({super: "property"});
+    expect(await mixpanel.getSuperProperties()).toEqual({super: "property"});
+    expect(getSuperProperties.mock.calls.length).toBe(calls + 1);
+    mixpanel.registerSuperProperties({other: "property"});
+    getSuperProperties.mockResolvedValueOnce({
+      super: "property",
+      other: "property",
+    });
+    expect(await mixpanel.getSuperProperties()).toEqual({
+      super: "property",
+      other: "property",
+    });
+    expect(getSuperProperties.mock.calls.length).toBe(calls + 2);
+    mixpanel.setSuperPropertiesCacheEnabled(false);
+  } finally {
+    Platform.OS = originalOS;
+  }
+});
+
+test(`it drops the cached super properties when the group membership changes on Android`, async () => {
+  const originalOS = Platform.OS;
+  Platform.OS = "android";
+  try {
+    const mixpanel = new Mixpanel("token", true);
+    mixpanel.init();
+    mixpanel.setSuperPropertiesCacheEnabled(true);
+    const getSuperProperties =
+      NativeModules.MixpanelReactNative.getSuperProperties;
+    getSuperProperties.mockResolvedValueOnce({});
+    const calls = getSuperProperties.mock.calls.length;
+    expect(await mixpanel.getSuperProperties()).toEqual({});
+    const groupCalls = [
+      () => mixpanel.setGroup("company_id", 1),
+      () => mixpanel.addGroup("company_id", 2),
+      () => mixpanel.removeGroup("company_id", 1),
+    ];
+    const expected = [{company_id: 1}, {company_id: [1, 2]}, {company_id: [2]}];
+    for (let i = 0; i < groupCalls.length; i++) {
+      groupCalls[i]();
+      getSuperProperties.mockResolvedValueOnce(expected[i]);
+      expect(await mixpanel.getSuperProperties()).toEqual(expected[i]);
+      expect(getSuperProperties.mock.calls.length).toBe(calls + 2 + i);
+    }
+    mixpanel.setSuperPropertiesCacheEnabled(false);
+  } finally {
+    Platform.OS = originalOS;
+  }
+});
+
 test(`it calls MixpanelReactNative hasOptedOutTracking`, async () => {
   const mixpanel = new Mixpanel("token", true);
   mixpanel.init();
@@ -148,6 +382,178 @@ test(`it calls MixpanelReactNative track`, async () => {
   );
 });
 
+test(`it calls MixpanelReactNative trackWithPriority on Android`, async () => {
+  const originalOS = Platform.OS;
+  Platform.OS = "android";
+  try {
+    const mixpanel = new Mixpanel("token", true);
+    mixpanel.init();
+    mixpanel.setPriorityLanesEnabled(true);
+    expect(
+      NativeModules.MixpanelReactNative.setPriorityLanesEnabled
+    ).toBeCalledWith("token", true, 1000, 60000, 1000);
+    mixpanel.track("Purchase", {price: 42}, "critical");
+    expect(NativeModules.MixpanelReactNative.trackWithPriority).toBeCalledWith(
+      "token",
+      "Purchase",
+      {
+        price: 42,
+        $lib_version: expect.any(String),
+        mp_lib: "react-native",
+      },
+      "critical"
+    );
+  } finally {
+    Platform.OS = originalOS;
+  }
+});
+
+test(`it calls MixpanelReactNative trackAggregated on Android`, async () => {
+  const originalOS = Platform.OS;
+  Platform.OS = "android";
+  try {
+    const mixpanel = new Mixpanel("token", true);
+    mixpanel.init();
+    mixpanel.setAggregationWindow(30000);
+    expect(
+      NativeModules.MixpanelReactNative.setAggregationWindow
+    ).toBeCalledWith("token", 30000);
+    mixpanel.trackAggregated("item_viewed", {category: "shoes"}, {price: 42});
+    expect(NativeModules.MixpanelReactNative.trackAggregated).toBeCalledWith(
+      "token",
+      "item_viewed",
+      {category: "shoes"},
+      {price: 42}
+    );
+  } finally {
+    Platform.OS = originalOS;
+  }
+});
+
+test(`it calls MixpanelReactNative setAdaptiveFlushEnabled on Android`, async () => {
+  const originalOS = Platform.OS;
+  Platform.OS = "android";
+  try {
+    const mixpanel = new Mixpanel("token", true);
+    mixpanel.init();
+    mixpanel.setAdaptiveFlushEnabled(true);
+    expect(
+      NativeModules.MixpanelReactNative.setAdaptiveFlushEnabled
+    ).toBeCalledWith("token", true, 60000, 50);
+    mixpanel.getFlushSchedulerStats();
+    expect(
+      NativeModules.MixpanelReactNative.getFlushSchedulerStats
+    ).toBeCalledWith("token");
+  } finally {
+    Platform.OS = originalOS;
+  }
+});
+
+test(`it calls MixpanelReactNative trackBatch once for buffered track calls`, async () => {
+  const mixpanel = new Mixpanel("token", true);
+  mixpanel.init();
+  mixpanel.setTrackBatchingEnabled(true);
+  mixpanel.track("first event", {a: 1});
+  mixpanel.track("second event");
+  expect(NativeModules.MixpanelReactNative.trackBatch).not.toBeCalled();
+  mixpanel.flush();
+  expect(NativeModules.MixpanelReactNative.trackBatch).toBeCalledTimes(1);
+  expect(NativeModules.MixpanelReactNative.trackBatch).toBeCalledWith("token", [
+    {
+      eventName: "first event",
+      properties: {
+        a: 1,
+        $lib_version: expect.any(String),
+        mp_lib: "react-native",
+      },
+    },
+    {
+      eventName: "second event",
+      properties: {
+        $lib_version: expect.any(String),
+        mp_lib: "react-native",
+      },
+    },
+  ]);
+});
+
+test(`it calls MixpanelReactNative trackJson on Android`, async () => {
+  const originalOS = Platform.OS;
+  Platform.OS = "android";
+  try {
+    const mixpanel = new Mixpanel("token", true);
+    mixpanel.init();
+    const json = JSON.stringify({"Cool Property": "Property Value"});
+    mixpanel.trackJson("event name", json);
+    expect(NativeModules.MixpanelReactNative.trackJson).toBeCalledWith(
+      "token",
+      "event name",
+      json
+    );
+  } finally {
+    Platform.OS = originalOS;
+  }
+});
+
+test(`it falls back to track for trackJson outside Android`, async () => {
+  const mixpanel = new Mixpanel("token", true);
+  mixpanel.init();
+  mixpanel.trackJson(
+    "event name",
+    JSON.stringify({"Cool Property": "Property Value"})
+  );
+  expect(NativeModules.MixpanelReactNative.track).toBeCalledWith(
+    "token",
+    "event name",
+    {
+      "Cool Property": "Property Value",
+      $lib_version: expect.any(String),
+      mp_lib: "react-native",
+    }
+  );
+});
+
+test(`it calls MixpanelReactNative peopleBatch on Android`, async () => {
+  const originalOS = Platform.OS;
+  Platform.OS = "android";
+  try {
+    const mixpanel = new Mixpanel("token", true);
+    mixpanel.init();
+    const operations = [
+      {operation: "set", properties: {a: 1}},
+      {operation: "increment", properties: {logins: 1}},
+      {operation: "unset", name: "b"},
+    ];
+    mixpanel.getPeople().batch(operations);
+    expect(NativeModules.MixpanelReactNative.peopleBatch).toBeCalledWith(
+      "token",
+      operations
+    );
+  } finally {
+    Platform.OS = originalOS;
+  }
+});
+
+test(`it calls MixpanelReactNative groupBatch on Android`, async () => {
+  const originalOS = Platform.OS;
+  Platform.OS = "android";
+  try {
+    const mixpanel = new Mixpanel("token", true);
+    mixpanel.init();
+    const operations = [
+      {groupKey: "company", groupID: "a", operation: "set", properties: {plan: "pro"}},
+      {groupKey: "company", groupID: "b", operation: "delete"},
+    ];
+    mixpanel.groupBatch(operations);
+    expect(NativeModules.MixpanelReactNative.groupBatch).toBeCalledWith(
+      "token",
+      operations
+    );
+  } finally {
+    Platform.OS = originalOS;
+  }
+});
+
 test(`it calls MixpanelReactNative trackWithGroups`, async () => {
   const mixpanel = await Mixpanel.init("token", true);
   mixpanel.trackWithGroups(
@@ -264,6 +670,57 @@ test(`it calls MixpanelReactNative clearSuperProperties`, async () => {
   );
 });
 
+test(`it calls MixpanelReactNative pushContext and popContext on Android`, async () => {
+  const originalOS = Platform.OS;
+  Platform.OS = "android";
+  try {
+    const mixpanel = new Mixpanel("token", true);
+    mixpanel.init();
+    mixpanel.pushContext("screen", {screen: "Home"});
+    expect(NativeModules.MixpanelReactNative.pushContext).toBeCalledWith(
+      "token",
+      "screen",
+      {screen: "Home"}
+    );
+    mixpanel.popContext("screen");
+    expect(NativeModules.MixpanelReactNative.popContext).toBeCalledWith(
+      "token",
+      "screen"
+    );
+  } finally {
+    Platform.OS = originalOS;
+  }
+});
+
+test(`it adds pushed contexts to tracked events outside of Android`, async () => {
+  const mixpanel = new Mixpanel("token", true);
+  mixpanel.init();
+  mixpanel.pushContext("screen", {screen: "Home", section: "Feed"});
+  mixpanel.pushContext("variant", {variant: "B"});
+  mixpanel.track("context event", {section: "Stories"});
+  expect(NativeModules.MixpanelReactNative.track).toBeCalledWith(
+    "token",
+    "context event",
+    {
+      screen: "Home",
+      section: "Stories",
+      variant: "B",
+      $lib_version: expect.any(String),
+      mp_lib: "react-native",
+    }
+  );
+  mixpanel.popContext("screen");
+  mixpanel.track("context event", {});
+  expect(NativeModules.MixpanelReactNative.track).toHaveBeenLastCalledWith(
+    "token",
+    "context event",
+    {
+      $lib_version: expect.any(String),
+      mp_lib: "react-native",
+    }
+  );
+});
+
 test(`it calls MixpanelReactNative timeEvent`, async () => {
   const mixpanel = new Mixpanel("token", true);
   mixpanel.init();
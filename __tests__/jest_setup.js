@@ -16,6 +16,20 @@ jest.mock("mixpanel-react-native/javascript/mixpanel-storage", () => {
     })),
   };
 });
+// Tests run against the legacy NativeModules mock below
+jest.mock("mixpanel-react-native/javascript/NativeMixpanelReactNative", () => ({
+  __esModule: true,
+  default: null,
+}));
+jest.mock("mixpanel-react-native/javascript/NativeMixpanelQueueStorage", () => ({
+  __esModule: true,
+  default: null,
+}));
+jest.mock("mixpanel-react-native/javascript/NativeMixpanelBatchSender", () => ({
+  __esModule: true,
+  default: null,
+}));
+
 jest.mock("uuid", () => ({
   v4: jest.fn(() => "polyfilled-uuid-1234"),
 }));
@@ -44,17 +58,39 @@ jest.doMock("react-native", () => {
         ...ReactNative.NativeModules,
         MixpanelReactNative: {
           initialize: jest.fn().mockResolvedValue(undefined),
+          setAsyncInitializationEnabled: jest.fn(),
           setServerURL: jest.fn(),
           setLoggingEnabled: jest.fn(),
           setFlushOnBackground: jest.fn(),
           setUseIpAddressForGeolocation: jest.fn(),
           setFlushBatchSize: jest.fn(),
+          setSerialExecutionEnabled: jest.fn(),
+          setSamplingPolicies: jest.fn(),
+          getSamplingStats: jest.fn(),
+          setParallelConversionEnabled: jest.fn(),
+          setTrackBufferingEnabled: jest.fn(),
+          setPropertyInterningEnabled: jest.fn(),
+          setPayloadLimits: jest.fn(),
+          getPayloadStats: jest.fn(),
+          setPerformanceStatsEnabled: jest.fn(),
+          getPerformanceStats: jest.fn(),
+          getInterningStats: jest.fn(),
           hasOptedOutTracking: jest.fn().mockResolvedValue(false),
           optInTracking: jest.fn(),
           optOutTracking: jest.fn(),
           identify: jest.fn().mockResolvedValue(undefined),
           alias: jest.fn(),
           track: jest.fn(),
+          trackJson: jest.fn(),
+          trackBatch: jest.fn(),
+          trackWithPriority: jest.fn(),
+          setPriorityLanesEnabled: jest.fn(),
+          trackAggregated: jest.fn(),
+          setAggregationWindow: jest.fn(),
+          setAdaptiveFlushEnabled: jest.fn(),
+          getFlushSchedulerStats: jest.fn(),
+          trackVoid: jest.fn(),
+          trackBatchVoid: jest.fn(),
           trackWithGroups: jest.fn(),
           setGroup: jest.fn(),
           getGroup: jest.fn(),
@@ -62,15 +98,22 @@ jest.doMock("react-native", () => {
           removeGroup: jest.fn(),
           deleteGroup: jest.fn(),
           registerSuperProperties: jest.fn(),
+          registerSuperPropertiesJson: jest.fn(),
           registerSuperPropertiesOnce: jest.fn(),
           unregisterSuperProperty: jest.fn(),
           getSuperProperties: jest.fn(),
           clearSuperProperties: jest.fn(),
+          setSuperPropertiesCacheEnabled: jest.fn(),
+          pushContext: jest.fn(),
+          popContext: jest.fn(),
           timeEvent: jest.fn(),
           eventElapsedTime: jest.fn(),
           reset: jest.fn(),
           getDistinctId: jest.fn(),
+          getDistinctIdSync: jest.fn(),
           set: jest.fn(),
+          setJson: jest.fn(),
+          setVoid: jest.fn(),
           setOnce: jest.fn(),
           increment: jest.fn(),
           append: jest.fn(),
@@ -80,12 +123,23 @@ jest.doMock("react-native", () => {
           trackCharge: jest.fn(),
           clearCharges: jest.fn(),
           deleteUser: jest.fn(),
+          peopleBatch: jest.fn(),
           groupSetProperties: jest.fn(),
           groupSetPropertyOnce: jest.fn(),
           groupUnsetProperty: jest.fn(),
           groupRemovePropertyValue: jest.fn(),
           groupUnionProperty: jest.fn(),
+          groupBatch: jest.fn(),
+        },
+        MixpanelQueueStorage: {
+          loadQueue: jest.fn().mockResolvedValue("[]"),
+          appendToQueue: jest.fn(),
+          acknowledgeQueue: jest.fn(),
+          replaceQueue: jest.fn(),
+          isQueueMigrated: jest.fn().mockResolvedValue(false),
+          markQueueMigrated: jest.fn(),
         },
+        MixpanelBatchSender: {},
       },
     },
     ReactNative
@@ -153,8 +153,21 @@ describe("MixpanelMain", () => {
     ).toHaveBeenCalledWith(token);
   });
 
-  // Note: Gzip compression is only implemented in native modules, not in JavaScript fallback
-  // This test is removed as the JavaScript implementation doesn't support gzip compression
+  it("should pass useGzipCompression to the config", async () => {
+    await mixpanelMain.initialize(
+      token,
+      false,
+      false,
+      {},
+      "https://api.mixpanel.com",
+      true
+    );
+
+    expect(mixpanelMain.config.setGzipCompression).toHaveBeenCalledWith(
+      token,
+      true
+    );
+  });
 
   it("should not track if initialize with optOutTrackingDefault being true", async () => {
     const trackAutomaticEvents = false;
@@ -302,6 +315,26 @@ describe("MixpanelMain", () => {
     );
   });
 
+  it("should track every event of a batch in order", async () => {
+    await mixpanelMain.trackBatch(token, [
+      { eventName: "First Event", properties: { prop1: "value1" } },
+      { eventName: "Second Event", properties: { prop2: "value2" } },
+    ]);
+    expect(mixpanelMain.core.addToMixpanelQueue).toHaveBeenCalledTimes(2);
+    expect(mixpanelMain.core.addToMixpanelQueue).toHaveBeenNthCalledWith(
+      1,
+      token,
+      MixpanelType.EVENTS,
+      expect.objectContaining({ event: "First Event" })
+    );
+    expect(mixpanelMain.core.addToMixpanelQueue).toHaveBeenNthCalledWith(
+      2,
+      token,
+      MixpanelType.EVENTS,
+      expect.objectContaining({ event: "Second Event" })
+    );
+  });
+
   it("should trigger the flush on the flush call", async () => {
     mixpanelMain.flush(token);
     expect(mixpanelMain.core.flush).toHaveBeenCalledWith(token);
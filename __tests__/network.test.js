@@ -1,4 +1,8 @@
-import { MixpanelNetwork } from "mixpanel-react-native/javascript/mixpanel-network";
+import { NativeModules } from "react-native";
+import {
+  MixpanelHttpError,
+  MixpanelNetwork,
+} from "mixpanel-react-native/javascript/mixpanel-network";
 import fetchMock from "jest-fetch-mock";
 
 fetchMock.enableMocks();
@@ -69,4 +73,91 @@ describe("MixpanelNetwork", () => {
     // Assert fetch was called exactly once, indicating no retry was attempted
     expect(fetchMock).toHaveBeenCalledTimes(1);
   });
+
+  describe("with the Android native sender", () => {
+    beforeEach(() => {
+      NativeModules.MixpanelBatchSender.sendBatch = jest.fn();
+    });
+
+    afterEach(() => {
+      delete NativeModules.MixpanelBatchSender.sendBatch;
+    });
+
+    it("sends the batch natively", async () => {
+      NativeModules.MixpanelBatchSender.sendBatch.mockResolvedValue({
+        status: 200,
+        body: "1",
+        attempts: 1,
+      });
+
+      await MixpanelNetwork.sendRequest({
+        token: mockToken,
+        endpoint: mockEndpoint,
+        data: [mockData],
+        serverURL: mockServerURL,
+        useIPAddressForGeoLocation,
+        useGzipCompression: true,
+        useNativeSender: true,
+      });
+
+      expect(NativeModules.MixpanelBatchSender.sendBatch).toHaveBeenCalledWith(
+        `${mockServerURL}${mockEndpoint}?ip=1`,
+        [mockData],
+        true
+      );
+      expect(fetchMock).toHaveBeenCalledTimes(0);
+    });
+
+    it("fails with the status of the last attempt", async () => {
+      NativeModules.MixpanelBatchSender.sendBatch.mockResolvedValue({
+        status: 400,
+        body: "0",
+        attempts: 1,
+      });
+
+      await expect(
+        MixpanelNetwork.sendRequest({
+          token: mockToken,
+          endpoint: mockEndpoint,
+          data: [mockData],
+          serverURL: mockServerURL,
+          useIPAddressForGeoLocation,
+          useNativeSender: true,
+        })
+      ).rejects.toMatchObject({ code: 400 });
+      expect(fetchMock).toHaveBeenCalledTimes(0);
+    });
+
+    it("wraps a rejected send in a MixpanelHttpError", async () => {
+      NativeModules.MixpanelBatchSender.sendBatch.mockRejectedValue(
+        new Error("Sender shut down")
+      );
+
+      await expect(
+        MixpanelNetwork.sendRequest({
+          token: mockToken,
+          endpoint: mockEndpoint,
+          data: [mockData],
+          serverURL: mockServerURL,
+          useIPAddressForGeoLocation,
+          useNativeSender: true,
+        })
+      ).rejects.toBeInstanceOf(MixpanelHttpError);
+    });
+
+    it("uses fetch unless the native sender is enabled", async () => {
+      fetchMock.mockResponseOnce(JSON.stringify(1), { status: 200 });
+
+      await MixpanelNetwork.sendRequest({
+        token: mockToken,
+        endpoint: mockEndpoint,
+        data: [mockData],
+        serverURL: mockServerURL,
+        useIPAddressForGeoLocation,
+      });
+
+      expect(NativeModules.MixpanelBatchSender.sendBatch).not.toHaveBeenCalled();
+      expect(fetchMock).toHaveBeenCalledTimes(1);
+    });
+  });
 });
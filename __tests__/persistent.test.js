@@ -102,3 +102,70 @@ describe("MixpanelPersistent - UUID Generation", () => {
     expect(mixpanelPersistent.getDeviceId(token)).toBe(existingDeviceId);
   });
 });
+
+describe("MixpanelPersistent - queue log", () => {
+  const token = "test-token";
+
+  beforeEach(() => {
+    jest.resetModules();
+    jest.clearAllMocks();
+  });
+
+  it("moves a queue saved in storage into the queue log", async () => {
+    const queueKey = `MIXPANEL_${token}_/track/_QUEUE`;
+    const storageAdapter = {
+      getItem: jest.fn().mockImplementation((key) =>
+        Promise.resolve(key === queueKey ? JSON.stringify([{ event: "a" }]) : null)
+      ),
+      setItem: jest.fn().mockResolvedValue(undefined),
+      removeItem: jest.fn().mockResolvedValue(undefined),
+      hasQueueLog: jest.fn().mockReturnValue(true),
+      loadQueue: jest.fn().mockResolvedValue([{ event: "b" }]),
+      replaceQueue: jest.fn().mockResolvedValue(undefined),
+      isQueueMigrated: jest.fn().mockResolvedValue(false),
+      markQueueMigrated: jest.fn().mockResolvedValue(undefined),
+    };
+    jest.doMock("mixpanel-react-native/javascript/mixpanel-storage", () => ({
+      AsyncStorageAdapter: jest.fn().mockImplementation(() => storageAdapter),
+    }));
+
+    const { MixpanelPersistent } = require("mixpanel-react-native/javascript/mixpanel-persistent");
+
+    MixpanelPersistent.instance = null;
+    const mixpanelPersistent = MixpanelPersistent.getInstance(null, token);
+
+    const queue = await mixpanelPersistent.loadQueue(token, "/track/");
+
+    expect(queue).toEqual([{ event: "a" }, { event: "b" }]);
+    expect(storageAdapter.replaceQueue).toHaveBeenCalledWith(token, "/track/", queue);
+    expect(storageAdapter.removeItem).toHaveBeenCalledWith(queueKey);
+    expect(storageAdapter.markQueueMigrated).toHaveBeenCalledWith(token, "/track/");
+  });
+
+  it("does not read the storage once the queue was moved", async () => {
+    const storageAdapter = {
+      getItem: jest.fn().mockResolvedValue(null),
+      setItem: jest.fn().mockResolvedValue(undefined),
+      removeItem: jest.fn().mockResolvedValue(undefined),
+      hasQueueLog: jest.fn().mockReturnValue(true),
+      loadQueue: jest.fn().mockResolvedValue([{ event: "b" }]),
+      replaceQueue: jest.fn().mockResolvedValue(undefined),
+      isQueueMigrated: jest.fn().mockResolvedValue(true),
+      markQueueMigrated: jest.fn().mockResolvedValue(undefined),
+    };
+    jest.doMock("mixpanel-react-native/javascript/mixpanel-storage", () => ({
+      AsyncStorageAdapter: jest.fn().mockImplementation(() => storageAdapter),
+    }));
+
+    const { MixpanelPersistent } = require("mixpanel-react-native/javascript/mixpanel-persistent");
+
+    MixpanelPersistent.instance = null;
+    const mixpanelPersistent = MixpanelPersistent.getInstance(null, token);
+
+    const queue = await mixpanelPersistent.loadQueue(token, "/track/");
+
+    expect(queue).toEqual([{ event: "b" }]);
+    expect(storageAdapter.getItem).not.toHaveBeenCalledWith(`MIXPANEL_${token}_/track/_QUEUE`);
+    expect(storageAdapter.replaceQueue).not.toHaveBeenCalled();
+  });
+});
@@ -213,4 +213,55 @@ describe("MixpanelQueueManager - extended", () => {
       );
     });
   });
-});
\ No newline at end of file
+});
+describe("MixpanelQueueManager - queue log", () => {
+  let MixpanelQueueManager;
+  let mixpanelPersistent;
+  let token = "testToken";
+  let eventsType = MixpanelType.EVENTS;
+
+  beforeEach(async () => {
+    jest.isolateModules(() => {
+      MixpanelQueueManager = require("mixpanel-react-native/javascript/mixpanel-queue").MixpanelQueueManager;
+      mixpanelPersistent = require("mixpanel-react-native/javascript/mixpanel-persistent").MixpanelPersistent.getInstance();
+    });
+    mixpanelPersistent.hasQueueLog = jest.fn().mockReturnValue(true);
+    mixpanelPersistent.appendToQueue = jest.fn();
+    mixpanelPersistent.acknowledgeQueue = jest.fn();
+    mixpanelPersistent.saveQueue.mockClear();
+    await MixpanelQueueManager.clearQueue(token, eventsType);
+  });
+
+  afterEach(() => {
+    delete mixpanelPersistent.hasQueueLog;
+    delete mixpanelPersistent.appendToQueue;
+    delete mixpanelPersistent.acknowledgeQueue;
+  });
+
+  it("appends enqueued records without saving the queue", async () => {
+    await MixpanelQueueManager.enqueue(token, eventsType, { data: "sample1" });
+    await MixpanelQueueManager.enqueue(token, eventsType, { data: "sample2" });
+
+    expect(mixpanelPersistent.appendToQueue).toHaveBeenLastCalledWith(
+      token,
+      eventsType,
+      { data: "sample2" }
+    );
+    expect(mixpanelPersistent.saveQueue).not.toHaveBeenCalled();
+  });
+
+  it("acknowledges records removed from the head of the queue", async () => {
+    await MixpanelQueueManager.enqueue(token, eventsType, { data: "sample1" });
+    await MixpanelQueueManager.enqueue(token, eventsType, { data: "sample2" });
+
+    await MixpanelQueueManager.spliceQueue(token, eventsType, 0, 5);
+
+    expect(mixpanelPersistent.acknowledgeQueue).toHaveBeenLastCalledWith(
+      token,
+      eventsType,
+      2
+    );
+    expect(MixpanelQueueManager.getQueue(token, eventsType)).toEqual([]);
+    expect(mixpanelPersistent.saveQueue).not.toHaveBeenCalled();
+  });
+});
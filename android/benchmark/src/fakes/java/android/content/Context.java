@@ -0,0 +1,34 @@
+package android.content;
+
+import android.os.Handler;
+
+import java.io.File;
+
+/**
+ * Has no system services and never delivers broadcasts; the benchmarks do not exercise the adaptive flush
+ * scheduler's signals. Files go to the temporary directory.
+ */
+public class Context {
+    public static final String CONNECTIVITY_SERVICE = "connectivity";
+    public static final String POWER_SERVICE = "power";
+
+    public Context getApplicationContext() {
+        return this;
+    }
+
+    public File getFilesDir() {
+        return new File(System.getProperty("java.io.tmpdir"));
+    }
+
+    public Object getSystemService(String name) {
+        return null;
+    }
+
+    public Intent registerReceiver(BroadcastReceiver receiver, IntentFilter filter, String broadcastPermission,
+                                   Handler scheduler) {
+        return null;
+    }
+
+    public void unregisterReceiver(BroadcastReceiver receiver) {
+    }
+}
@@ -0,0 +1,13 @@
+package android.content;
+
+public class Intent {
+    private final String mAction;
+
+    public Intent(String action) {
+        mAction = action;
+    }
+
+    public String getAction() {
+        return mAction;
+    }
+}
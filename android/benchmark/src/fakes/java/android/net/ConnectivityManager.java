@@ -0,0 +1,36 @@
+package android.net;
+
+public class ConnectivityManager {
+    public static final String CONNECTIVITY_ACTION = "android.net.conn.CONNECTIVITY_CHANGE";
+    public static final int TYPE_MOBILE = 0;
+
+    public NetworkInfo getActiveNetworkInfo() {
+        return null;
+    }
+
+    public boolean isActiveNetworkMetered() {
+        return false;
+    }
+
+    public Network getActiveNetwork() {
+        return null;
+    }
+
+    public NetworkCapabilities getNetworkCapabilities(Network network) {
+        return null;
+    }
+
+    public void registerDefaultNetworkCallback(NetworkCallback networkCallback) {
+    }
+
+    public void unregisterNetworkCallback(NetworkCallback networkCallback) {
+    }
+
+    public static class NetworkCallback {
+        public void onCapabilitiesChanged(Network network, NetworkCapabilities networkCapabilities) {
+        }
+
+        public void onLost(Network network) {
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package android.net;
+
+public class NetworkCapabilities {
+    public static final int NET_CAPABILITY_NOT_METERED = 11;
+    public static final int NET_CAPABILITY_INTERNET = 12;
+    public static final int NET_CAPABILITY_VALIDATED = 16;
+    public static final int TRANSPORT_CELLULAR = 0;
+
+    public boolean hasCapability(int capability) {
+        return true;
+    }
+
+    public boolean hasTransport(int transportType) {
+        return false;
+    }
+
+    public int getLinkDownstreamBandwidthKbps() {
+        return 0;
+    }
+}
@@ -0,0 +1,24 @@
+package android.os;
+
+/**
+ * Accepts posted work without running it; the benchmarks never exercise the reporting paths.
+ */
+public class Handler {
+    public Handler(Looper looper) {
+    }
+
+    public boolean post(Runnable r) {
+        return true;
+    }
+
+    public boolean postDelayed(Runnable r, long delayMillis) {
+        return true;
+    }
+
+    public boolean postAtTime(Runnable r, long uptimeMillis) {
+        return true;
+    }
+
+    public void removeCallbacks(Runnable r) {
+    }
+}
@@ -0,0 +1,9 @@
+package android.os;
+
+public final class Looper {
+    private static final Looper sMainLooper = new Looper();
+
+    public static Looper getMainLooper() {
+        return sMainLooper;
+    }
+}
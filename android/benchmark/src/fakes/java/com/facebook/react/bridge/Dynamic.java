@@ -0,0 +1,21 @@
+package com.facebook.react.bridge;
+
+public interface Dynamic {
+    boolean isNull();
+
+    boolean asBoolean();
+
+    double asDouble();
+
+    int asInt();
+
+    String asString();
+
+    ReadableArray asArray();
+
+    ReadableMap asMap();
+
+    ReadableType getType();
+
+    void recycle();
+}
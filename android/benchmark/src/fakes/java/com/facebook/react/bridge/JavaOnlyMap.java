@@ -0,0 +1,149 @@
+package com.facebook.react.bridge;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Pure Java map, like the one React Native ships for tests. Numbers are stored as doubles, as the bridge does.
+ */
+public class JavaOnlyMap implements WritableMap {
+    private final Map<String, Object> mBackingMap = new LinkedHashMap<>();
+
+    public static JavaOnlyMap of(Object... keysAndValues) {
+        JavaOnlyMap map = new JavaOnlyMap();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            Object value = keysAndValues[i + 1];
+            map.mBackingMap.put((String) keysAndValues[i], value instanceof Number ? ((Number) value).doubleValue() : value);
+        }
+        return map;
+    }
+
+    @Override
+    public boolean hasKey(String name) {
+        return mBackingMap.containsKey(name);
+    }
+
+    @Override
+    public boolean isNull(String name) {
+        return mBackingMap.get(name) == null;
+    }
+
+    @Override
+    public boolean getBoolean(String name) {
+        return (Boolean) mBackingMap.get(name);
+    }
+
+    @Override
+    public double getDouble(String name) {
+        return (Double) mBackingMap.get(name);
+    }
+
+    @Override
+    public int getInt(String name) {
+        return ((Double) mBackingMap.get(name)).intValue();
+    }
+
+    @Override
+    public String getString(String name) {
+        return (String) mBackingMap.get(name);
+    }
+
+    @Override
+    public ReadableArray getArray(String name) {
+        return (ReadableArray) mBackingMap.get(name);
+    }
+
+    @Override
+    public ReadableMap getMap(String name) {
+        return (ReadableMap) mBackingMap.get(name);
+    }
+
+    @Override
+    public ReadableType getType(String name) {
+        return JavaOnlyArray.typeOf(mBackingMap.get(name));
+    }
+
+    @Override
+    public Iterator<Map.Entry<String, Object>> getEntryIterator() {
+        return mBackingMap.entrySet().iterator();
+    }
+
+    @Override
+    public ReadableMapKeySetIterator keySetIterator() {
+        final Iterator<String> iterator = mBackingMap.keySet().iterator();
+        return new ReadableMapKeySetIterator() {
+            @Override
+            public boolean hasNextKey() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public String nextKey() {
+                return iterator.next();
+            }
+        };
+    }
+
+    @Override
+    public HashMap<String, Object> toHashMap() {
+        HashMap<String, Object> map = new HashMap<>(mBackingMap);
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            Object value = entry.getValue();
+            if (value instanceof ReadableMap) {
+                entry.setValue(((ReadableMap) value).toHashMap());
+            } else if (value instanceof ReadableArray) {
+                entry.setValue(((ReadableArray) value).toArrayList());
+            }
+        }
+        return map;
+    }
+
+    @Override
+    public void putNull(String key) {
+        mBackingMap.put(key, null);
+    }
+
+    @Override
+    public void putBoolean(String key, boolean value) {
+        mBackingMap.put(key, value);
+    }
+
+    @Override
+    public void putDouble(String key, double value) {
+        mBackingMap.put(key, value);
+    }
+
+    @Override
+    public void putInt(String key, int value) {
+        mBackingMap.put(key, (double) value);
+    }
+
+    @Override
+    public void putString(String key, String value) {
+        mBackingMap.put(key, value);
+    }
+
+    @Override
+    public void putArray(String key, ReadableArray value) {
+        mBackingMap.put(key, value);
+    }
+
+    @Override
+    public void putMap(String key, ReadableMap value) {
+        mBackingMap.put(key, value);
+    }
+
+    @Override
+    public WritableMap copy() {
+        JavaOnlyMap copy = new JavaOnlyMap();
+        copy.mBackingMap.putAll(mBackingMap);
+        return copy;
+    }
+
+    ArrayList<Object> values() {
+        return new ArrayList<>(mBackingMap.values());
+    }
+}
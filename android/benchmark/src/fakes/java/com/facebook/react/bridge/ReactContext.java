@@ -0,0 +1,23 @@
+package com.facebook.react.bridge;
+
+import android.content.Context;
+
+public class ReactContext extends Context {
+    public void addLifecycleEventListener(LifecycleEventListener listener) {
+    }
+
+    public void removeLifecycleEventListener(LifecycleEventListener listener) {
+    }
+
+    public boolean hasActiveReactInstance() {
+        return false;
+    }
+
+    public void runOnNativeModulesQueueThread(Runnable runnable) {
+        runnable.run();
+    }
+
+    public <T extends JavaScriptModule> T getJSModule(Class<T> jsInterface) {
+        throw new UnsupportedOperationException("No JS runtime in benchmarks");
+    }
+}
@@ -0,0 +1,18 @@
+package com.facebook.react.bridge;
+
+public abstract class ReactContextBaseJavaModule {
+    private final ReactApplicationContext mReactApplicationContext;
+
+    public ReactContextBaseJavaModule(ReactApplicationContext reactContext) {
+        mReactApplicationContext = reactContext;
+    }
+
+    public abstract String getName();
+
+    public void invalidate() {
+    }
+
+    protected final ReactApplicationContext getReactApplicationContext() {
+        return mReactApplicationContext;
+    }
+}
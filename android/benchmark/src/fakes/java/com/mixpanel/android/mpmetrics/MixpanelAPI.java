@@ -0,0 +1,237 @@
+package com.mixpanel.android.mpmetrics;
+
+import android.content.Context;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stand-in for the SDK. getInstance keeps the SDK's global, synchronized instance registry; tracking calls only
+ * count, so the benchmarks measure the React Native module and not the SDK's message queue. Creating an instance
+ * takes the configured creation delay, standing in for the SDK loading its preferences and database.
+ */
+public class MixpanelAPI {
+    private static final Map<String, Map<Context, MixpanelAPI>> sInstanceMap = new HashMap<>();
+    private static volatile long sCreationDelayMs;
+
+    private final JSONObject mSuperProperties = new JSONObject();
+    private final People mPeople = new StubPeople();
+    private long mTrackCount;
+    private JSONObject mLastProperties;
+
+    public static MixpanelAPI getInstance(Context context, String token, boolean trackAutomaticEvents) {
+        return getInstance(context, token, false, null, null, trackAutomaticEvents);
+    }
+
+    public static MixpanelAPI getInstance(Context context, String token, boolean optOutTrackingDefault,
+                                          JSONObject superProperties, String instanceName, boolean trackAutomaticEvents) {
+        synchronized (sInstanceMap) {
+            Context appContext = context.getApplicationContext();
+            Map<Context, MixpanelAPI> instances = sInstanceMap.get(token);
+            if (instances == null) {
+                instances = new HashMap<>();
+                sInstanceMap.put(token, instances);
+            }
+            MixpanelAPI instance = instances.get(appContext);
+            if (instance == null) {
+                if (sCreationDelayMs > 0) {
+                    try {
+                        Thread.sleep(sCreationDelayMs);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                instance = new MixpanelAPI();
+                instances.put(appContext, instance);
+            }
+            return instance;
+        }
+    }
+
+    public static void setCreationDelayMs(long creationDelayMs) {
+        sCreationDelayMs = creationDelayMs;
+    }
+
+    public long getTrackCount() {
+        return mTrackCount;
+    }
+
+    public JSONObject getLastProperties() {
+        return mLastProperties;
+    }
+
+    public void track(String eventName, JSONObject properties) {
+        mTrackCount++;
+        mLastProperties = properties;
+    }
+
+    public void trackMap(String eventName, Map<String, Object> properties) {
+        mTrackCount++;
+    }
+
+    public void trackWithGroups(String eventName, Map<String, Object> properties, Map<String, Object> groups) {
+        mTrackCount++;
+    }
+
+    public void setServerURL(String serverURL) {
+    }
+
+    public void setUseIpAddressForGeolocation(boolean useIpAddressForGeolocation) {
+    }
+
+    public void setFlushBatchSize(int flushBatchSize) {
+    }
+
+    public void setEnableLogging(boolean enableLogging) {
+    }
+
+    public void setShouldGzipRequestPayload(boolean shouldGzipRequestPayload) {
+    }
+
+    public boolean hasOptedOutTracking() {
+        return false;
+    }
+
+    public void optInTracking() {
+    }
+
+    public void optOutTracking() {
+    }
+
+    public void identify(String distinctId) {
+    }
+
+    public String getDistinctId() {
+        return "distinct-id";
+    }
+
+    public String getAnonymousId() {
+        return "anonymous-id";
+    }
+
+    public void registerSuperProperties(JSONObject superProperties) {
+    }
+
+    public void registerSuperPropertiesOnce(JSONObject superProperties) {
+    }
+
+    public void unregisterSuperProperty(String superPropertyName) {
+    }
+
+    public JSONObject getSuperProperties() {
+        return mSuperProperties;
+    }
+
+    public void clearSuperProperties() {
+    }
+
+    public void alias(String alias, String original) {
+    }
+
+    public void reset() {
+    }
+
+    public void flush() {
+    }
+
+    public void timeEvent(String eventName) {
+    }
+
+    public double eventElapsedTime(String eventName) {
+        return 0;
+    }
+
+    public People getPeople() {
+        return mPeople;
+    }
+
+    public Group getGroup(String groupKey, Object groupID) {
+        return new StubGroup();
+    }
+
+    public void setGroup(String groupKey, Object groupID) {
+    }
+
+    public void setGroup(String groupKey, List<Object> groupIDs) {
+    }
+
+    public void addGroup(String groupKey, Object groupID) {
+    }
+
+    public void removeGroup(String groupKey, Object groupID) {
+    }
+
+    public interface People {
+        void set(JSONObject properties);
+
+        void set(String propertyName, Object value);
+
+        void setOnce(JSONObject properties);
+
+        void unset(String name);
+
+        void increment(Map<String, ? extends Number> properties);
+
+        void increment(String name, double increment);
+
+        void append(String name, Object value);
+
+        void union(String name, JSONArray value);
+
+        void remove(String name, Object value);
+
+        void merge(String name, JSONObject updates);
+
+        void trackCharge(double amount, JSONObject properties);
+
+        void clearCharges();
+
+        void deleteUser();
+    }
+
+    public interface Group {
+        void set(JSONObject properties);
+
+        void set(String propertyName, Object value);
+
+        void setOnce(JSONObject properties);
+
+        void unset(String name);
+
+        void union(String name, JSONArray value);
+
+        void remove(String name, Object value);
+
+        void deleteGroup();
+    }
+
+    private static class StubPeople implements People {
+        public void set(JSONObject properties) {}
+        public void set(String propertyName, Object value) {}
+        public void setOnce(JSONObject properties) {}
+        public void unset(String name) {}
+        public void increment(Map<String, ? extends Number> properties) {}
+        public void increment(String name, double increment) {}
+        public void append(String name, Object value) {}
+        public void union(String name, JSONArray value) {}
+        public void remove(String name, Object value) {}
+        public void merge(String name, JSONObject updates) {}
+        public void trackCharge(double amount, JSONObject properties) {}
+        public void clearCharges() {}
+        public void deleteUser() {}
+    }
+
+    private static class StubGroup implements Group {
+        public void set(JSONObject properties) {}
+        public void set(String propertyName, Object value) {}
+        public void setOnce(JSONObject properties) {}
+        public void unset(String name) {}
+        public void union(String name, JSONArray value) {}
+        public void remove(String name, Object value) {}
+        public void deleteGroup() {}
+    }
+}
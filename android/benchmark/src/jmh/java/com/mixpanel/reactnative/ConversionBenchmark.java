@@ -0,0 +1,96 @@
+package com.mixpanel.reactnative;
+
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableMap;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the ReactNativeHelper converters, including the JSON string parser, and of merging the automatic
+ * properties, per property map shape, with and without string interning.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ConversionBenchmark {
+    private static final String TOKEN = "benchmark-token";
+
+    @Param({"FLAT", "NESTED", "LARGE_ARRAY"})
+    public PropertyShape shape;
+
+    @Param({"false", "true"})
+    public boolean interning;
+
+    private ReadableMap mProperties;
+    private ReadableArray mArray;
+    private JSONObject mJson;
+    private String mJsonString;
+
+    @Setup
+    public void setUp() throws JSONException {
+        ReactNativeHelper.setInterner(interning ? new StringInterner(1024) : null);
+        mProperties = shape.build();
+        mArray = PropertyShape.largeArray(shape == PropertyShape.LARGE_ARRAY ? 500 : 20);
+        mJson = ReactNativeHelper.reactToJSON(mProperties);
+        mJsonString = mJson.toString();
+        JSONObject metadata = new JSONObject();
+        metadata.put("$lib_version", "3.2.1");
+        metadata.put("mp_lib", "react-native");
+        AutomaticProperties.setAutomaticProperties(TOKEN, metadata);
+    }
+
+    @Benchmark
+    public JSONObject readableMapToJSON() throws JSONException {
+        return ReactNativeHelper.readableMapToJSON(mProperties);
+    }
+
+    /**
+     * The string fast path; compare with readableMapToJSON(), which on a device is also preceded by the bridge
+     * building the ReadableNativeMap.
+     */
+    @Benchmark
+    public JSONObject jsonToJSON() throws JSONException {
+        return ReactNativeHelper.jsonToJSON(mJsonString);
+    }
+
+    @Benchmark
+    public Map<String, Object> readableMapToMap() throws JSONException {
+        return ReactNativeHelper.readableMapToMap(mProperties);
+    }
+
+    @Benchmark
+    public Object[] toArray() throws JSONException {
+        return ReactNativeHelper.toArray(mArray);
+    }
+
+    @Benchmark
+    public JSONArray reactToJSONArray() throws JSONException {
+        return ReactNativeHelper.reactToJSON(mArray);
+    }
+
+    @Benchmark
+    public WritableMap convertJsonToMap() throws JSONException {
+        return ReactNativeHelper.convertJsonToMap(mJson);
+    }
+
+    @Benchmark
+    public JSONObject appendLibraryProperties() throws JSONException {
+        JSONObject properties = new JSONObject();
+        AutomaticProperties.appendLibraryProperties(TOKEN, properties);
+        return properties;
+    }
+}
@@ -0,0 +1,70 @@
+package com.mixpanel.reactnative;
+
+import com.facebook.react.bridge.JavaOnlyMap;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.mixpanel.android.mpmetrics.MixpanelAPI;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-call instance lookup: the SDK's synchronized global registry against MixpanelReactNativeModule's own
+ * getInstance, which reads the per-token state, single threaded and with several callers contending. The SDK
+ * stand-in keeps the registry's lock and its two map lookups, which is what the real getInstance costs once the
+ * instance exists.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class InstanceLookupBenchmark {
+    private static final String TOKEN = "benchmark-token";
+
+    private ReactApplicationContext mContext;
+    private MixpanelReactNativeModule mModule;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mContext = new ReactApplicationContext();
+        mModule = new MixpanelReactNativeModule(mContext);
+        mModule.initialize(TOKEN, false, false,
+                JavaOnlyMap.of("$lib_version", "3.2.1", "mp_lib", "react-native"),
+                "https://api.mixpanel.com", false, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        mModule.invalidate();
+    }
+
+    @Benchmark
+    public MixpanelAPI sdkGetInstance() {
+        return MixpanelAPI.getInstance(mContext, TOKEN, true);
+    }
+
+    @Benchmark
+    public MixpanelAPI moduleGetInstance() {
+        return mModule.getInstance(TOKEN);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public MixpanelAPI sdkGetInstanceContended() {
+        return MixpanelAPI.getInstance(mContext, TOKEN, true);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public MixpanelAPI moduleGetInstanceContended() {
+        return mModule.getInstance(TOKEN);
+    }
+}
@@ -0,0 +1,74 @@
+package com.mixpanel.reactnative;
+
+import com.facebook.react.bridge.JavaOnlyArray;
+import com.facebook.react.bridge.JavaOnlyMap;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+
+/**
+ * Event property maps of the shapes apps send: a flat map of scalars, nested maps, and a map carrying a large array.
+ */
+public enum PropertyShape {
+    FLAT {
+        @Override
+        ReadableMap build() {
+            return flatMap(20);
+        }
+    },
+    NESTED {
+        @Override
+        ReadableMap build() {
+            return nestedMap(3, 5);
+        }
+    },
+    LARGE_ARRAY {
+        @Override
+        ReadableMap build() {
+            JavaOnlyMap map = flatMap(5);
+            map.putArray("items", largeArray(500));
+            return map;
+        }
+    };
+
+    abstract ReadableMap build();
+
+    static JavaOnlyMap flatMap(int keys) {
+        JavaOnlyMap map = new JavaOnlyMap();
+        for (int i = 0; i < keys; i++) {
+            switch (i % 3) {
+                case 0:
+                    map.putString("string_" + i, "value " + i);
+                    break;
+                case 1:
+                    map.putDouble("number_" + i, i * 1.5);
+                    break;
+                default:
+                    map.putBoolean("boolean_" + i, i % 2 == 0);
+                    break;
+            }
+        }
+        return map;
+    }
+
+    static JavaOnlyMap nestedMap(int depth, int keys) {
+        JavaOnlyMap map = flatMap(keys);
+        if (depth > 1) {
+            for (int i = 0; i < 2; i++) {
+                map.putMap("child_" + i, nestedMap(depth - 1, keys));
+            }
+        }
+        return map;
+    }
+
+    static ReadableArray largeArray(int size) {
+        JavaOnlyArray array = new JavaOnlyArray();
+        for (int i = 0; i < size; i++) {
+            if (i % 2 == 0) {
+                array.pushString("item " + i);
+            } else {
+                array.pushDouble(i);
+            }
+        }
+        return array;
+    }
+}
@@ -0,0 +1,93 @@
+package com.mixpanel.reactnative;
+
+import com.facebook.react.bridge.JavaOnlyMap;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReadableMap;
+import com.mixpanel.android.mpmetrics.MixpanelAPI;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold start as seen by the native modules thread: initialize, then the first track calls of the app, while the
+ * (stubbed) SDK takes CREATION_DELAY_MS to create its instance. The measured time is how long the thread is busy
+ * before it can serve the next bridge call, which is what holds back the first frame that waits on the module.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+public class StartupBenchmark {
+    private static final long CREATION_DELAY_MS = 50;
+    private static final int STARTUP_EVENTS = 20;
+
+    @Param({"false", "true"})
+    public boolean asyncInitialization;
+
+    private MixpanelReactNativeModule mModule;
+    private ReadableMap mProperties;
+    private CountDownLatch mInitialized;
+    private String mToken;
+    private int mRun;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        MixpanelAPI.setCreationDelayMs(CREATION_DELAY_MS);
+        mProperties = PropertyShape.FLAT.build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() {
+        MixpanelAPI.setCreationDelayMs(0);
+    }
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        // a fresh token per run, so every run creates its instance
+        mToken = "startup-token-" + mRun++;
+        mModule = new MixpanelReactNativeModule(new ReactApplicationContext());
+        mModule.setAsyncInitializationEnabled(mToken, asyncInitialization, STARTUP_EVENTS, null);
+        mInitialized = new CountDownLatch(1);
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() throws InterruptedException {
+        mInitialized.await();
+        mModule.invalidate();
+    }
+
+    @Benchmark
+    public void coldStart() {
+        mModule.initialize(mToken, false, false,
+                JavaOnlyMap.of("$lib_version", "3.2.1", "mp_lib", "react-native"),
+                "https://api.mixpanel.com", false, new Promise() {
+                    @Override
+                    public void resolve(Object value) {
+                        mInitialized.countDown();
+                    }
+
+                    @Override
+                    public void reject(String code, String message) {
+                        mInitialized.countDown();
+                    }
+                });
+        for (int i = 0; i < STARTUP_EVENTS; i++) {
+            mModule.track(mToken, "app start", mProperties, null);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.mixpanel.reactnative;
+
+import com.facebook.react.bridge.JavaOnlyArray;
+import com.facebook.react.bridge.JavaOnlyMap;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+
+import org.json.JSONException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end cost of MixpanelReactNativeModule's track paths, from the bridge arguments to the (stubbed) SDK call,
+ * with and without performance statistics.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TrackBenchmark {
+    private static final String TOKEN = "benchmark-token";
+    private static final int BATCH_SIZE = 50;
+
+    @Param({"FLAT", "NESTED", "LARGE_ARRAY"})
+    public PropertyShape shape;
+
+    @Param({"false", "true"})
+    public boolean performanceStats;
+
+    private MixpanelReactNativeModule mModule;
+    private ReadableMap mProperties;
+    private String mJsonProperties;
+    private ReadableArray mBatch;
+
+    @Setup(Level.Trial)
+    public void setUp() throws JSONException {
+        mModule = new MixpanelReactNativeModule(new ReactApplicationContext());
+        mModule.initialize(TOKEN, false, false,
+                JavaOnlyMap.of("$lib_version", "3.2.1", "mp_lib", "react-native"),
+                "https://api.mixpanel.com", false, null);
+        mModule.setPerformanceStatsEnabled(TOKEN, performanceStats, 0, null);
+        mProperties = shape.build();
+        mJsonProperties = ReactNativeHelper.reactToJSON(mProperties).toString();
+        JavaOnlyArray batch = new JavaOnlyArray();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.pushMap(JavaOnlyMap.of("eventName", "event", "properties", shape.build()));
+        }
+        mBatch = batch;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        mModule.invalidate();
+    }
+
+    @Benchmark
+    public void track() {
+        mModule.track(TOKEN, "event", mProperties, null);
+    }
+
+    /**
+     * Same event as track(), sent as its JSON.stringify() output.
+     */
+    @Benchmark
+    public void trackJson() {
+        mModule.trackJson(TOKEN, "event", mJsonProperties, null);
+    }
+
+    @Benchmark
+    public void trackVoid() {
+        mModule.trackVoid(TOKEN, "event", mProperties);
+    }
+
+    /**
+     * Per call, BATCH_SIZE events; divide by BATCH_SIZE to compare with track().
+     */
+    @Benchmark
+    public void trackBatch() {
+        mModule.trackBatch(TOKEN, mBatch, null);
+    }
+
+    @Benchmark
+    public void trackWithGroups() {
+        mModule.trackWithGroups(TOKEN, "event", mProperties, JavaOnlyMap.of("company", "mixpanel"), null);
+    }
+}
@@ -0,0 +1,467 @@
+package com.mixpanel.reactnative;
+
+import android.annotation.TargetApi;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkInfo;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.telephony.TelephonyManager;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+/**
+ * Decides when to flush the queue of a single token from the app lifecycle, the connectivity and battery saver
+ * state and the rate events are enqueued at:
+ * <ul>
+ * <li>in the background, what was enqueued is flushed right away, then COALESCE_MS after each new event;</li>
+ * <li>in the foreground, the queue is flushed every interval, or COALESCE_MS after queueDepth events were
+ * enqueued, postponed while events keep arriving at BURST_RATE per second or more, up to MAX_COALESCE_MS;</li>
+ * <li>on a metered or slow network and in battery saver, the foreground delays are BACKOFF_FACTOR times longer;</li>
+ * <li>offline, flushes are deferred until the network comes back.</li>
+ * </ul>
+ * Timers, broadcasts and network callbacks are handled on the looper's thread; signals may come from any thread.
+ */
+class AdaptiveFlushScheduler {
+
+    enum Reason {
+        BACKGROUND("background"),
+        INTERVAL("interval"),
+        QUEUE_DEPTH("queueDepth"),
+        RECONNECT("reconnect");
+
+        final String key;
+
+        Reason(String key) {
+            this.key = key;
+        }
+    }
+
+    static final long DEFAULT_INTERVAL_MS = 60000;
+    static final int DEFAULT_QUEUE_DEPTH = 50;
+    static final long COALESCE_MS = 2000;
+    static final long MAX_COALESCE_MS = 10000;
+    static final double BURST_RATE = 10;
+    static final int BACKOFF_FACTOR = 4;
+
+    private static final long RATE_WINDOW_MS = 1000;
+    // the downstream bandwidth Android estimates for GPRS, EDGE, CDMA and 1xRTT stays below this
+    private static final int SLOW_NETWORK_KBPS = 100;
+
+    private final Handler mHandler;
+    private final Runnable mOnFlush;
+    private final long mIntervalMs;
+    private final int mQueueDepth;
+    private final Runnable mTimer = this::onTimer;
+    private final long[] mFlushes = new long[Reason.values().length];
+    private Context mContext;
+    private BroadcastReceiver mReceiver;
+    private ConnectivityManager.NetworkCallback mNetworkCallback;
+
+    private boolean mStopped = true;
+    private boolean mRestartOnResume;
+    private boolean mForeground = true;
+    private boolean mConnected = true;
+    private boolean mMetered;
+    private boolean mSlowNetwork;
+    private boolean mPowerSave;
+    private int mPending;
+    private boolean mDeferred;
+    private long mDeferrals;
+    private Reason mScheduledReason;
+    private long mScheduledSince;
+    private long mLastEnqueueAt;
+    private long mWindowStart;
+    private int mWindowCount;
+    private double mRate;
+    private String mLastAction = "none";
+    private Reason mLastReason;
+    private long mLastDelayMs;
+
+    /**
+     * @param onFlush run on the looper's thread when the queue should be flushed; expected to dispatch the flush
+     *                through the same path as the other calls of the token.
+     */
+    AdaptiveFlushScheduler(Looper looper, long intervalMs, int queueDepth, Runnable onFlush) {
+        mHandler = new Handler(looper);
+        mIntervalMs = intervalMs;
+        mQueueDepth = queueDepth;
+        mOnFlush = onFlush;
+    }
+
+    /**
+     * Starts following the connectivity and battery saver state. From API 24 the connectivity comes from a default
+     * network callback, before that from the connectivity broadcast. The current state is read on the looper's
+     * thread, so a flush it triggers never runs under this scheduler's lock.
+     */
+    @SuppressWarnings("deprecation")
+    synchronized void start(Context context) {
+        mContext = context.getApplicationContext();
+        mStopped = false;
+        final boolean networkCallback = Build.VERSION.SDK_INT >= Build.VERSION_CODES.N && registerNetworkCallback();
+        mReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                if (PowerManager.ACTION_POWER_SAVE_MODE_CHANGED.equals(intent.getAction())) {
+                    readPowerSaveMode();
+                } else {
+                    readConnectivity();
+                }
+            }
+        };
+        IntentFilter filter = new IntentFilter();
+        if (!networkCallback) {
+            filter.addAction(ConnectivityManager.CONNECTIVITY_ACTION);
+        }
+        filter.addAction(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED);
+        mContext.registerReceiver(mReceiver, filter, null, mHandler);
+        mHandler.post(() -> {
+            if (networkCallback) {
+                readDefaultNetwork();
+            } else {
+                readConnectivity();
+            }
+            readPowerSaveMode();
+        });
+    }
+
+    /**
+     * Stops following the connectivity and battery saver state and cancels the pending timer. Events enqueued
+     * meanwhile are only counted, until onHostResume starts it again.
+     */
+    synchronized void stop() {
+        mStopped = true;
+        mRestartOnResume = false;
+        mScheduledReason = null;
+        if (mReceiver != null) {
+            mContext.unregisterReceiver(mReceiver);
+            mReceiver = null;
+        }
+        if (mNetworkCallback != null) {
+            ConnectivityManager connectivityManager = (ConnectivityManager) mContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+            connectivityManager.unregisterNetworkCallback(mNetworkCallback);
+            mNetworkCallback = null;
+        }
+        mHandler.removeCallbacks(mTimer);
+    }
+
+    void onEnqueue(int count) {
+        synchronized (this) {
+            long now = SystemClock.uptimeMillis();
+            updateRate(now, count);
+            mLastEnqueueAt = now;
+            mPending += count;
+            if (mDeferred || mStopped) {
+                // flushed once the network comes back
+                return;
+            }
+            if (!mForeground) {
+                if (mScheduledReason != Reason.BACKGROUND) {
+                    schedule(Reason.BACKGROUND, now, COALESCE_MS);
+                }
+            } else if (mPending >= mQueueDepth) {
+                if (mScheduledReason != Reason.QUEUE_DEPTH) {
+                    schedule(Reason.QUEUE_DEPTH, now, backoff(COALESCE_MS));
+                }
+            } else if (mScheduledReason == null) {
+                schedule(Reason.INTERVAL, now, backoff(mIntervalMs));
+            }
+        }
+    }
+
+    void onHostPause() {
+        synchronized (this) {
+            mForeground = false;
+            if (mPending == 0 || !flush(Reason.BACKGROUND)) {
+                return;
+            }
+        }
+        mOnFlush.run();
+    }
+
+    synchronized void onHostResume() {
+        mForeground = true;
+        if (mRestartOnResume) {
+            start(mContext);
+            if (mPending > 0) {
+                schedule(Reason.INTERVAL, SystemClock.uptimeMillis(), backoff(mIntervalMs));
+            }
+        } else if (mScheduledReason == Reason.BACKGROUND) {
+            schedule(Reason.INTERVAL, mScheduledSince, backoff(mIntervalMs));
+        }
+    }
+
+    void onConnectivityChanged(boolean connected, boolean metered, boolean slowNetwork) {
+        synchronized (this) {
+            boolean reconnected = connected && !mConnected;
+            mConnected = connected;
+            mMetered = metered;
+            mSlowNetwork = slowNetwork;
+            if (!reconnected || !mDeferred || mStopped || !flush(Reason.RECONNECT)) {
+                reschedule();
+                return;
+            }
+        }
+        mOnFlush.run();
+    }
+
+    /**
+     * Flushes what was enqueued, as onHostPause does, then stops until onHostResume.
+     */
+    void onHostDestroy() {
+        onHostPause();
+        synchronized (this) {
+            stop();
+            mRestartOnResume = true;
+        }
+    }
+
+    synchronized void onPowerSaveModeChanged(boolean powerSave) {
+        mPowerSave = powerSave;
+        reschedule();
+    }
+
+    private void onTimer() {
+        synchronized (this) {
+            Reason reason = mScheduledReason;
+            if (reason == null) {
+                return;
+            }
+            mScheduledReason = null;
+            long now = SystemClock.uptimeMillis();
+            if (reason == Reason.QUEUE_DEPTH) {
+                updateRate(now, 0);
+                long coalesceEnd = mScheduledSince + backoff(MAX_COALESCE_MS);
+                long quietAt = mLastEnqueueAt + backoff(COALESCE_MS);
+                if (mRate >= BURST_RATE && quietAt > now && now < coalesceEnd) {
+                    // still bursting, wait for it to calm down
+                    schedule(reason, mScheduledSince, Math.min(quietAt, coalesceEnd) - mScheduledSince);
+                    return;
+                }
+            }
+            if (!flush(reason)) {
+                return;
+            }
+        }
+        mOnFlush.run();
+    }
+
+    /**
+     * Records a flush and returns true, or records a deferral and returns false when offline.
+     */
+    private boolean flush(Reason reason) {
+        mHandler.removeCallbacks(mTimer);
+        mScheduledReason = null;
+        mLastReason = reason;
+        mLastDelayMs = 0;
+        if (!mConnected) {
+            mDeferred = true;
+            mDeferrals++;
+            mLastAction = "defer";
+            return false;
+        }
+        mDeferred = false;
+        mPending = 0;
+        mFlushes[reason.ordinal()]++;
+        mLastAction = "flush";
+        return true;
+    }
+
+    private void schedule(Reason reason, long since, long delayMs) {
+        mScheduledReason = reason;
+        mScheduledSince = since;
+        mLastAction = "schedule";
+        mLastReason = reason;
+        mLastDelayMs = delayMs;
+        mHandler.removeCallbacks(mTimer);
+        mHandler.postAtTime(mTimer, since + delayMs);
+    }
+
+    /**
+     * Applies a changed backoff to the pending foreground timer.
+     */
+    private void reschedule() {
+        if (mScheduledReason == Reason.INTERVAL) {
+            schedule(Reason.INTERVAL, mScheduledSince, backoff(mIntervalMs));
+        } else if (mScheduledReason == Reason.QUEUE_DEPTH) {
+            schedule(Reason.QUEUE_DEPTH, mScheduledSince, backoff(COALESCE_MS));
+        }
+    }
+
+    private long backoff(long delayMs) {
+        return mMetered || mSlowNetwork || mPowerSave ? delayMs * BACKOFF_FACTOR : delayMs;
+    }
+
+    /**
+     * Folds the events of each elapsed window into an exponentially weighted rate, in events per second.
+     */
+    private void updateRate(long now, int count) {
+        long elapsed = now - mWindowStart;
+        if (elapsed >= RATE_WINDOW_MS) {
+            mRate = mRate / 2 + mWindowCount * 1000.0 / elapsed / 2;
+            mWindowStart = now;
+            mWindowCount = 0;
+        }
+        mWindowCount += count;
+    }
+
+    /**
+     * Follows the default network with a callback. Returns false when there is no connectivity service, in which
+     * case the connectivity broadcast is used.
+     */
+    @TargetApi(Build.VERSION_CODES.N)
+    private boolean registerNetworkCallback() {
+        ConnectivityManager connectivityManager = (ConnectivityManager) mContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivityManager == null) {
+            return false;
+        }
+        ConnectivityManager.NetworkCallback callback = new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onCapabilitiesChanged(Network network, final NetworkCapabilities capabilities) {
+                mHandler.post(() -> onNetworkCapabilities(capabilities));
+            }
+
+            @Override
+            public void onLost(Network network) {
+                mHandler.post(() -> onNetworkCapabilities(null));
+            }
+        };
+        try {
+            connectivityManager.registerDefaultNetworkCallback(callback);
+            mNetworkCallback = callback;
+        } catch (SecurityException e) {
+            // without ACCESS_NETWORK_STATE, assume a good connection as the SDK does
+        }
+        return true;
+    }
+
+    /**
+     * Reads the default network from API 24, before its callback reports a change.
+     */
+    @TargetApi(Build.VERSION_CODES.N)
+    private void readDefaultNetwork() {
+        ConnectivityManager connectivityManager = (ConnectivityManager) mContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkCapabilities capabilities = null;
+        try {
+            Network network = connectivityManager.getActiveNetwork();
+            capabilities = network != null ? connectivityManager.getNetworkCapabilities(network) : null;
+        } catch (SecurityException e) {
+            // without ACCESS_NETWORK_STATE, assume a good connection as the SDK does
+            onConnectivityChanged(true, false, false);
+            return;
+        }
+        onNetworkCapabilities(capabilities);
+    }
+
+    /**
+     * Applies the capabilities of the default network, or null when there is none.
+     */
+    private void onNetworkCapabilities(NetworkCapabilities capabilities) {
+        if (capabilities == null) {
+            onConnectivityChanged(false, false, false);
+            return;
+        }
+        boolean connected = capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                && capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED);
+        boolean metered = !capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED);
+        boolean slowNetwork = capabilities.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR)
+                && capabilities.getLinkDownstreamBandwidthKbps() < SLOW_NETWORK_KBPS;
+        onConnectivityChanged(connected, metered, slowNetwork);
+    }
+
+    /**
+     * Reads the active network before API 24, where the default network callback is not available.
+     */
+    @SuppressWarnings("deprecation")
+    private void readConnectivity() {
+        boolean connected = true;
+        boolean metered = false;
+        boolean slowNetwork = false;
+        ConnectivityManager connectivityManager = (ConnectivityManager) mContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+        try {
+            NetworkInfo network = connectivityManager.getActiveNetworkInfo();
+            connected = network != null && network.isConnected();
+            metered = connectivityManager.isActiveNetworkMetered();
+            slowNetwork = network != null && network.getType() == ConnectivityManager.TYPE_MOBILE
+                    && isSlowNetworkType(network.getSubtype());
+        } catch (SecurityException e) {
+            // without ACCESS_NETWORK_STATE, assume a good connection as the SDK does
+        }
+        onConnectivityChanged(connected, metered, slowNetwork);
+    }
+
+    private void readPowerSaveMode() {
+        PowerManager powerManager = (PowerManager) mContext.getSystemService(Context.POWER_SERVICE);
+        onPowerSaveModeChanged(powerManager != null && powerManager.isPowerSaveMode());
+    }
+
+    private static boolean isSlowNetworkType(int networkType) {
+        switch (networkType) {
+            case TelephonyManager.NETWORK_TYPE_GPRS:
+            case TelephonyManager.NETWORK_TYPE_EDGE:
+            case TelephonyManager.NETWORK_TYPE_CDMA:
+            case TelephonyManager.NETWORK_TYPE_1xRTT:
+            case TelephonyManager.NETWORK_TYPE_IDEN:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    synchronized long getFlushCount(Reason reason) {
+        return mFlushes[reason.ordinal()];
+    }
+
+    synchronized long getDeferrals() {
+        return mDeferrals;
+    }
+
+    synchronized String getLastAction() {
+        return mLastAction;
+    }
+
+    synchronized Reason getLastReason() {
+        return mLastReason;
+    }
+
+    synchronized long getLastDelayMs() {
+        return mLastDelayMs;
+    }
+
+    synchronized WritableMap snapshot() {
+        WritableMap flushes = Arguments.createMap();
+        long flushCount = 0;
+        for (Reason reason : Reason.values()) {
+            flushes.putDouble(reason.key, mFlushes[reason.ordinal()]);
+            flushCount += mFlushes[reason.ordinal()];
+        }
+        WritableMap lastDecision = Arguments.createMap();
+        lastDecision.putString("action", mLastAction);
+        if (mLastReason != null) {
+            lastDecision.putString("reason", mLastReason.key);
+        }
+        lastDecision.putDouble("delayMs", mLastDelayMs);
+        WritableMap stats = Arguments.createMap();
+        stats.putDouble("flushCount", flushCount);
+        stats.putMap("flushes", flushes);
+        stats.putDouble("deferrals", mDeferrals);
+        stats.putMap("lastDecision", lastDecision);
+        stats.putDouble("pendingEvents", mPending);
+        stats.putDouble("enqueueRate", mRate);
+        stats.putBoolean("foreground", mForeground);
+        stats.putBoolean("connected", mConnected);
+        stats.putBoolean("metered", mMetered);
+        stats.putBoolean("slowNetwork", mSlowNetwork);
+        stats.putBoolean("powerSave", mPowerSave);
+        return stats;
+    }
+}
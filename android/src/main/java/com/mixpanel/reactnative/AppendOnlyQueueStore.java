@@ -0,0 +1,437 @@
+package com.mixpanel.reactnative;
+
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.OsConstants;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Persists the queue of a single token and type for JavaScript mode as an append-only log, so enqueueing writes
+ * only the new record and dequeueing after an upload only moves the acknowledged offset, instead of rewriting the
+ * whole queue.
+ *
+ * <p>Records are appended to numbered segment files, each record framed by its length and CRC32. The index file
+ * holds the position of the first unacknowledged record and is replaced atomically. Segments before that position
+ * are deleted, and once everything is acknowledged the log moves on to an empty segment, so acknowledged records
+ * do not accumulate. Events that keep trickling in may never leave the log empty, so an acknowledgement that
+ * leaves the segment being written more than half acknowledged also compacts it: the unacknowledged records are
+ * copied to a fresh segment, which costs no more than the bytes acknowledged since the last compaction. On open,
+ * a torn or corrupt record ends its segment: the segment is truncated before it.
+ *
+ * <p>Appends reach the OS with each call and survive a crash of the app; the index and replaced queues are also
+ * synced to the disk, along with the directory after each rename. A crash between an upload and its
+ * acknowledgement sends the records again.
+ */
+class AppendOnlyQueueStore {
+    static final int DEFAULT_SEGMENT_BYTES = 256 * 1024;
+
+    private static final int HEADER_BYTES = 8;
+    private static final int INDEX_BYTES = 12;
+    private static final String INDEX = "index";
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String MIGRATED = "migrated";
+
+    /**
+     * Syncs a directory to the disk, so the renames in it survive a power loss.
+     */
+    interface DirectorySync {
+        void sync(File dir) throws IOException;
+    }
+
+    static final DirectorySync FSYNC = dir -> {
+        FileDescriptor fd = null;
+        try {
+            fd = Os.open(dir.getPath(), OsConstants.O_RDONLY, 0);
+            Os.fsync(fd);
+        } catch (ErrnoException e) {
+            throw new IOException("Cannot sync " + dir, e);
+        } finally {
+            if (fd != null) {
+                try {
+                    Os.close(fd);
+                } catch (ErrnoException ignored) {
+                    // the sync already succeeded or failed
+                }
+            }
+        }
+    };
+
+    private final File mDir;
+    private final int mSegmentBytes;
+    private final DirectorySync mDirectorySync;
+    // start positions of the unacknowledged records, see position()
+    private final ArrayDeque<Long> mStarts = new ArrayDeque<>();
+    private long mSegment;
+    private long mSize;
+    private FileOutputStream mOut;
+
+    AppendOnlyQueueStore(File dir, int segmentBytes) throws IOException {
+        this(dir, segmentBytes, FSYNC);
+    }
+
+    AppendOnlyQueueStore(File dir, int segmentBytes, DirectorySync directorySync) throws IOException {
+        mDir = dir;
+        mSegmentBytes = segmentBytes;
+        mDirectorySync = directorySync;
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        recover();
+    }
+
+    synchronized int size() {
+        return mStarts.size();
+    }
+
+    synchronized void append(String record) throws IOException {
+        byte[] payload = record.getBytes(StandardCharsets.UTF_8);
+        if (mSize > 0 && mSize + HEADER_BYTES + payload.length > mSegmentBytes) {
+            roll();
+        }
+        byte[] frame = frame(payload);
+        // a single write, so a crash tears at most this record
+        try {
+            mOut.write(frame);
+        } catch (IOException e) {
+            // drop what was written of the record, the next append starts where it did
+            mOut.getChannel().truncate(mSize);
+            throw e;
+        }
+        mStarts.add(position(mSegment, mSize));
+        mSize += frame.length;
+    }
+
+    /**
+     * Drops the first count records, after they were uploaded.
+     */
+    synchronized void acknowledge(int count) throws IOException {
+        for (int i = 0; i < count && !mStarts.isEmpty(); i++) {
+            mStarts.poll();
+        }
+        if (mStarts.isEmpty() && mSize > 0) {
+            roll();
+        }
+        long ack = mStarts.isEmpty() ? position(mSegment, mSize) : mStarts.peek();
+        writeIndex(ack);
+        deleteSegmentsBefore(segmentOf(ack));
+        long acknowledged = offsetOf(ack);
+        if (segmentOf(ack) == mSegment && acknowledged > mSegmentBytes / 2 && mSize - acknowledged <= acknowledged) {
+            rewrite(readPayloads());
+        }
+    }
+
+    /**
+     * Replaces the unacknowledged records, for the rare updates of records already queued.
+     */
+    synchronized void replace(List<String> records) throws IOException {
+        ArrayList<byte[]> payloads = new ArrayList<>(records.size());
+        for (String record : records) {
+            payloads.add(record.getBytes(StandardCharsets.UTF_8));
+        }
+        rewrite(payloads);
+    }
+
+    /**
+     * Writes the records to a new segment through a temporary file and commits it by the index.
+     */
+    private void rewrite(List<byte[]> payloads) throws IOException {
+        long segment = mSegment + 1;
+        File temp = file(segment, TEMP_SUFFIX);
+        long size = 0;
+        ArrayList<Long> starts = new ArrayList<>(payloads.size());
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            for (byte[] payload : payloads) {
+                byte[] frame = frame(payload);
+                out.write(frame);
+                starts.add(position(segment, size));
+                size += frame.length;
+            }
+            out.getFD().sync();
+        }
+        // recover() completes the rename when the index already points to the new segment
+        writeIndex(position(segment, 0));
+        if (!temp.renameTo(file(segment, SEGMENT_SUFFIX))) {
+            throw new IOException("Cannot rename " + temp);
+        }
+        mDirectorySync.sync(mDir);
+        mOut.close();
+        mSegment = segment;
+        mSize = size;
+        mOut = new FileOutputStream(file(segment, SEGMENT_SUFFIX), true);
+        mStarts.clear();
+        mStarts.addAll(starts);
+        deleteSegmentsBefore(segment);
+    }
+
+    /**
+     * Returns the unacknowledged records, oldest first.
+     */
+    synchronized List<String> read() throws IOException {
+        List<byte[]> payloads = readPayloads();
+        ArrayList<String> records = new ArrayList<>(payloads.size());
+        for (byte[] payload : payloads) {
+            records.add(new String(payload, StandardCharsets.UTF_8));
+        }
+        return records;
+    }
+
+    /**
+     * Whether markMigrated() was called for this log.
+     */
+    synchronized boolean isMigrated() {
+        return new File(mDir, MIGRATED).exists();
+    }
+
+    /**
+     * Records that the queue saved before the log was used has been moved into it, so it is not looked for again.
+     */
+    synchronized void markMigrated() throws IOException {
+        File migrated = new File(mDir, MIGRATED);
+        if (!migrated.exists() && !migrated.createNewFile()) {
+            throw new IOException("Cannot create " + migrated);
+        }
+        mDirectorySync.sync(mDir);
+    }
+
+    private List<byte[]> readPayloads() throws IOException {
+        ArrayList<byte[]> payloads = new ArrayList<>(mStarts.size());
+        RandomAccessFile in = null;
+        long segment = -1;
+        try {
+            for (long start : mStarts) {
+                if (segmentOf(start) != segment) {
+                    if (in != null) {
+                        in.close();
+                    }
+                    segment = segmentOf(start);
+                    in = new RandomAccessFile(file(segment, SEGMENT_SUFFIX), "r");
+                }
+                in.seek(offsetOf(start));
+                byte[] payload = new byte[in.readInt()];
+                in.readInt();
+                in.readFully(payload);
+                payloads.add(payload);
+            }
+        } finally {
+            if (in != null) {
+                in.close();
+            }
+        }
+        return payloads;
+    }
+
+    synchronized void close() throws IOException {
+        mOut.close();
+    }
+
+    /**
+     * Finds the unacknowledged records from the index, truncating each segment at its first torn or corrupt record.
+     */
+    private void recover() throws IOException {
+        long ack = readIndex();
+        if (ack >= 0) {
+            File pending = file(segmentOf(ack), TEMP_SUFFIX);
+            if (pending.exists() && !file(segmentOf(ack), SEGMENT_SUFFIX).exists()) {
+                if (!pending.renameTo(file(segmentOf(ack), SEGMENT_SUFFIX))) {
+                    // a replace crashed after writing the index, and its segment cannot be completed
+                    throw new IOException("Cannot rename " + pending);
+                }
+                mDirectorySync.sync(mDir);
+            }
+        }
+        long[] segments = listSegments();
+        if (ack < 0) {
+            // without a readable index, send everything again rather than lose it
+            ack = position(segments.length > 0 ? segments[0] : 0, 0);
+        }
+        deleteSegmentsBefore(segmentOf(ack));
+        mSegment = segmentOf(ack);
+        mSize = 0;
+        for (long segment : segments) {
+            if (segment < segmentOf(ack)) {
+                continue;
+            }
+            mSegment = segment;
+            mSize = scan(segment, segment == segmentOf(ack) ? offsetOf(ack) : 0);
+        }
+        mOut = new FileOutputStream(file(mSegment, SEGMENT_SUFFIX), true);
+    }
+
+    /**
+     * Adds the start of each valid record of the segment from the offset on, truncates anything after the last
+     * one and returns the segment's resulting size.
+     */
+    private long scan(long segment, long offset) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(file(segment, SEGMENT_SUFFIX), "rw")) {
+            long length = file.length();
+            if (offset > length) {
+                offset = length;
+            }
+            CRC32 crc = new CRC32();
+            while (length - offset >= HEADER_BYTES) {
+                file.seek(offset);
+                int payloadLength = file.readInt();
+                int checksum = file.readInt();
+                if (payloadLength < 0 || payloadLength > length - offset - HEADER_BYTES) {
+                    break;
+                }
+                byte[] payload = new byte[payloadLength];
+                file.readFully(payload);
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                mStarts.add(position(segment, offset));
+                offset += HEADER_BYTES + payloadLength;
+            }
+            if (offset < length) {
+                file.setLength(offset);
+            }
+            return offset;
+        }
+    }
+
+    private void roll() throws IOException {
+        mOut.close();
+        mSegment++;
+        mSize = 0;
+        mOut = new FileOutputStream(file(mSegment, SEGMENT_SUFFIX), true);
+    }
+
+    /**
+     * Returns the acknowledged position, or -1 when the index is missing or corrupt.
+     */
+    private long readIndex() {
+        File index = new File(mDir, INDEX);
+        if (index.length() != INDEX_BYTES) {
+            return -1;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(index))) {
+            long position = in.readLong();
+            int checksum = in.readInt();
+            return checksum == checksum(position) && position >= 0 ? position : -1;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private void writeIndex(long position) throws IOException {
+        File temp = new File(mDir, INDEX + TEMP_SUFFIX);
+        byte[] bytes = new byte[INDEX_BYTES];
+        putLong(bytes, 0, position);
+        putInt(bytes, 8, checksum(position));
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(bytes);
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(new File(mDir, INDEX))) {
+            throw new IOException("Cannot rename " + temp);
+        }
+        // the index has to be on the disk before a replace renames the segment it points to
+        mDirectorySync.sync(mDir);
+    }
+
+    private void deleteSegmentsBefore(long segment) {
+        for (long existing : listSegments()) {
+            if (existing < segment) {
+                file(existing, SEGMENT_SUFFIX).delete();
+            }
+        }
+        // temporary segments of replaces that crashed before writing the index
+        File[] files = mDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().startsWith(SEGMENT_PREFIX) && file.getName().endsWith(TEMP_SUFFIX)) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    private long[] listSegments() {
+        File[] files = mDir.listFiles();
+        if (files == null) {
+            return new long[0];
+        }
+        long[] segments = new long[files.length];
+        int count = 0;
+        for (File file : files) {
+            String name = file.getName();
+            if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                try {
+                    segments[count++] = Long.parseLong(
+                            name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+                } catch (NumberFormatException e) {
+                    count--;
+                }
+            }
+        }
+        segments = Arrays.copyOf(segments, count);
+        Arrays.sort(segments);
+        return segments;
+    }
+
+    private File file(long segment, String suffix) {
+        return new File(mDir, SEGMENT_PREFIX + segment + suffix);
+    }
+
+    private static byte[] frame(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        byte[] frame = new byte[HEADER_BYTES + payload.length];
+        putInt(frame, 0, payload.length);
+        putInt(frame, 4, (int) crc.getValue());
+        System.arraycopy(payload, 0, frame, HEADER_BYTES, payload.length);
+        return frame;
+    }
+
+    private static int checksum(long position) {
+        byte[] bytes = new byte[8];
+        putLong(bytes, 0, position);
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    private static void putInt(byte[] bytes, int index, int value) {
+        for (int i = 0; i < 4; i++) {
+            bytes[index + i] = (byte) (value >>> (24 - 8 * i));
+        }
+    }
+
+    private static void putLong(byte[] bytes, int index, long value) {
+        putInt(bytes, index, (int) (value >>> 32));
+        putInt(bytes, index + 4, (int) value);
+    }
+
+    /**
+     * Packs a segment number and an offset within it into one long, ordered like the records.
+     */
+    private static long position(long segment, long offset) {
+        return segment << 32 | offset;
+    }
+
+    private static long segmentOf(long position) {
+        return position >>> 32;
+    }
+
+    private static long offsetOf(long position) {
+        return position & 0xffffffffL;
+    }
+}
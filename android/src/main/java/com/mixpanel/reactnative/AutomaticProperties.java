@@ -4,31 +4,53 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class AutomaticProperties {
-    private static JSONObject sAutomaticProperties;
+    private static final Map<String, PropertyBlock> sAutomaticProperties = new ConcurrentHashMap<>();
 
     /**
-     * It will set the properties coming from json file.
+     * It will set the properties coming from json file for the given token. The properties are frozen
+     * into an immutable key/value block so that merging them into events needs no iterator or lookups.
      */
-    public static void setAutomaticProperties(JSONObject properties) {
-        sAutomaticProperties = properties;
+    public static void setAutomaticProperties(String token, JSONObject properties) throws JSONException {
+        String[] keys = new String[properties.length()];
+        Object[] values = new Object[keys.length];
+        int i = 0;
+        for (Iterator<String> iterator = properties.keys(); iterator.hasNext() && i < keys.length; i++) {
+            keys[i] = iterator.next();
+            values[i] = properties.get(keys[i]);
+        }
+        sAutomaticProperties.put(token, new PropertyBlock(keys, values));
     }
 
     /**
-     * This method will append library properties to the default properties.
+     * This method will append library properties of the given token to the default properties.
      */
-    public static void appendLibraryProperties(JSONObject properties) throws JSONException {
+    public static void appendLibraryProperties(String token, JSONObject properties) throws JSONException {
         if (properties == null) {
             properties = new JSONObject();
         }
 
-        if (sAutomaticProperties != null) {
-            // merge automatic properties
-            for (Iterator<String> keys = sAutomaticProperties.keys(); keys.hasNext();) {
-                String key = keys.next();
-                properties.put(key, sAutomaticProperties.get(key));
-            }
+        PropertyBlock block = sAutomaticProperties.get(token);
+        if (block == null) {
+            return;
+        }
+        String[] keys = block.keys;
+        Object[] values = block.values;
+        for (int i = 0; i < keys.length; i++) {
+            properties.put(keys[i], values[i]);
+        }
+    }
+
+    private static final class PropertyBlock {
+        final String[] keys;
+        final Object[] values;
+
+        PropertyBlock(String[] keys, Object[] values) {
+            this.keys = keys;
+            this.values = values;
         }
     }
 }
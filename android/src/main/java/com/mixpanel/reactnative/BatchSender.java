@@ -0,0 +1,326 @@
+package com.mixpanel.reactnative;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Sends the queued batches of JavaScript mode, in the request format of mixpanel-network.js, one at a time on a
+ * single thread so that HttpURLConnection keeps reusing the same keep-alive connection. The form body is URL-encoded
+ * as it is written, in chunks, and, when requested, gzip-compressed while it is streamed to the connection.
+ *
+ * <p>Failed connections, 429 and 5xx responses are retried up to maxRetries times after a jittered exponential
+ * backoff, or after the server's Retry-After when it sends one, capped at maxDelayMs. Other responses, such as
+ * 400 for an invalid batch, are reported without a retry. The batches sent after one being retried wait for its
+ * outcome, so they reach the server in the order they were sent.
+ */
+class BatchSender {
+    static final int DEFAULT_MAX_RETRIES = 5;
+    static final long DEFAULT_BASE_DELAY_MS = 2000;
+    static final long DEFAULT_MAX_DELAY_MS = 60000;
+
+    private static final int CONNECT_TIMEOUT_MS = 15000;
+    private static final int READ_TIMEOUT_MS = 20000;
+    private static final int CHUNK_BYTES = 8192;
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final int mMaxRetries;
+    private final long mBaseDelayMs;
+    private final long mMaxDelayMs;
+    private final Random mRandom;
+    private final ScheduledExecutorService mExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "MixpanelReactNative-sender");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // the batches without an outcome yet, in the order they were sent; the head is the one being sent
+    private final ArrayDeque<Batch> mBatches = new ArrayDeque<>();
+
+    /**
+     * The outcome of a batch: the status of the last response, or 0 when no response came, with its body or the
+     * connection error.
+     */
+    static final class Result {
+        final int status;
+        final String body;
+        final String error;
+        final int attempts;
+
+        Result(int status, String body, String error, int attempts) {
+            this.status = status;
+            this.body = body;
+            this.error = error;
+            this.attempts = attempts;
+        }
+    }
+
+    interface Callback {
+        void onResult(Result result);
+
+        /**
+         * Called instead of onResult for a batch without an outcome when the sender is shut down.
+         */
+        void onCancelled();
+    }
+
+    private static final class Batch {
+        final String url;
+        final String json;
+        final boolean gzip;
+        final Callback callback;
+        // claimed by whichever of the outcome and the shutdown comes first
+        final AtomicBoolean done = new AtomicBoolean();
+
+        Batch(String url, String json, boolean gzip, Callback callback) {
+            this.url = url;
+            this.json = json;
+            this.gzip = gzip;
+            this.callback = callback;
+        }
+    }
+
+    BatchSender(int maxRetries, long baseDelayMs, long maxDelayMs, Random random) {
+        mMaxRetries = maxRetries;
+        mBaseDelayMs = baseDelayMs;
+        mMaxDelayMs = maxDelayMs;
+        mRandom = random;
+    }
+
+    /**
+     * Posts data=json to the url once the batches sent before it have an outcome, retrying as needed, and reports
+     * the outcome on the sender's thread.
+     */
+    void send(String url, String json, boolean gzip, Callback callback) {
+        Batch batch = new Batch(url, json, gzip, callback);
+        boolean first;
+        synchronized (mBatches) {
+            first = mBatches.isEmpty();
+            mBatches.add(batch);
+        }
+        if (first) {
+            try {
+                mExecutor.execute(() -> attempt(batch, 1));
+            } catch (RejectedExecutionException e) {
+                shutdown();
+            }
+        }
+    }
+
+    /**
+     * Stops sending and cancels the batches without an outcome.
+     */
+    void shutdown() {
+        mExecutor.shutdownNow();
+        List<Batch> cancelled;
+        synchronized (mBatches) {
+            cancelled = new ArrayList<>(mBatches);
+            mBatches.clear();
+        }
+        for (Batch batch : cancelled) {
+            if (batch.done.compareAndSet(false, true)) {
+                batch.callback.onCancelled();
+            }
+        }
+    }
+
+    private void attempt(Batch batch, int attempt) {
+        Result result;
+        int status = 0;
+        String retryAfter = null;
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(batch.url).openConnection();
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            connection.setReadTimeout(READ_TIMEOUT_MS);
+            connection.setRequestMethod("POST");
+            connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+            if (batch.gzip) {
+                connection.setRequestProperty("Content-Encoding", "gzip");
+            }
+            connection.setDoOutput(true);
+            connection.setChunkedStreamingMode(CHUNK_BYTES);
+            writeBody(connection.getOutputStream(), batch.json, batch.gzip);
+            status = connection.getResponseCode();
+            retryAfter = connection.getHeaderField("Retry-After");
+            result = new Result(status, readBody(connection, status), null, attempt);
+        } catch (IOException e) {
+            if (connection != null) {
+                // a broken connection must not go back to the pool
+                connection.disconnect();
+            }
+            // a status that arrived stays the outcome, even when its body could not be read
+            result = new Result(status, null, e.toString(), attempt);
+        }
+        if (attempt <= mMaxRetries && isRetryable(result.status)) {
+            try {
+                mExecutor.schedule(() -> attempt(batch, attempt + 1), delayFor(attempt, retryAfter),
+                        TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // shut down meanwhile, which cancels the batch
+            }
+            return;
+        }
+        finish(batch, result);
+    }
+
+    /**
+     * Reports the outcome of the head batch and starts the next one.
+     */
+    private void finish(Batch batch, Result result) {
+        if (batch.done.compareAndSet(false, true)) {
+            batch.callback.onResult(result);
+        }
+        final Batch next;
+        synchronized (mBatches) {
+            mBatches.remove(batch);
+            next = mBatches.peek();
+        }
+        if (next != null) {
+            try {
+                mExecutor.execute(() -> attempt(next, 1));
+            } catch (RejectedExecutionException e) {
+                // shut down meanwhile, which cancels the batch
+            }
+        }
+    }
+
+    /**
+     * Returns the delay before the retry that follows the given attempt: the Retry-After value when it is valid,
+     * otherwise between half and all of the exponential backoff, so clients that failed together do not retry
+     * together; capped at maxDelayMs either way.
+     */
+    long delayFor(int attempt, String retryAfter) {
+        long delayMs = parseRetryAfter(retryAfter);
+        if (delayMs < 0) {
+            long backoffMs = Math.min(mBaseDelayMs << Math.min(attempt - 1, 30), mMaxDelayMs);
+            delayMs = backoffMs / 2 + (long) (mRandom.nextDouble() * (backoffMs / 2));
+        }
+        return Math.min(delayMs, mMaxDelayMs);
+    }
+
+    /**
+     * Reads Retry-After as delay seconds or an HTTP date, returning milliseconds or -1 when absent or invalid.
+     */
+    static long parseRetryAfter(String retryAfter) {
+        if (retryAfter == null) {
+            return -1;
+        }
+        try {
+            long seconds = Long.parseLong(retryAfter.trim());
+            return seconds >= 0 ? TimeUnit.SECONDS.toMillis(seconds) : -1;
+        } catch (NumberFormatException ignored) {
+            // not delay seconds, try an HTTP date
+        }
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        try {
+            return Math.max(0, format.parse(retryAfter.trim()).getTime() - System.currentTimeMillis());
+        } catch (ParseException e) {
+            return -1;
+        }
+    }
+
+    private static boolean isRetryable(int status) {
+        return status == 0 || status == 429 || status >= 500;
+    }
+
+    private static void writeBody(OutputStream stream, String json, boolean gzip) throws IOException {
+        OutputStream out = gzip ? new GZIPOutputStream(stream, CHUNK_BYTES) : stream;
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.US_ASCII), CHUNK_BYTES)) {
+            writer.write("data=");
+            writeFormEncoded(writer, json);
+        }
+    }
+
+    /**
+     * Writes the value URL-encoded like URLEncoder in UTF-8, a character at a time, so no encoded copy of the
+     * whole body is built.
+     */
+    static void writeFormEncoded(Writer writer, String value) throws IOException {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9'
+                    || c == '.' || c == '-' || c == '*' || c == '_') {
+                writer.write(c);
+            } else if (c == ' ') {
+                writer.write('+');
+            } else {
+                int codePoint = c;
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    codePoint = Character.toCodePoint(c, value.charAt(++i));
+                } else if (Character.isSurrogate(c)) {
+                    // an unpaired surrogate, encoded as '?' like URLEncoder does
+                    codePoint = '?';
+                }
+                writeUtf8Escaped(writer, codePoint);
+            }
+        }
+    }
+
+    private static void writeUtf8Escaped(Writer writer, int codePoint) throws IOException {
+        if (codePoint < 0x80) {
+            writeEscaped(writer, codePoint);
+        } else if (codePoint < 0x800) {
+            writeEscaped(writer, 0xc0 | codePoint >> 6);
+            writeEscaped(writer, 0x80 | codePoint & 0x3f);
+        } else if (codePoint < 0x10000) {
+            writeEscaped(writer, 0xe0 | codePoint >> 12);
+            writeEscaped(writer, 0x80 | codePoint >> 6 & 0x3f);
+            writeEscaped(writer, 0x80 | codePoint & 0x3f);
+        } else {
+            writeEscaped(writer, 0xf0 | codePoint >> 18);
+            writeEscaped(writer, 0x80 | codePoint >> 12 & 0x3f);
+            writeEscaped(writer, 0x80 | codePoint >> 6 & 0x3f);
+            writeEscaped(writer, 0x80 | codePoint & 0x3f);
+        }
+    }
+
+    private static void writeEscaped(Writer writer, int b) throws IOException {
+        writer.write('%');
+        writer.write(HEX[b >> 4]);
+        writer.write(HEX[b & 0xf]);
+    }
+
+    /**
+     * Reads the whole response, which lets HttpURLConnection return the connection to its keep-alive pool.
+     */
+    private static String readBody(HttpURLConnection connection, int status) throws IOException {
+        InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        if (in == null) {
+            return null;
+        }
+        try {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[CHUNK_BYTES];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                body.write(buffer, 0, read);
+            }
+            return new String(body.toByteArray(), StandardCharsets.UTF_8);
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.mixpanel.reactnative;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Scoped event properties of a token, such as the current screen, kept converted in memory and added to every
+ * tracked event, so they are not sent over the bridge and converted again with each event. Unlike super
+ * properties they are never persisted. Later contexts override earlier ones, and an event's own properties
+ * override both.
+ */
+class ContextStack {
+
+    private final ArrayList<String> mIds = new ArrayList<>();
+    private final ArrayList<JSONObject> mProperties = new ArrayList<>();
+    // rebuilt on every change and never modified once published, so events can read it from any thread
+    private volatile JSONObject mMerged;
+
+    synchronized void push(String id, JSONObject properties) {
+        mIds.add(id);
+        mProperties.add(properties);
+        merge();
+    }
+
+    /**
+     * Removes the most recent context pushed with the id, along with the contexts pushed after it.
+     * Returns false when no context has the id.
+     */
+    synchronized boolean pop(String id) {
+        int index = mIds.lastIndexOf(id);
+        if (index < 0) {
+            return false;
+        }
+        for (int i = mIds.size() - 1; i >= index; i--) {
+            mIds.remove(i);
+            mProperties.remove(i);
+        }
+        merge();
+        return true;
+    }
+
+    /**
+     * Returns the merged properties of the contexts, or null when there are none.
+     */
+    JSONObject snapshot() {
+        return mMerged;
+    }
+
+    private void merge() {
+        if (mProperties.isEmpty()) {
+            mMerged = null;
+            return;
+        }
+        JSONObject merged = new JSONObject();
+        try {
+            for (JSONObject properties : mProperties) {
+                Iterator<String> keys = properties.keys();
+                while (keys.hasNext()) {
+                    String key = keys.next();
+                    merged.put(key, properties.get(key));
+                }
+            }
+        } catch (JSONException ignored) {
+            // not thrown for keys and values read from a JSONObject
+        }
+        mMerged = merged;
+    }
+
+    /**
+     * Adds the context properties the event does not set itself.
+     */
+    static void appendTo(JSONObject context, JSONObject properties) throws JSONException {
+        if (context == null) {
+            return;
+        }
+        Iterator<String> keys = context.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            if (!properties.has(key)) {
+                properties.put(key, context.get(key));
+            }
+        }
+    }
+
+    static void appendTo(JSONObject context, Map<String, Object> properties) {
+        if (context == null) {
+            return;
+        }
+        Iterator<String> keys = context.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            if (!properties.containsKey(key)) {
+                properties.put(key, context.opt(key));
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.mixpanel.reactnative;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Converts the event properties of a single token on a small worker pool and hands the results on in submission
+ * order: a result waits for the ones submitted before it, but no thread blocks on a conversion, so conversions of
+ * independent events overlap while the events still reach the SDK in call order.
+ *
+ * <p>The calls of the token that need no conversion are handed on through sequence() while the pipeline is on, so
+ * they cannot overtake the events still converting ahead of them.
+ */
+class ConversionPipeline {
+
+    /**
+     * Receives the converted value, or the exception the conversion threw.
+     */
+    interface Completion<T> {
+        void complete(T value, Exception error);
+    }
+
+    private final ExecutorService mWorkers;
+    private final int mWorkerCount;
+    // guarded by this; completions run under the lock, in the order their entries were added
+    private final ArrayDeque<Entry<?>> mPending = new ArrayDeque<>();
+
+    ConversionPipeline(final String token, int workers) {
+        mWorkerCount = workers;
+        mWorkers = Executors.newFixedThreadPool(workers, new ThreadFactory() {
+            private final AtomicInteger mCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "MixpanelReactNative-convert-" + token + "-" + mCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Converts on a worker and hands the result to the completion once the results submitted before it are handed
+     * on. The completion runs on whichever thread finishes the last of those conversions.
+     */
+    <T> void submit(final Callable<T> conversion, Completion<T> completion) {
+        final Entry<T> entry = new Entry<>(completion);
+        synchronized (this) {
+            mPending.add(entry);
+        }
+        try {
+            mWorkers.execute(() -> {
+                T value = null;
+                Exception error = null;
+                try {
+                    value = conversion.call();
+                } catch (Exception e) {
+                    error = e;
+                }
+                finish(entry, value, error);
+            });
+        } catch (RejectedExecutionException e) {
+            // the pipeline was shut down meanwhile
+            finish(entry, null, e);
+        }
+    }
+
+    /**
+     * Runs the task once the results submitted before it are handed on, right away when there are none.
+     */
+    void sequence(final Runnable task) {
+        synchronized (this) {
+            if (mPending.isEmpty()) {
+                task.run();
+                return;
+            }
+            Entry<Void> entry = new Entry<>((value, error) -> task.run());
+            entry.done = true;
+            mPending.add(entry);
+        }
+    }
+
+    private synchronized <T> void finish(Entry<T> entry, T value, Exception error) {
+        entry.value = value;
+        entry.error = error;
+        entry.done = true;
+        while (!mPending.isEmpty() && mPending.peek().done) {
+            mPending.poll().complete();
+        }
+    }
+
+    int getWorkerCount() {
+        return mWorkerCount;
+    }
+
+    /**
+     * Stops accepting conversions without waiting for the submitted ones, whose results are still handed on in order
+     * once they finish.
+     */
+    void shutdown() {
+        mWorkers.shutdown();
+    }
+
+    private static final class Entry<T> {
+        final Completion<T> completion;
+        T value;
+        Exception error;
+        boolean done;
+
+        Entry(Completion<T> completion) {
+            this.completion = completion;
+        }
+
+        void complete() {
+            completion.complete(value, error);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.mixpanel.reactnative;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects the failures of calls made without a promise and sends them to JS as a single
+ * aggregated event at most once per interval.
+ */
+class ErrorReporter {
+    static final String EVENT_NAME = "MixpanelReactNativeError";
+
+    private static final long REPORT_INTERVAL_MS = 1000;
+
+    private final ReactApplicationContext mReactContext;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final AtomicInteger mErrorCount = new AtomicInteger();
+    private final AtomicBoolean mReportScheduled = new AtomicBoolean();
+    private volatile String mLastCode;
+    private volatile String mLastMessage;
+
+    private final Runnable mEmitReport = new Runnable() {
+        @Override
+        public void run() {
+            mReportScheduled.set(false);
+            int count = mErrorCount.getAndSet(0);
+            if (count == 0 || !mReactContext.hasActiveReactInstance()) {
+                return;
+            }
+            WritableMap report = Arguments.createMap();
+            report.putInt("count", count);
+            report.putString("code", mLastCode);
+            report.putString("message", mLastMessage);
+            mReactContext
+                    .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                    .emit(EVENT_NAME, report);
+        }
+    };
+
+    ErrorReporter(ReactApplicationContext reactContext) {
+        mReactContext = reactContext;
+    }
+
+    void report(String code, String message) {
+        mLastCode = code;
+        mLastMessage = message;
+        mErrorCount.incrementAndGet();
+        if (mReportScheduled.compareAndSet(false, true)) {
+            mHandler.postDelayed(mEmitReport, REPORT_INTERVAL_MS);
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.mixpanel.reactnative;
+
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableMapKeySetIterator;
+import com.facebook.react.bridge.ReadableType;
+import com.mixpanel.android.mpmetrics.MixpanelAPI;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rolls the trackAggregated calls of a single token into one summary event per event name and dimension set,
+ * tracked when the window elapses or the aggregates are drained. A summary carries the dimensions, the sum of
+ * each metric under the metric's name and the number of calls under COUNT.
+ *
+ * <p>Aggregates live in an open-addressing table keyed by the 64-bit hash of the event name and dimensions, so
+ * a call is summed into its aggregate with a single probe and no per-key objects.
+ */
+class EventAggregator {
+    static final long DEFAULT_WINDOW_MS = 60000;
+    static final String COUNT = "$count";
+    static final String WINDOW_START = "$window_start";
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final long mWindowMs;
+    private final ScheduledExecutorService mScheduler;
+    private final Runnable mOnWindow;
+    private long[] mHashes = new long[INITIAL_CAPACITY];
+    private Aggregate[] mAggregates = new Aggregate[INITIAL_CAPACITY];
+    private int mSize;
+    private long mWindowStart;
+    private ScheduledFuture<?> mWindowTimer;
+    private boolean mStopped;
+
+    /**
+     * @param onWindow run on the scheduler when the window elapses; expected to dispatch a drain through the same
+     *                 path as the other calls of the token so that ordering is kept.
+     */
+    EventAggregator(long windowMs, ScheduledExecutorService scheduler, Runnable onWindow) {
+        mWindowMs = windowMs;
+        mScheduler = scheduler;
+        mOnWindow = onWindow;
+    }
+
+    synchronized void add(Sample sample) {
+        if (mSize == 0) {
+            mWindowStart = System.currentTimeMillis();
+            if (!mStopped) {
+                mWindowTimer = mScheduler.schedule(mOnWindow, mWindowMs, TimeUnit.MILLISECONDS);
+            }
+        }
+        int mask = mHashes.length - 1;
+        int slot = (int) (sample.hash ^ (sample.hash >>> 32)) & mask;
+        while (mAggregates[slot] != null) {
+            Aggregate aggregate = mAggregates[slot];
+            if (mHashes[slot] == sample.hash && aggregate.matches(sample)) {
+                aggregate.add(sample);
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        mHashes[slot] = sample.hash;
+        mAggregates[slot] = new Aggregate(sample);
+        mSize++;
+        if (mSize * 2 > mHashes.length) {
+            grow();
+        }
+    }
+
+    /**
+     * Tracks one summary event per aggregate and empties the table.
+     */
+    synchronized void drainTo(String token, MixpanelAPI instance) {
+        if (mSize == 0) {
+            return;
+        }
+        // the next window starts with the next call
+        if (mWindowTimer != null) {
+            mWindowTimer.cancel(false);
+        }
+        for (int i = 0; i < mAggregates.length; i++) {
+            Aggregate aggregate = mAggregates[i];
+            if (aggregate == null) {
+                continue;
+            }
+            try {
+                JSONObject properties = aggregate.toProperties(mWindowStart);
+                AutomaticProperties.appendLibraryProperties(token, properties);
+                instance.track(aggregate.eventName, properties);
+            } catch (JSONException ignored) {
+                // not thrown for string keys and the scalar values of a sample
+            }
+            mAggregates[i] = null;
+        }
+        mSize = 0;
+    }
+
+    /**
+     * Cancels the window timer of a replaced aggregator, whose onWindow would drain its replacement. The aggregates
+     * it holds, including those of calls still queued, are left for a final drainTo.
+     */
+    synchronized void stop() {
+        mStopped = true;
+        if (mWindowTimer != null) {
+            mWindowTimer.cancel(false);
+        }
+    }
+
+    private void grow() {
+        long[] hashes = mHashes;
+        Aggregate[] aggregates = mAggregates;
+        mHashes = new long[hashes.length * 2];
+        mAggregates = new Aggregate[aggregates.length * 2];
+        int mask = mHashes.length - 1;
+        for (int i = 0; i < aggregates.length; i++) {
+            if (aggregates[i] == null) {
+                continue;
+            }
+            int slot = (int) (hashes[i] ^ (hashes[i] >>> 32)) & mask;
+            while (mAggregates[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            mHashes[slot] = hashes[i];
+            mAggregates[slot] = aggregates[i];
+        }
+    }
+
+    /**
+     * A single trackAggregated call, with its dimensions sorted by key so equal sets hash and compare equal.
+     */
+    static final class Sample {
+        final String eventName;
+        final String[] dimensionKeys;
+        final Object[] dimensionValues;
+        final String[] metricNames;
+        final double[] metricValues;
+        final long hash;
+
+        Sample(String eventName, String[] dimensionKeys, Object[] dimensionValues, String[] metricNames, double[] metricValues) {
+            this.eventName = eventName;
+            this.dimensionKeys = dimensionKeys;
+            this.dimensionValues = dimensionValues;
+            this.metricNames = metricNames;
+            this.metricValues = metricValues;
+            long hash = eventName.hashCode();
+            for (int i = 0; i < dimensionKeys.length; i++) {
+                hash = hash * 31 + dimensionKeys[i].hashCode();
+                hash = hash * 31 + dimensionValues[i].hashCode();
+            }
+            // spread the bits, as consecutive dimension values would otherwise probe neighbouring slots
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            this.hash = hash;
+        }
+
+        /**
+         * Reads a call's dimensions, which must be strings, numbers or booleans, and its numeric metrics.
+         */
+        static Sample of(String eventName, ReadableMap dimensions, ReadableMap metrics) throws JSONException {
+            ArrayList<String> keys = new ArrayList<>();
+            if (dimensions != null) {
+                ReadableMapKeySetIterator iterator = dimensions.keySetIterator();
+                while (iterator.hasNextKey()) {
+                    keys.add(iterator.nextKey());
+                }
+                Collections.sort(keys);
+            }
+            String[] dimensionKeys = keys.toArray(new String[0]);
+            Object[] dimensionValues = new Object[dimensionKeys.length];
+            for (int i = 0; i < dimensionKeys.length; i++) {
+                switch (dimensions.getType(dimensionKeys[i])) {
+                    case String:
+                        dimensionValues[i] = dimensions.getString(dimensionKeys[i]);
+                        break;
+                    case Number:
+                        dimensionValues[i] = dimensions.getDouble(dimensionKeys[i]);
+                        break;
+                    case Boolean:
+                        dimensionValues[i] = dimensions.getBoolean(dimensionKeys[i]);
+                        break;
+                    default:
+                        throw new JSONException("Dimension " + dimensionKeys[i] + " is not a string, number or boolean");
+                }
+            }
+            keys.clear();
+            if (metrics != null) {
+                ReadableMapKeySetIterator iterator = metrics.keySetIterator();
+                while (iterator.hasNextKey()) {
+                    keys.add(iterator.nextKey());
+                }
+            }
+            String[] metricNames = keys.toArray(new String[0]);
+            double[] metricValues = new double[metricNames.length];
+            for (int i = 0; i < metricNames.length; i++) {
+                if (metrics.getType(metricNames[i]) != ReadableType.Number) {
+                    throw new JSONException("Metric " + metricNames[i] + " is not a number");
+                }
+                metricValues[i] = metrics.getDouble(metricNames[i]);
+            }
+            return new Sample(eventName, dimensionKeys, dimensionValues, metricNames, metricValues);
+        }
+    }
+
+    private static final class Aggregate {
+        final String eventName;
+        final String[] dimensionKeys;
+        final Object[] dimensionValues;
+        String[] metricNames;
+        double[] sums;
+        long count;
+
+        Aggregate(Sample sample) {
+            eventName = sample.eventName;
+            dimensionKeys = sample.dimensionKeys;
+            dimensionValues = sample.dimensionValues;
+            metricNames = sample.metricNames;
+            sums = sample.metricValues.clone();
+            count = 1;
+        }
+
+        boolean matches(Sample sample) {
+            return eventName.equals(sample.eventName)
+                    && Arrays.equals(dimensionKeys, sample.dimensionKeys)
+                    && Arrays.equals(dimensionValues, sample.dimensionValues);
+        }
+
+        void add(Sample sample) {
+            count++;
+            for (int i = 0; i < sample.metricNames.length; i++) {
+                int index = indexOf(sample.metricNames[i]);
+                if (index < 0) {
+                    index = metricNames.length;
+                    metricNames = Arrays.copyOf(metricNames, index + 1);
+                    sums = Arrays.copyOf(sums, index + 1);
+                    metricNames[index] = sample.metricNames[i];
+                }
+                sums[index] += sample.metricValues[i];
+            }
+        }
+
+        private int indexOf(String metricName) {
+            for (int i = 0; i < metricNames.length; i++) {
+                if (metricNames[i].equals(metricName)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        JSONObject toProperties(long windowStart) throws JSONException {
+            JSONObject properties = new JSONObject();
+            for (int i = 0; i < dimensionKeys.length; i++) {
+                properties.put(dimensionKeys[i], dimensionValues[i]);
+            }
+            for (int i = 0; i < metricNames.length; i++) {
+                properties.put(metricNames[i], sums[i]);
+            }
+            properties.put(COUNT, count);
+            properties.put(WINDOW_START, windowStart);
+            return properties;
+        }
+    }
+}
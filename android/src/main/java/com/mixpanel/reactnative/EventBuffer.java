@@ -0,0 +1,76 @@
+package com.mixpanel.reactnative;
+
+import com.mixpanel.android.mpmetrics.MixpanelAPI;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accumulates the track calls of a single token in a fixed-size buffer and hands them to the SDK together,
+ * once the buffer is full or the flush interval has elapsed since the first buffered event.
+ */
+class EventBuffer {
+    private static final String TIME = "time";
+
+    private final String[] mEventNames;
+    private final JSONObject[] mEventProperties;
+    private final long mFlushIntervalMs;
+    private final ScheduledExecutorService mScheduler;
+    private final Runnable mOnFlushInterval;
+    private int mSize;
+    private ScheduledFuture<?> mFlushTimer;
+
+    /**
+     * @param onFlushInterval run on the scheduler when the flush interval elapses; expected to dispatch a drain
+     *                        through the same path as the other calls of the token so that ordering is kept.
+     */
+    EventBuffer(int maxBatchSize, long flushIntervalMs, ScheduledExecutorService scheduler, Runnable onFlushInterval) {
+        mEventNames = new String[maxBatchSize];
+        mEventProperties = new JSONObject[maxBatchSize];
+        mFlushIntervalMs = flushIntervalMs;
+        mScheduler = scheduler;
+        mOnFlushInterval = onFlushInterval;
+    }
+
+    /**
+     * Buffers an event, stamping the call time on it so the SDK does not record the time of the handoff.
+     */
+    synchronized void add(MixpanelAPI instance, String eventName, JSONObject properties) {
+        if (!properties.has(TIME)) {
+            try {
+                properties.put(TIME, System.currentTimeMillis());
+            } catch (JSONException ignored) {
+                // not thrown for a non-null key and a long value
+            }
+        }
+        mEventNames[mSize] = eventName;
+        mEventProperties[mSize] = properties;
+        mSize++;
+        if (mSize == mEventNames.length) {
+            drainTo(instance);
+        } else if (mFlushTimer == null) {
+            mFlushTimer = mScheduler.schedule(mOnFlushInterval, mFlushIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Tracks the buffered events in call order and empties the buffer.
+     */
+    synchronized void drainTo(MixpanelAPI instance) {
+        // the next interval starts with the next event
+        if (mFlushTimer != null) {
+            mFlushTimer.cancel(false);
+            mFlushTimer = null;
+        }
+        for (int i = 0; i < mSize; i++) {
+            instance.track(mEventNames[i], mEventProperties[i]);
+            mEventNames[i] = null;
+            mEventProperties[i] = null;
+        }
+        mSize = 0;
+    }
+}
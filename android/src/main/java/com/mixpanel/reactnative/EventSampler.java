@@ -0,0 +1,166 @@
+package com.mixpanel.reactnative;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableMapKeySetIterator;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per event name sampling and rate limiting policies of a token, evaluated before the event properties are
+ * converted. The policies are fixed once built, and every decision is made with atomic operations only.
+ */
+class EventSampler {
+    static final String SAMPLE_RATE = "$sample_rate";
+
+    private static final String SAMPLE_RATE_OPTION = "sampleRate";
+    private static final String MAX_PER_SECOND_OPTION = "maxPerSecond";
+    private static final String PER_DISTINCT_ID_OPTION = "perDistinctId";
+
+    private final Map<String, Policy> mPolicies;
+
+    private EventSampler(Map<String, Policy> policies) {
+        mPolicies = policies;
+    }
+
+    /**
+     * Builds the policies from a map of event name to {sampleRate, maxPerSecond, perDistinctId}, or returns null
+     * when there are none.
+     */
+    static EventSampler fromReadableMap(ReadableMap config) {
+        Map<String, Policy> policies = new HashMap<>();
+        ReadableMapKeySetIterator iterator = config.keySetIterator();
+        while (iterator.hasNextKey()) {
+            String eventName = iterator.nextKey();
+            ReadableMap options = config.getMap(eventName);
+            if (options == null) {
+                continue;
+            }
+            double sampleRate = options.hasKey(SAMPLE_RATE_OPTION) ? options.getDouble(SAMPLE_RATE_OPTION) : 1;
+            double maxPerSecond = options.hasKey(MAX_PER_SECOND_OPTION) ? options.getDouble(MAX_PER_SECOND_OPTION) : 0;
+            boolean perDistinctId = options.hasKey(PER_DISTINCT_ID_OPTION) && options.getBoolean(PER_DISTINCT_ID_OPTION);
+            policies.put(eventName, new Policy(eventName, Math.max(0, Math.min(1, sampleRate)), maxPerSecond, perDistinctId));
+        }
+        return policies.isEmpty() ? null : new EventSampler(policies);
+    }
+
+    /**
+     * Returns the policy of the event name, or null when its events are all kept.
+     */
+    Policy policy(String eventName) {
+        return mPolicies.get(eventName);
+    }
+
+    /**
+     * Returns the kept and dropped counts, keyed by event name.
+     */
+    WritableMap snapshot() {
+        WritableMap stats = Arguments.createMap();
+        for (Policy policy : mPolicies.values()) {
+            WritableMap counts = Arguments.createMap();
+            counts.putDouble("kept", policy.mKept.get());
+            counts.putDouble("sampledOut", policy.mSampledOut.get());
+            counts.putDouble("rateLimited", policy.mRateLimited.get());
+            stats.putMap(policy.mEventName, counts);
+        }
+        return stats;
+    }
+
+    static final class Policy {
+        private static final long NANOS_PER_SECOND = 1000000000L;
+
+        private final String mEventName;
+        private final double mSampleRate;
+        private final boolean mPerDistinctId;
+        // generic cell rate algorithm: the bucket is the theoretical arrival time of the next event, and holds up to
+        // one second of events
+        private final long mEmissionIntervalNanos;
+        private final long mBurstToleranceNanos;
+        private final AtomicLong mTheoreticalArrivalNanos = new AtomicLong(Long.MIN_VALUE);
+        private final AtomicLong mKept = new AtomicLong();
+        private final AtomicLong mSampledOut = new AtomicLong();
+        private final AtomicLong mRateLimited = new AtomicLong();
+
+        Policy(String eventName, double sampleRate, double maxPerSecond, boolean perDistinctId) {
+            mEventName = eventName;
+            mSampleRate = sampleRate;
+            mPerDistinctId = perDistinctId;
+            if (maxPerSecond > 0) {
+                mEmissionIntervalNanos = Math.max(1, (long) (NANOS_PER_SECOND / maxPerSecond));
+                mBurstToleranceNanos = Math.max(0, NANOS_PER_SECOND - mEmissionIntervalNanos);
+            } else {
+                mEmissionIntervalNanos = 0;
+                mBurstToleranceNanos = 0;
+            }
+        }
+
+        /**
+         * Whether admit() needs the current distinct id.
+         */
+        boolean isPerDistinctId() {
+            return mPerDistinctId;
+        }
+
+        /**
+         * Decides whether to keep an event. Returns the sample rate to stamp on a kept event, or 0 when the event is
+         * dropped. With perDistinctId the same distinct id always gets the same sampling decision for the event.
+         */
+        double admit(String distinctId) {
+            if (mSampleRate < 1 && sampleValue(distinctId) >= mSampleRate) {
+                mSampledOut.incrementAndGet();
+                return 0;
+            }
+            if (mEmissionIntervalNanos > 0 && !acquire(System.nanoTime())) {
+                mRateLimited.incrementAndGet();
+                return 0;
+            }
+            mKept.incrementAndGet();
+            return mSampleRate;
+        }
+
+        /**
+         * Takes back the count of a kept event that was not tracked after all, because its properties could not be
+         * converted.
+         */
+        void retract() {
+            mKept.decrementAndGet();
+        }
+
+        private double sampleValue(String distinctId) {
+            if (!mPerDistinctId || distinctId == null) {
+                return ThreadLocalRandom.current().nextDouble();
+            }
+            long hash = mix(distinctId.hashCode() * 31L + mEventName.hashCode());
+            return (hash >>> 11) * 0x1.0p-53;
+        }
+
+        private boolean acquire(long now) {
+            while (true) {
+                long arrival = mTheoreticalArrivalNanos.get();
+                long start = arrival == Long.MIN_VALUE || arrival - now < 0 ? now : arrival;
+                if (start - now > mBurstToleranceNanos) {
+                    return false;
+                }
+                if (mTheoreticalArrivalNanos.compareAndSet(arrival, start + mEmissionIntervalNanos)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * 64-bit finalizer of MurmurHash3, spreads the string hash over all bits.
+         */
+        private static long mix(long hash) {
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            hash *= 0xc4ceb9fe1a85ec53L;
+            hash ^= hash >>> 33;
+            return hash;
+        }
+    }
+}
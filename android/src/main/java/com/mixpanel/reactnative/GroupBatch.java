@@ -0,0 +1,102 @@
+package com.mixpanel.reactnative;
+
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.mixpanel.android.mpmetrics.MixpanelAPI;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * An ordered list of group operations, possibly on many groups, converted from a single bridge call.
+ */
+class GroupBatch {
+    static final String SET = "set";
+    static final String SET_ONCE = "setOnce";
+    static final String UNSET = "unset";
+    static final String REMOVE = "remove";
+    static final String UNION = "union";
+    static final String DELETE = "delete";
+
+    private final String[] mTypes;
+    private final String[] mGroupKeys;
+    private final Object[] mGroupIDs;
+    private final String[] mNames;
+    private final Object[] mValues;
+
+    private GroupBatch(int size) {
+        mTypes = new String[size];
+        mGroupKeys = new String[size];
+        mGroupIDs = new Object[size];
+        mNames = new String[size];
+        mValues = new Object[size];
+    }
+
+    /**
+     * Converts operations of the form {groupKey, groupID, operation} plus properties for set and setOnce, name for
+     * unset, name and value for remove and union, and nothing more for delete.
+     */
+    static GroupBatch fromReadableArray(ReadableArray operations) throws JSONException {
+        GroupBatch batch = new GroupBatch(operations.size());
+        for (int i = 0; i < operations.size(); i++) {
+            ReadableMap operation = operations.getMap(i);
+            String type = operation.hasKey("operation") ? operation.getString("operation") : null;
+            if (type == null) {
+                throw new JSONException("Missing group operation");
+            }
+            batch.mTypes[i] = type;
+            batch.mGroupKeys[i] = operation.getString("groupKey");
+            batch.mGroupIDs[i] = ReactNativeHelper.mixedToObject(operation, "groupID");
+            switch (type) {
+                case SET:
+                case SET_ONCE:
+                    batch.mValues[i] = ReactNativeHelper.readableMapToJSON(operation.getMap("properties"));
+                    break;
+                case UNSET:
+                    batch.mNames[i] = operation.getString("name");
+                    break;
+                case REMOVE:
+                    batch.mNames[i] = operation.getString("name");
+                    batch.mValues[i] = ReactNativeHelper.mixedToObject(operation, "value");
+                    break;
+                case UNION:
+                    batch.mNames[i] = operation.getString("name");
+                    batch.mValues[i] = ReactNativeHelper.reactToJSON(operation.getArray("value"));
+                    break;
+                case DELETE:
+                    break;
+                default:
+                    throw new JSONException("Unsupported group operation: " + type);
+            }
+        }
+        return batch;
+    }
+
+    void applyTo(MixpanelAPI instance, GroupHandleCache groups) {
+        for (int i = 0; i < mTypes.length; i++) {
+            MixpanelAPI.Group group = groups.get(instance, mGroupKeys[i], mGroupIDs[i]);
+            switch (mTypes[i]) {
+                case SET:
+                    group.set((JSONObject) mValues[i]);
+                    break;
+                case SET_ONCE:
+                    group.setOnce((JSONObject) mValues[i]);
+                    break;
+                case UNSET:
+                    group.unset(mNames[i]);
+                    break;
+                case REMOVE:
+                    group.remove(mNames[i], mValues[i]);
+                    break;
+                case UNION:
+                    group.union(mNames[i], (JSONArray) mValues[i]);
+                    break;
+                case DELETE:
+                    group.deleteGroup();
+                    groups.remove(mGroupKeys[i], mGroupIDs[i]);
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.mixpanel.reactnative;
+
+import com.mixpanel.android.mpmetrics.MixpanelAPI;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of a token's group handles keyed by group key and group id, so repeated updates of the same
+ * group skip MixpanelAPI.getGroup. Only string, number and boolean ids are cached.
+ */
+class GroupHandleCache {
+    static final int DEFAULT_MAX_ENTRIES = 256;
+
+    private final LinkedHashMap<GroupId, MixpanelAPI.Group> mGroups;
+
+    GroupHandleCache(final int maxEntries) {
+        mGroups = new LinkedHashMap<GroupId, MixpanelAPI.Group>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<GroupId, MixpanelAPI.Group> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    synchronized MixpanelAPI.Group get(MixpanelAPI instance, String groupKey, Object groupID) {
+        if (!isCacheable(groupID)) {
+            return instance.getGroup(groupKey, groupID);
+        }
+        GroupId id = new GroupId(groupKey, groupID);
+        MixpanelAPI.Group group = mGroups.get(id);
+        if (group == null) {
+            group = instance.getGroup(groupKey, groupID);
+            mGroups.put(id, group);
+        }
+        return group;
+    }
+
+    /**
+     * Forgets a deleted group, whose handle the SDK drops as well.
+     */
+    synchronized void remove(String groupKey, Object groupID) {
+        if (isCacheable(groupID)) {
+            mGroups.remove(new GroupId(groupKey, groupID));
+        }
+    }
+
+    private static boolean isCacheable(Object groupID) {
+        return groupID instanceof String || groupID instanceof Number || groupID instanceof Boolean;
+    }
+
+    private static final class GroupId {
+        final String groupKey;
+        final Object groupID;
+
+        GroupId(String groupKey, Object groupID) {
+            this.groupKey = groupKey;
+            this.groupID = groupID;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof GroupId)) {
+                return false;
+            }
+            GroupId id = (GroupId) other;
+            return groupKey.equals(id.groupKey) && groupID.equals(id.groupID);
+        }
+
+        @Override
+        public int hashCode() {
+            return groupKey.hashCode() * 31 + groupID.hashCode();
+        }
+    }
+}
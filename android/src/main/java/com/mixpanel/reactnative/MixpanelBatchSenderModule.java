@@ -0,0 +1,74 @@
+package com.mixpanel.reactnative;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import org.json.JSONException;
+
+import java.util.Random;
+
+/**
+ * Sends the batches of JavaScript mode off the JS thread, see BatchSender.
+ */
+public class MixpanelBatchSenderModule extends NativeMixpanelBatchSenderSpec {
+
+    private BatchSender mBatchSender;
+
+    public MixpanelBatchSenderModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+    }
+
+    /**
+     * Sends a batch to the url, converting and encoding it off the JS thread, and resolves with
+     * {status, body, error, attempts} once it was sent or the retries ran out. A batch still pending when the
+     * module is invalidated is rejected.
+     */
+    @ReactMethod
+    public void sendBatch(String url, ReadableArray batch, boolean useGzipCompression, final Promise promise) {
+        final String json;
+        try {
+            json = ReactNativeHelper.reactToJSONWithoutLimits(batch).toString();
+        } catch (JSONException e) {
+            promise.reject("Conversion Error", e.getMessage());
+            return;
+        }
+        getBatchSender().send(url, json, useGzipCompression, new BatchSender.Callback() {
+            @Override
+            public void onResult(BatchSender.Result result) {
+                WritableMap response = Arguments.createMap();
+                response.putDouble("status", result.status);
+                response.putString("body", result.body);
+                response.putString("error", result.error);
+                response.putDouble("attempts", result.attempts);
+                promise.resolve(response);
+            }
+
+            @Override
+            public void onCancelled() {
+                promise.reject("Sender Error", "The batch sender was shut down before the batch was sent");
+            }
+        });
+    }
+
+    private synchronized BatchSender getBatchSender() {
+        if (mBatchSender == null) {
+            mBatchSender = new BatchSender(BatchSender.DEFAULT_MAX_RETRIES, BatchSender.DEFAULT_BASE_DELAY_MS,
+                    BatchSender.DEFAULT_MAX_DELAY_MS, new Random());
+        }
+        return mBatchSender;
+    }
+
+    @Override
+    public void invalidate() {
+        synchronized (this) {
+            if (mBatchSender != null) {
+                mBatchSender.shutdown();
+            }
+        }
+        super.invalidate();
+    }
+}
@@ -0,0 +1,145 @@
+package com.mixpanel.reactnative;
+
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the queues of JavaScript mode in append-only logs, see AppendOnlyQueueStore. Its methods run on the native
+ * modules thread, in call order, and do not need an initialized instance.
+ */
+public class MixpanelQueueStorageModule extends NativeMixpanelQueueStorageSpec {
+
+    private final ReactApplicationContext mReactContext;
+    private final Map<String, AppendOnlyQueueStore> mQueueStores = new ConcurrentHashMap<>();
+
+    public MixpanelQueueStorageModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+        this.mReactContext = reactContext;
+    }
+
+    /**
+     * Returns the records of a queue as a JSON array.
+     */
+    @ReactMethod
+    public void loadQueue(final String token, String type, Promise promise) {
+        try {
+            List<String> records = getQueueStore(token, type).read();
+            StringBuilder queue = new StringBuilder("[");
+            for (int i = 0; i < records.size(); i++) {
+                if (i > 0) {
+                    queue.append(',');
+                }
+                queue.append(records.get(i));
+            }
+            promise.resolve(queue.append(']').toString());
+        } catch (IOException e) {
+            promise.reject("Storage Error", e.getMessage());
+        }
+    }
+
+    /**
+     * Appends a JSON record to a queue, writing only the record.
+     */
+    @ReactMethod
+    public void appendToQueue(final String token, String type, String record, Promise promise) {
+        try {
+            getQueueStore(token, type).append(record);
+            promise.resolve(null);
+        } catch (IOException e) {
+            promise.reject("Storage Error", e.getMessage());
+        }
+    }
+
+    /**
+     * Drops the first count records of a queue once they were uploaded.
+     */
+    @ReactMethod
+    public void acknowledgeQueue(final String token, String type, double count, Promise promise) {
+        try {
+            getQueueStore(token, type).acknowledge((int) count);
+            promise.resolve(null);
+        } catch (IOException e) {
+            promise.reject("Storage Error", e.getMessage());
+        }
+    }
+
+    /**
+     * Replaces the records of a queue with the given JSON records.
+     */
+    @ReactMethod
+    public void replaceQueue(final String token, String type, ReadableArray records, Promise promise) {
+        try {
+            ArrayList<String> queue = new ArrayList<>(records.size());
+            for (int i = 0; i < records.size(); i++) {
+                queue.add(records.getString(i));
+            }
+            getQueueStore(token, type).replace(queue);
+            promise.resolve(null);
+        } catch (IOException e) {
+            promise.reject("Storage Error", e.getMessage());
+        }
+    }
+
+    /**
+     * Whether the queue saved in AsyncStorage before the log was used has been moved into the log.
+     */
+    @ReactMethod
+    public void isQueueMigrated(final String token, String type, Promise promise) {
+        try {
+            promise.resolve(getQueueStore(token, type).isMigrated());
+        } catch (IOException e) {
+            promise.reject("Storage Error", e.getMessage());
+        }
+    }
+
+    /**
+     * Records that the queue saved in AsyncStorage has been moved into the log.
+     */
+    @ReactMethod
+    public void markQueueMigrated(final String token, String type, Promise promise) {
+        try {
+            getQueueStore(token, type).markMigrated();
+            promise.resolve(null);
+        } catch (IOException e) {
+            promise.reject("Storage Error", e.getMessage());
+        }
+    }
+
+    private AppendOnlyQueueStore getQueueStore(String token, String type) throws IOException {
+        // the queue type is a path such as /track/
+        String name = (token + "-" + type).replaceAll("[^A-Za-z0-9_-]", "");
+        synchronized (mQueueStores) {
+            AppendOnlyQueueStore store = mQueueStores.get(name);
+            if (store == null) {
+                File dir = new File(new File(mReactContext.getFilesDir(), "mixpanel-queues"), name);
+                store = new AppendOnlyQueueStore(dir, AppendOnlyQueueStore.DEFAULT_SEGMENT_BYTES);
+                mQueueStores.put(name, store);
+            }
+            return store;
+        }
+    }
+
+    @Override
+    public void invalidate() {
+        synchronized (mQueueStores) {
+            for (AppendOnlyQueueStore store : mQueueStores.values()) {
+                try {
+                    store.close();
+                } catch (IOException ignored) {
+                    // appends are not buffered, nothing is lost
+                }
+            }
+            mQueueStores.clear();
+        }
+        super.invalidate();
+    }
+}
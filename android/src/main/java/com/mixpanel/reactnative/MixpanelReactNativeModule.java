@@ -1,605 +1,1835 @@
 package com.mixpanel.reactnative;
 
+import android.os.Looper;
+
 import com.mixpanel.android.mpmetrics.MixpanelAPI;
 
+import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
-import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
 import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.ReadableMap;
 import com.facebook.react.bridge.Dynamic;
+import com.facebook.react.bridge.LifecycleEventListener;
+import com.facebook.react.bridge.WritableMap;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
-public class MixpanelReactNativeModule extends ReactContextBaseJavaModule {
+public class MixpanelReactNativeModule extends NativeMixpanelReactNativeSpec {
 
     private final ReactApplicationContext mReactContext;
+    private final ConcurrentHashMap<String, TokenState> mTokens = new ConcurrentHashMap<>();
+    private final ErrorReporter mErrorReporter;
+    private final PerformanceMonitor mPerformance;
+    private ScheduledFuture<?> mPerformanceReport;
+    private ScheduledExecutorService mScheduler;
+    private final LifecycleEventListener mLifecycleListener = new LifecycleEventListener() {
+        @Override
+        public void onHostResume() {
+            for (TokenState state : mTokens.values()) {
+                AdaptiveFlushScheduler scheduler = state.flushScheduler;
+                if (scheduler != null) {
+                    scheduler.onHostResume();
+                }
+            }
+        }
+
+        @Override
+        public void onHostPause() {
+            // the process may not come back to the foreground, send the held events while it can
+            drainAllHeldEvents();
+            for (TokenState state : mTokens.values()) {
+                AdaptiveFlushScheduler scheduler = state.flushScheduler;
+                if (scheduler != null) {
+                    scheduler.onHostPause();
+                }
+            }
+        }
+
+        @Override
+        public void onHostDestroy() {
+            drainAllHeldEvents();
+            for (TokenState state : mTokens.values()) {
+                AdaptiveFlushScheduler scheduler = state.flushScheduler;
+                if (scheduler != null) {
+                    // releases the receiver, network callback and timers until the host resumes
+                    scheduler.onHostDestroy();
+                }
+            }
+        }
+    };
 
     public MixpanelReactNativeModule(ReactApplicationContext reactContext) {
         super(reactContext);
         this.mReactContext = reactContext;
+        this.mErrorReporter = new ErrorReporter(reactContext);
+        this.mPerformance = new PerformanceMonitor(reactContext);
+        reactContext.addLifecycleEventListener(mLifecycleListener);
     }
 
-    @Override
-    public String getName() {
-        return "MixpanelReactNative";
+    /**
+     * Returns the state of the token, creating it on first use.
+     */
+    private TokenState state(String token) {
+        TokenState state = mTokens.get(token);
+        if (state == null) {
+            TokenState created = new TokenState(token);
+            state = mTokens.putIfAbsent(token, created);
+            if (state == null) {
+                state = created;
+            }
+        }
+        return state;
     }
 
+    /**
+     * Returns the cached instance for the token, falling back to the SDK's global lookup on a miss. Package-private
+     * so InstanceLookupBenchmark measures this path rather than a copy of it.
+     */
+    MixpanelAPI getInstance(String token) {
+        TokenState state = state(token);
+        MixpanelAPI instance = state.instance;
+        if (instance == null) {
+            instance = MixpanelAPI.getInstance(this.mReactContext, token, true);
+            if (instance != null) {
+                synchronized (instance) {
+                    state.identity = SerialInstanceExecutor.IdentitySnapshot.of(instance);
+                }
+                state.instance = instance;
+            }
+        }
+        return instance;
+    }
 
-    @ReactMethod
-    public void initialize(String token, boolean trackAutomaticEvents, boolean optOutTrackingDefault, ReadableMap metadata, String serverURL, boolean useGzipCompression, Promise promise) throws JSONException {
-        JSONObject mixpanelProperties = ReactNativeHelper.reactToJSON(metadata);
-        AutomaticProperties.setAutomaticProperties(mixpanelProperties);
-        MixpanelAPI instance = MixpanelAPI.getInstance(this.mReactContext, token, optOutTrackingDefault, mixpanelProperties, null, trackAutomaticEvents);
-        instance.setServerURL(serverURL);
-        if (useGzipCompression) {
-            instance.setShouldGzipRequestPayload(true);
-        }
-        promise.resolve(null);
+    /**
+     * Runs the task under the instance lock, or on the token's serial executor when serial execution is enabled.
+     * Events buffered by setTrackBufferingEnabled are handed to the SDK first, so they keep their order.
+     */
+    private void execute(String token, MixpanelAPI instance, Promise promise, Runnable task) {
+        dispatch(token, instance, promise, withBufferedEvents(token, instance, task), false);
     }
 
-    @ReactMethod
-    public void setServerURL(final String token, final String serverURL, Promise promise) throws JSONException {
-        MixpanelAPI instance = MixpanelAPI.getInstance(this.mReactContext, token, true);
-        if (instance == null) {
-            promise.reject("Instance Error", "Failed to get Mixpanel instance");
+    /**
+     * Same as execute, for calls that change the identity or opt-out state served by the serial executor's snapshot.
+     * The held bulk events and aggregates are handed to the SDK first, under the identity they were tracked with.
+     */
+    private void executeIdentityWrite(String token, MixpanelAPI instance, Promise promise, Runnable task) {
+        Runnable write = () -> {
+            drainHeldEvents(token, instance);
+            task.run();
+        };
+        dispatch(token, instance, promise, withBufferedEvents(token, instance, write), true);
+    }
+
+    private void dispatch(String token, final MixpanelAPI instance, Promise promise, Runnable task, boolean identityWrite) {
+        final PerformanceMonitor.MethodStats stats = mPerformance.takeStats();
+        final long startNanos = stats != null ? mPerformance.startNanos() : 0;
+        final TokenState state = state(token);
+        final SerialInstanceExecutor executor = state.executor;
+        if (executor == null) {
+            runLocked(state, instance, task, identityWrite, stats, startNanos);
             return;
         }
-        synchronized (instance) {
-            instance.setServerURL(serverURL);
-            promise.resolve(null);
+        Runnable queued = rejectOnFailure(promise, timed(stats, startNanos, task));
+        if (identityWrite) {
+            queued = executor.identityWrite(instance, queued);
+        }
+        final Runnable sequenced = queued;
+        final Runnable locked = () -> runLocked(state, instance, rejectOnFailure(promise, task), identityWrite, stats, startNanos);
+        ConversionPipeline pipeline = state.pipeline;
+        if (pipeline != null) {
+            // behind the events still converting on the pipeline
+            pipeline.sequence(() -> enqueue(executor, sequenced, locked));
+        } else {
+            enqueue(executor, sequenced, locked);
         }
     }
 
-    @ReactMethod
-    public void setUseIpAddressForGeolocation(final String token, boolean useIpAddressForGeolocation, Promise promise)
-            throws JSONException {
-        MixpanelAPI instance = MixpanelAPI.getInstance(this.mReactContext, token, true);
-        if (instance == null) {
-            promise.reject("Instance Error", "Failed to get Mixpanel instance");
+    /**
+     * Runs the task under the instance lock, publishing the identity after an identity write.
+     */
+    private static void runLocked(TokenState state, MixpanelAPI instance, Runnable task, boolean identityWrite,
+                                  PerformanceMonitor.MethodStats stats, long startNanos) {
+        if (stats == null) {
+            synchronized (instance) {
+                task.run();
+                if (identityWrite) {
+                    state.identity = SerialInstanceExecutor.IdentitySnapshot.of(instance);
+                }
+            }
             return;
         }
+        long lockNanos = System.nanoTime();
         synchronized (instance) {
-            instance.setUseIpAddressForGeolocation(useIpAddressForGeolocation);
-            promise.resolve(null);
+            stats.lockWait.record(System.nanoTime() - lockNanos);
+            task.run();
+            if (identityWrite) {
+                state.identity = SerialInstanceExecutor.IdentitySnapshot.of(instance);
+            }
         }
+        stats.latency.record(System.nanoTime() - startNanos);
     }
 
-    @ReactMethod
-    public void setFlushBatchSize(final String token, Integer flushBatchSize, Promise promise) throws JSONException {
-        MixpanelAPI instance = MixpanelAPI.getInstance(this.mReactContext, token, true);
-        if (instance == null) {
-            promise.reject("Instance Error", "Failed to get Mixpanel instance");
+    /**
+     * Queues the task on the serial executor, or runs the locked variant when the executor was retired after it was
+     * read, as happens to the calls of timers, pipeline completions and other threads racing a disable.
+     */
+    private static void enqueue(SerialInstanceExecutor executor, Runnable task, Runnable locked) {
+        if (!executor.execute(task)) {
+            locked.run();
+        }
+    }
+
+    /**
+     * Wraps a task queued on the serial executor so it records the latency of its call.
+     */
+    private static Runnable timed(final PerformanceMonitor.MethodStats stats, final long startNanos, final Runnable task) {
+        if (stats == null) {
+            return task;
+        }
+        return () -> {
+            task.run();
+            stats.latency.record(System.nanoTime() - startNanos);
+        };
+    }
+
+    /**
+     * The part of a bridge call that runs once the token's instance is known.
+     */
+    private interface InstanceCall {
+        void run(MixpanelAPI instance);
+    }
+
+    /**
+     * Converts the arguments of a bridge call ahead of its dispatch.
+     */
+    private interface Conversion<T> {
+        T convert() throws JSONException;
+    }
+
+    /**
+     * The dispatched part of a bridge call, given its converted arguments.
+     */
+    private interface ConvertedTask<T> {
+        void run(MixpanelAPI instance, T converted);
+    }
+
+    /**
+     * Runs the prologue shared by the bridge calls: captures the call while the token is initializing
+     * asynchronously, starts timing it and hands the token's instance to the body, or rejects the call when there
+     * is no instance. Calls that finish without being dispatched are recorded when the body returns.
+     */
+    private void call(final String token, final String method, final Promise promise, final InstanceCall body) {
+        if (deferUntilInitialized(token, promise, () -> call(token, method, promise, body))) {
             return;
         }
-        synchronized (instance) {
-            instance.setFlushBatchSize(flushBatchSize);
-            promise.resolve(null);
+        mPerformance.begin(token, method);
+        try {
+            final MixpanelAPI instance = getInstance(token);
+            if (instance == null) {
+                reject(promise, "Instance Error", "Failed to get Mixpanel instance");
+                return;
+            }
+            body.run(instance);
+        } finally {
+            mPerformance.end();
         }
     }
 
-    @ReactMethod
-    public void setLoggingEnabled(final String token, boolean enableLogging, Promise promise) throws JSONException {
-        MixpanelAPI instance = MixpanelAPI.getInstance(this.mReactContext, token, true);
-        if (instance == null) {
-            promise.reject("Instance Error", "Failed to get Mixpanel instance");
+    /**
+     * The body of a synchronous read, given the token's state and its instance.
+     */
+    private interface InstanceRead<T> {
+        T read(TokenState state, MixpanelAPI instance) throws Exception;
+    }
+
+    /**
+     * Same as call, for the synchronous methods. They read what the token's calls published, without waiting for
+     * the queued calls or the instance lock, and return null while the instance is still being created.
+     */
+    private <T> T callSync(String token, String method, InstanceRead<T> body) {
+        mPerformance.begin(token, method);
+        try {
+            TokenState state = state(token);
+            MixpanelAPI instance = state.instance;
+            return instance != null ? body.read(state, instance) : null;
+        } catch (Exception e) {
+            mErrorReporter.report("Execution Error", e.getMessage());
+            return null;
+        } finally {
+            mPerformance.end();
+        }
+    }
+
+    /**
+     * Returns the last identity published for the token, even while an identity write is still queued.
+     */
+    private static SerialInstanceExecutor.IdentitySnapshot publishedIdentity(TokenState state) {
+        SerialInstanceExecutor executor = state.executor;
+        return executor != null ? executor.publishedIdentity() : state.identity;
+    }
+
+    /**
+     * Runs a bridge call whose arguments need no conversion, executing the task against the token's instance.
+     */
+    private void execute(String token, String method, Promise promise, InstanceCall task) {
+        call(token, method, promise, instance -> execute(token, instance, promise, () -> task.run(instance)));
+    }
+
+    /**
+     * Same as execute(String, String, Promise, InstanceCall), for calls that change the identity or opt-out state.
+     */
+    private void executeIdentityWrite(String token, String method, Promise promise, InstanceCall task) {
+        call(token, method, promise, instance -> executeIdentityWrite(token, instance, promise, () -> task.run(instance)));
+    }
+
+    /**
+     * Runs a bridge call that converts its arguments first, rejecting it with a Conversion Error when they cannot
+     * be converted, and executes the task with them.
+     */
+    private <T> void execute(String token, String method, Promise promise, Conversion<T> conversion, ConvertedTask<T> task) {
+        call(token, method, promise, instance -> execute(token, instance, promise, conversion, task));
+    }
+
+    private <T> void execute(String token, MixpanelAPI instance, Promise promise, Conversion<T> conversion, ConvertedTask<T> task) {
+        final T converted;
+        try {
+            converted = conversion.convert();
+        } catch (JSONException e) {
+            reject(promise, "Conversion Error", e.getMessage());
             return;
         }
-        synchronized (instance) {
-            instance.setEnableLogging(enableLogging);
-            promise.resolve(null);
+        mPerformance.conversionDone();
+        execute(token, instance, promise, () -> task.run(instance, converted));
+    }
+
+    private Runnable withBufferedEvents(String token, MixpanelAPI instance, Runnable task) {
+        final EventBuffer buffer = state(token).eventBuffer;
+        if (buffer == null) {
+            return task;
+        }
+        return () -> {
+            buffer.drainTo(instance);
+            task.run();
+        };
+    }
+
+    /**
+     * Returns the published identity snapshot when serial execution is enabled and no identity write is pending.
+     */
+    private SerialInstanceExecutor.IdentitySnapshot currentIdentity(String token) {
+        SerialInstanceExecutor executor = state(token).executor;
+        return executor != null ? executor.currentIdentity() : null;
+    }
+
+    /**
+     * Captures the call while the token's instance is being created by an asynchronous initialize, to be replayed
+     * once it is ready. Returns false when the call should run now.
+     */
+    private boolean deferUntilInitialized(String token, Promise promise, Runnable call) {
+        PreInitBuffer buffer = state(token).preInitBuffer;
+        if (buffer == null) {
+            return false;
+        }
+        switch (buffer.offer(rejectOnFailure(promise, call))) {
+            case CAPTURED:
+                return true;
+            case DROPPED:
+                reject(promise, "Initialization Error", "Too many calls made before the initialization completed");
+                return true;
+            default:
+                return false;
         }
     }
 
-    @ReactMethod
-    public void hasOptedOutTracking(final String token, Promise promise) {
-        MixpanelAPI instance = MixpanelAPI.getInstance(this.mReactContext, token, true);
-        if (instance == null) {
-            promise.reject("Instance Error", "Failed to get Mixpanel instance");
-            return;
+
+    private Runnable rejectOnFailure(final Promise promise, final Runnable task) {
+        return () -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                reject(promise, "Execution Error", e.getMessage());
+            }
+        };
+    }
+
+    /**
+     * Resolves the promise, if the call was made with one.
+     */
+    private static void resolve(Promise promise, Object value) {
+        if (promise != null) {
+            promise.resolve(value);
         }
-        synchronized (instance) {
-            promise.resolve(instance.hasOptedOutTracking());
+    }
+
+    /**
+     * Rejects the promise, or reports the failure through the aggregated error event for calls made without one.
+     */
+    private void reject(Promise promise, String code, String message) {
+        if (promise != null) {
+            promise.reject(code, message);
+        } else {
+            mErrorReporter.report(code, message);
         }
     }
 
-    @ReactMethod
-    public void optInTracking(final String token, Promise promise) throws JSONException {
-        MixpanelAPI instance = MixpanelAPI.getInstance(this.mReactContext, token, true);
-        if (instance == null) {
-            promise.reject("Instance Error", "Failed to get Mixpanel instance");
-            return;
+    /**
+     * Runs a promise-based method without a promise, so no resolve message is sent back over the bridge.
+     */
+    private void runWithoutPromise(Runnable call) {
+        try {
+            call.run();
+        } catch (RuntimeException e) {
+            mErrorReporter.report("Execution Error", e.getMessage());
         }
-        synchronized (instance) {
-            instance.optInTracking();
-            promise.resolve(null);
+    }
+
+    @Override
+    public void invalidate() {
+        mReactContext.removeLifecycleEventListener(mLifecycleListener);
+        drainAllHeldEvents();
+        for (Map.Entry<String, TokenState> entry : mTokens.entrySet()) {
+            TokenState state = entry.getValue();
+            if (state.flushScheduler != null) {
+                state.flushScheduler.stop();
+                state.flushScheduler = null;
+            }
+            if (state.eventBuffer != null && state.instance != null) {
+                execute(entry.getKey(), state.instance, null, () -> {});
+            }
+            state.eventBuffer = null;
+            if (state.pipeline != null) {
+                state.pipeline.shutdown();
+                state.pipeline = null;
+            }
+        }
+        if (mScheduler != null) {
+            mScheduler.shutdown();
+        }
+        for (TokenState state : mTokens.values()) {
+            retireSerialExecution(state);
+        }
+        super.invalidate();
+    }
+
+
+    /**
+     * Makes the next initialize of the token create its instance on a background thread, so the SDK's storage is
+     * not loaded on the native modules thread. Up to maxPendingCalls calls made in the meantime are captured and
+     * replayed in call order on the native modules thread once the instance is ready; the initialize promise
+     * resolves after the replay. The synchronous reads never wait: they return null or empty values while the
+     * instance is being created. Call it before initialize.
+     */
+    @ReactMethod
+    public void setAsyncInitializationEnabled(final String token, boolean enabled, double maxPendingCalls, Promise promise) {
+        if (enabled && maxPendingCalls >= 0) {
+            state(token).maxPendingCalls = (int) maxPendingCalls;
+        } else {
+            state(token).maxPendingCalls = null;
         }
+        resolve(promise, null);
     }
 
     @ReactMethod
-    public void optOutTracking(final String token, Promise promise) {
-        MixpanelAPI instance = MixpanelAPI.getInstance(this.mReactContext, token, true);
-        if (instance == null) {
-            promise.reject("Instance Error", "Failed to get Mixpanel instance");
+    public void initialize(final String token, final boolean trackAutomaticEvents, final boolean optOutTrackingDefault, ReadableMap metadata, final String serverURL, final boolean useGzipCompression, final Promise promise) {
+        initialize(token, trackAutomaticEvents, optOutTrackingDefault, metadata, serverURL, useGzipCompression, promise, true);
+    }
+
+    /**
+     * A re-initialize captured while a pending one creates the instance is replayed with allowAsync false, so it
+     * runs in place.
+     */
+    private void initialize(final String token, final boolean trackAutomaticEvents, final boolean optOutTrackingDefault, ReadableMap metadata, final String serverURL, final boolean useGzipCompression, final Promise promise, boolean allowAsync) {
+        if (deferUntilInitialized(token, promise, () -> initialize(token, trackAutomaticEvents, optOutTrackingDefault, metadata, serverURL, useGzipCompression, promise, false))) {
             return;
         }
+        final JSONObject mixpanelProperties;
+        try {
+            mixpanelProperties = ReactNativeHelper.reactToJSON(metadata);
+            AutomaticProperties.setAutomaticProperties(token, mixpanelProperties);
+        } catch (JSONException e) {
+            reject(promise, "Conversion Error", e.getMessage());
+            return;
+        }
+        final TokenState state = state(token);
+        Integer maxPendingCalls = state.maxPendingCalls;
+        if (maxPendingCalls == null || !allowAsync) {
+            createInstance(token, trackAutomaticEvents, optOutTrackingDefault, mixpanelProperties, serverURL, useGzipCompression);
+            resolve(promise, null);
+            return;
+        }
+        final PreInitBuffer buffer = new PreInitBuffer(maxPendingCalls);
+        state.preInitBuffer = buffer;
+        Thread thread = new Thread(() -> {
+            String error = null;
+            try {
+                createInstance(token, trackAutomaticEvents, optOutTrackingDefault, mixpanelProperties, serverURL, useGzipCompression);
+            } catch (RuntimeException e) {
+                // the captured calls still run, against the instance the SDK hands out by default
+                error = e.getMessage();
+            }
+            final String initializationError = error;
+            // replayed on the native modules thread, where the bridge calls run, so no later call overtakes them
+            mReactContext.runOnNativeModulesQueueThread(() -> {
+                List<Runnable> calls = buffer.ready();
+                state.preInitBuffer = null;
+                for (Runnable call : calls) {
+                    call.run();
+                }
+                if (initializationError != null) {
+                    reject(promise, "Initialization Error", initializationError);
+                } else {
+                    resolve(promise, null);
+                }
+            });
+        }, "MixpanelReactNative-init-" + token);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void createInstance(String token, boolean trackAutomaticEvents, boolean optOutTrackingDefault, JSONObject mixpanelProperties, String serverURL, boolean useGzipCompression) {
+        MixpanelAPI instance = MixpanelAPI.getInstance(this.mReactContext, token, optOutTrackingDefault, mixpanelProperties, null, trackAutomaticEvents);
+        TokenState state = state(token);
         synchronized (instance) {
-            instance.optOutTracking();
-            promise.resolve(null);
+            state.identity = SerialInstanceExecutor.IdentitySnapshot.of(instance);
+        }
+        state.instance = instance;
+        instance.setServerURL(serverURL);
+        if (useGzipCompression) {
+            instance.setShouldGzipRequestPayload(true);
+        }
+        SerialInstanceExecutor executor = state(token).executor;
+        if (executor != null) {
+            // re-initializing may change the opt-out state, refresh the snapshot behind the queued calls; a retired
+            // executor refreshed state.identity when it retired
+            executor.executeIdentityWrite(instance, () -> {});
         }
     }
 
     @ReactMethod
-    public void identify(final String token, final String distinctId, Promise promise) {
-        MixpanelAPI instance = MixpanelAPI.getInstance(this.mReactContext, token, true);
-        if (instance == null) {
-            promise.reject("Instance Error", "Failed to get Mixpanel instance");
+    public void setServerURL(final String token, final String serverURL, Promise promise) {
+        execute(token, "setServerURL", promise, instance -> {
+            instance.setServerURL(serverURL);
+            resolve(promise, null);
+        });
+    }
+
+    @ReactMethod
+    public void setUseIpAddressForGeolocation(final String token, boolean useIpAddressForGeolocation, Promise promise) {
+        execute(token, "setUseIpAddressForGeolocation", promise, instance -> {
+            instance.setUseIpAddressForGeolocation(useIpAddressForGeolocation);
+            resolve(promise, null);
+        });
+    }
+
+    @ReactMethod
+    public void setFlushBatchSize(final String token, double flushBatchSize, Promise promise) {
+        execute(token, "setFlushBatchSize", promise, instance -> {
+            instance.setFlushBatchSize((int) flushBatchSize);
+            resolve(promise, null);
+        });
+    }
+
+    @ReactMethod
+    public void setLoggingEnabled(final String token, boolean enableLogging, Promise promise) {
+        execute(token, "setLoggingEnabled", promise, instance -> {
+            instance.setEnableLogging(enableLogging);
+            resolve(promise, null);
+        });
+    }
+
+    /**
+     * Moves the token's calls off the instance lock onto a dedicated serial executor. Calls keep their order,
+     * and identity reads are served from a published snapshot. Enable it right after initialize. Disabling it
+     * also disables the conversion pipeline.
+     */
+    @ReactMethod
+    public void setSerialExecutionEnabled(final String token, boolean enabled, Promise promise) {
+        call(token, "setSerialExecutionEnabled", promise, instance -> {
+            if (enabled) {
+                enableSerialExecution(token, instance);
+            } else {
+                // the conversion pipeline relies on the serial executor to order its results
+                shutdownPipeline(token);
+                retireSerialExecution(state(token));
+            }
+            resolve(promise, null);
+        });
+    }
+
+    private void enableSerialExecution(String token, MixpanelAPI instance) {
+        TokenState state = state(token);
+        SerialInstanceExecutor current = state.executor;
+        if (current != null && current.resume()) {
             return;
         }
+        SerialInstanceExecutor executor = new SerialInstanceExecutor(token);
+        // waits for a retired executor still running its last calls under the lock
         synchronized (instance) {
-            instance.identify(distinctId);
-            promise.resolve(null);
+            executor.publishIdentity(instance);
+            state.executor = executor;
         }
     }
 
-    @ReactMethod
-    public void getDistinctId(final String token, Promise promise) {
-        MixpanelAPI instance = MixpanelAPI.getInstance(this.mReactContext, token, true);
-        if (instance == null) {
-            promise.reject("Instance Error", "Failed to get Mixpanel instance");
+    /**
+     * Retires the token's serial executor without waiting for it. Its queued calls keep running in order, and the
+     * calls made once it is gone run under the instance lock after them.
+     */
+    private static void retireSerialExecution(final TokenState state) {
+        final SerialInstanceExecutor executor = state.executor;
+        final MixpanelAPI instance = state.instance;
+        if (executor == null || instance == null) {
             return;
         }
-        synchronized (instance) {
-            promise.resolve(instance.getDistinctId());
+        executor.retire(instance, () -> {
+            // runs under the instance lock, once the calls queued before the retirement ran
+            if (state.executor == executor) {
+                state.executor = null;
+            }
+            state.identity = SerialInstanceExecutor.IdentitySnapshot.of(instance);
+        });
+    }
+
+    /**
+     * Converts the properties of track and trackJson calls on a pool of worker threads instead of the native
+     * modules thread. The events are handed to the SDK from the serial executor in call order, so enabling the
+     * pipeline forces serial execution on. It stays on when the pipeline is disabled; while the pipeline is on,
+     * every call of the token is queued through it to keep that order.
+     */
+    @ReactMethod
+    public void setParallelConversionEnabled(final String token, boolean enabled, double workers, Promise promise) {
+        call(token, "setParallelConversionEnabled", promise, instance -> {
+            shutdownPipeline(token);
+            if (enabled && workers >= 1) {
+                enableSerialExecution(token, instance);
+                state(token).pipeline = new ConversionPipeline(token, (int) workers);
+            }
+            resolve(promise, null);
+        });
+    }
+
+    private void shutdownPipeline(String token) {
+        TokenState state = state(token);
+        ConversionPipeline pipeline = state.pipeline;
+        state.pipeline = null;
+        if (pipeline != null) {
+            pipeline.shutdown();
         }
     }
 
+    /**
+     * Converts the properties of an admitted event on the pipeline, timing the conversion on the worker, then queues
+     * the track task on the serial executor once the calls made before it are queued. Nothing waits for the
+     * conversion.
+     */
+    private void trackConverted(String token, MixpanelAPI instance, Promise promise, ConversionPipeline pipeline,
+                                SerialInstanceExecutor executor, EventSampler.Policy policy, double sampleRate,
+                                Conversion<JSONObject> conversion, ConvertedTask<JSONObject> track) {
+        final PerformanceMonitor.MethodStats stats = mPerformance.takeStats();
+        final long startNanos = stats != null ? mPerformance.startNanos() : 0;
+        pipeline.submit(() -> {
+            long conversionNanos = System.nanoTime();
+            JSONObject eventProperties = conversion.convert();
+            if (stats != null) {
+                stats.conversion.record(System.nanoTime() - conversionNanos);
+            }
+            return eventProperties;
+        }, (eventProperties, error) -> {
+            if (error != null) {
+                retract(policy);
+                reject(promise, "Conversion Error", error.getMessage());
+                return;
+            }
+            admitted(token, eventProperties, sampleRate);
+            final Runnable task = () -> track.run(instance, eventProperties);
+            enqueue(executor, rejectOnFailure(promise, timed(stats, startNanos, task)),
+                    () -> runLocked(state(token), instance, rejectOnFailure(promise, task), false, stats, startNanos));
+        });
+    }
+
+    /**
+     * Buffers track calls natively and hands them to the SDK in batches of maxBatchSize, or flushInterval
+     * milliseconds after the first buffered event. Any other call of the token drains the buffer first.
+     */
     @ReactMethod
-    public void getDeviceId(final String token, Promise promise) {
-        MixpanelAPI instance = MixpanelAPI.getInstance(this.mReactContext, token, true);
-        if (instance == null) {
-            promise.reject("Instance Error", "Failed to get Mixpanel instance");
+    public void setTrackBufferingEnabled(final String token, boolean enabled, double maxBatchSize, double flushInterval, Promise promise) {
+        call(token, "setTrackBufferingEnabled", promise, instance -> {
+            // drain the current buffer before replacing it
+            execute(token, instance, null, () -> {});
+            if (enabled && maxBatchSize >= 1) {
+                state(token).eventBuffer = new EventBuffer((int) maxBatchSize, (long) flushInterval, getScheduler(),
+                        () -> {
+                            MixpanelAPI current = getInstance(token);
+                            if (current != null) {
+                                execute(token, current, null, () -> {});
+                            }
+                        });
+            } else {
+                state(token).eventBuffer = null;
+            }
+            resolve(promise, null);
+        });
+    }
+
+    /**
+     * Lets an AdaptiveFlushScheduler decide when to flush the token's queue, from the app lifecycle, the
+     * connectivity and battery saver state and the rate events are tracked at. interval and queueDepth set its
+     * foreground flush interval, in milliseconds, and the number of events that triggers an earlier flush.
+     */
+    @ReactMethod
+    public void setAdaptiveFlushEnabled(final String token, boolean enabled, double interval, double queueDepth, Promise promise) {
+        if (deferUntilInitialized(token, promise, () -> setAdaptiveFlushEnabled(token, enabled, interval, queueDepth, promise))) {
             return;
         }
-        synchronized (instance) {
-            promise.resolve(instance.getAnonymousId());
+        TokenState state = state(token);
+        AdaptiveFlushScheduler previous = state.flushScheduler;
+        state.flushScheduler = null;
+        if (previous != null) {
+            previous.stop();
+        }
+        if (enabled) {
+            AdaptiveFlushScheduler scheduler = new AdaptiveFlushScheduler(Looper.getMainLooper(),
+                    interval >= 1 ? (long) interval : AdaptiveFlushScheduler.DEFAULT_INTERVAL_MS,
+                    queueDepth >= 1 ? (int) queueDepth : AdaptiveFlushScheduler.DEFAULT_QUEUE_DEPTH,
+                    () -> {
+                        MixpanelAPI current = getInstance(token);
+                        if (current != null) {
+                            execute(token, current, null, current::flush);
+                        }
+                    });
+            scheduler.start(mReactContext);
+            state.flushScheduler = scheduler;
+        }
+        resolve(promise, null);
+    }
+
+    /**
+     * Resolves with the flush counts per reason, the last decision and the signals of the token's adaptive flush
+     * scheduler, or null when it is not enabled.
+     */
+    @ReactMethod
+    public void getFlushSchedulerStats(final String token, Promise promise) {
+        AdaptiveFlushScheduler scheduler = state(token).flushScheduler;
+        resolve(promise, scheduler != null ? scheduler.snapshot() : null);
+    }
+
+    /**
+     * Tells the token's adaptive flush scheduler about tracked events.
+     */
+    private void noteEnqueued(String token, int count) {
+        AdaptiveFlushScheduler scheduler = state(token).flushScheduler;
+        if (scheduler != null) {
+            scheduler.onEnqueue(count);
         }
     }
 
+    /**
+     * Routes the token's trackWithPriority calls into lanes: critical events are flushed within criticalFlushDelay
+     * milliseconds, while up to maxBulkEvents bulk events are held natively and handed to the SDK every
+     * bulkFlushInterval milliseconds. Disabling the lanes hands the held bulk events to the SDK, as do flush, the
+     * app going to the background and any call that changes the identity, opt-out state or super properties. The
+     * held events are only in memory and are lost if the process dies before they are handed over.
+     */
     @ReactMethod
-    public void track(final String token, final String eventName, ReadableMap properties, Promise promise) throws JSONException {
-        MixpanelAPI instance = MixpanelAPI.getInstance(this.mReactContext, token, true);
-        if (instance == null) {
-            promise.reject("Instance Error", "Failed to get Mixpanel instance");
-            return;
+    public void setPriorityLanesEnabled(final String token, boolean enabled, double criticalFlushDelay, double bulkFlushInterval, double maxBulkEvents, Promise promise) {
+        call(token, "setPriorityLanesEnabled", promise, instance -> {
+            final TokenState state = state(token);
+            final PriorityLanes previous = state.priorityLanes;
+            state.priorityLanes = null;
+            if (previous != null) {
+                execute(token, instance, null, () -> previous.drainBulkTo(instance));
+            }
+            if (enabled && maxBulkEvents >= 1) {
+                state.priorityLanes = new PriorityLanes((long) criticalFlushDelay, (long) bulkFlushInterval,
+                        (int) maxBulkEvents, getScheduler(),
+                        () -> {
+                            MixpanelAPI current = getInstance(token);
+                            if (current != null) {
+                                execute(token, current, null, current::flush);
+                            }
+                        },
+                        () -> {
+                            MixpanelAPI current = getInstance(token);
+                            PriorityLanes lanes = state.priorityLanes;
+                            if (current != null && lanes != null) {
+                                execute(token, current, null, () -> lanes.drainBulkTo(current));
+                            }
+                        });
+            }
+            resolve(promise, null);
+        });
+    }
+
+    /**
+     * Rolls the token's trackAggregated calls into summary events every window milliseconds. The current
+     * aggregates, including those of the calls still queued, are tracked first. Like the bulk events of the
+     * priority lanes, aggregates are only held in memory and are lost if the process dies.
+     */
+    @ReactMethod
+    public void setAggregationWindow(final String token, double window, Promise promise) {
+        call(token, "setAggregationWindow", promise, instance -> {
+            final TokenState state = state(token);
+            final EventAggregator previous;
+            synchronized (state) {
+                previous = state.aggregator;
+                state.aggregator = createAggregator(token, window >= 1 ? (long) window : EventAggregator.DEFAULT_WINDOW_MS);
+            }
+            if (previous != null) {
+                previous.stop();
+                execute(token, instance, null, () -> previous.drainTo(token, instance));
+            }
+            resolve(promise, null);
+        });
+    }
+
+    private EventAggregator getAggregator(String token) {
+        TokenState state = state(token);
+        synchronized (state) {
+            if (state.aggregator == null) {
+                state.aggregator = createAggregator(token, EventAggregator.DEFAULT_WINDOW_MS);
+            }
+            return state.aggregator;
         }
-        synchronized (instance) {
-            JSONObject eventProperties = ReactNativeHelper.reactToJSON(properties);
-            AutomaticProperties.appendLibraryProperties(eventProperties);
-            instance.track(eventName, eventProperties);
-            promise.resolve(null);
+    }
+
+    private EventAggregator createAggregator(final String token, long windowMs) {
+        return new EventAggregator(windowMs, getScheduler(), () -> {
+            MixpanelAPI current = getInstance(token);
+            if (current != null) {
+                execute(token, current, null, () -> drainAggregates(token, current));
+            }
+        });
+    }
+
+    /**
+     * Tracks the token's aggregates; run from a dispatched task so the summaries keep their place among the calls.
+     */
+    private void drainAggregates(String token, MixpanelAPI instance) {
+        EventAggregator aggregator = state(token).aggregator;
+        if (aggregator != null) {
+            aggregator.drainTo(token, instance);
         }
     }
 
-    @ReactMethod
-    public void registerSuperProperties(final String token, ReadableMap properties, Promise promise) throws JSONException {
-        MixpanelAPI instance = MixpanelAPI.getInstance(this.mReactContext, token, true);
-        if (instance == null) {
-            promise.reject("Instance Error", "Failed to get Mixpanel instance");
-            return;
+    /**
+     * Hands the token's aggregates and bulk events to the SDK, ahead of a flush or of a call that changes what the
+     * SDK stamps on tracked events: the identity, the opt-out state, the super properties or the event timers.
+     */
+    private void drainHeldEvents(String token, MixpanelAPI instance) {
+        drainAggregates(token, instance);
+        PriorityLanes lanes = state(token).priorityLanes;
+        if (lanes != null) {
+            lanes.drainBulkTo(instance);
         }
-        synchronized (instance) {
-            JSONObject superProperties = ReactNativeHelper.reactToJSON(properties);
-            instance.registerSuperProperties(superProperties);
-            promise.resolve(null);
+    }
+
+    private void drainAllHeldEvents() {
+        for (Map.Entry<String, TokenState> entry : mTokens.entrySet()) {
+            final String token = entry.getKey();
+            final TokenState state = entry.getValue();
+            final MixpanelAPI instance = state.instance;
+            if (instance != null && (state.aggregator != null || state.priorityLanes != null)) {
+                execute(token, instance, null, () -> drainHeldEvents(token, instance));
+            }
         }
     }
 
+    private synchronized ScheduledExecutorService getScheduler() {
+        if (mScheduler == null) {
+            mScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "MixpanelReactNative-scheduler");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return mScheduler;
+    }
+
+    /**
+     * Shares property keys and short string values across converted events through a bounded, lock-free cache of
+     * maxEntries strings. The cache is used by every token of the module.
+     */
     @ReactMethod
-    public void registerSuperPropertiesOnce(final String token, ReadableMap properties, Promise promise) throws JSONException {
-        MixpanelAPI instance = MixpanelAPI.getInstance(this.mReactContext, token, true);
-        if (instance == null) {
-            promise.reject("Instance Error", "Failed to get Mixpanel instance");
+    public void setPropertyInterningEnabled(final String token, boolean enabled, double maxEntries, Promise promise) {
+        ReactNativeHelper.setInterner(enabled && maxEntries >= 1 ? new StringInterner((int) maxEntries) : null);
+        resolve(promise, null);
+    }
+
+    /**
+     * Resolves the interning cache's hit and miss counts, or null while interning is disabled.
+     */
+    @ReactMethod
+    public void getInterningStats(final String token, Promise promise) {
+        StringInterner interner = ReactNativeHelper.getInterner();
+        if (interner == null) {
+            resolve(promise, null);
             return;
         }
-        synchronized (instance) {
-            JSONObject superProperties = ReactNativeHelper.reactToJSON(properties);
-            instance.registerSuperPropertiesOnce(superProperties);
-            promise.resolve(null);
-        }
+        long hits = interner.getHits();
+        long misses = interner.getMisses();
+        WritableMap stats = Arguments.createMap();
+        stats.putDouble("hits", hits);
+        stats.putDouble("misses", misses);
+        stats.putDouble("hitRate", hits + misses > 0 ? (double) hits / (hits + misses) : 0);
+        stats.putInt("size", interner.size());
+        stats.putInt("maxEntries", interner.getMaxEntries());
+        resolve(promise, stats);
     }
 
+    /**
+     * Limits the properties converted by every token of the module, given as {maxDepth, maxKeys, maxArrayLength,
+     * maxBytes, reject}, or removes the limits when null. A missing limit is unbounded.
+     */
     @ReactMethod
-    public void unregisterSuperProperty(final String token, String superPropertyName, Promise promise) {
-        MixpanelAPI instance = MixpanelAPI.getInstance(this.mReactContext, token, true);
-        if (instance == null) {
-            promise.reject("Instance Error", "Failed to get Mixpanel instance");
+    public void setPayloadLimits(final String token, ReadableMap limits, Promise promise) {
+        if (limits == null) {
+            ReactNativeHelper.setPayloadGuard(null);
+            resolve(promise, null);
             return;
         }
-        synchronized (instance) {
-            instance.unregisterSuperProperty(superPropertyName);
-            promise.resolve(null);
-        }
+        ReactNativeHelper.setPayloadGuard(new PayloadGuard(
+                limits.hasKey("maxDepth") ? limits.getInt("maxDepth") : Integer.MAX_VALUE,
+                limits.hasKey("maxKeys") ? limits.getInt("maxKeys") : Integer.MAX_VALUE,
+                limits.hasKey("maxArrayLength") ? limits.getInt("maxArrayLength") : Integer.MAX_VALUE,
+                limits.hasKey("maxBytes") ? (long) limits.getDouble("maxBytes") : Long.MAX_VALUE,
+                limits.hasKey("reject") && limits.getBoolean("reject")));
+        resolve(promise, null);
     }
 
+    /**
+     * Resolves the payload limits with the truncated and rejected counts, or null without limits.
+     */
     @ReactMethod
-    public void union(final String token, String name, ReadableArray value, Promise promise) throws JSONException {
-        MixpanelAPI instance = MixpanelAPI.getInstance(this.mReactContext, token, true);
-        if (instance == null) {
-            promise.reject("Instance Error", "Failed to get Mixpanel instance");
-            return;
+    public void getPayloadStats(final String token, Promise promise) {
+        PayloadGuard guard = ReactNativeHelper.getPayloadGuard();
+        resolve(promise, guard != null ? guard.snapshot() : null);
+    }
+
+    /**
+     * Records call counts and latency, conversion and lock wait histograms for every bridge method. With a positive
+     * reportInterval the statistics of all tokens are also sent to JS every reportInterval milliseconds.
+     */
+    @ReactMethod
+    public void setPerformanceStatsEnabled(final String token, boolean enabled, double reportInterval, Promise promise) {
+        mPerformance.setEnabled(enabled);
+        synchronized (this) {
+            if (mPerformanceReport != null) {
+                mPerformanceReport.cancel(false);
+                mPerformanceReport = null;
+            }
+            if (enabled && reportInterval > 0) {
+                mPerformanceReport = getScheduler().scheduleAtFixedRate(mPerformance::report,
+                        (long) reportInterval, (long) reportInterval, TimeUnit.MILLISECONDS);
+            }
+        }
+        resolve(promise, null);
+    }
+
+    /**
+     * Resolves the statistics recorded for the token's bridge methods, keyed by method name.
+     */
+    @ReactMethod
+    public void getPerformanceStats(final String token, Promise promise) {
+        resolve(promise, mPerformance.snapshot(token));
+    }
+
+    /**
+     * Sets the sampling and rate limiting policies of the token's events, as a map of event name to
+     * {sampleRate, maxPerSecond, perDistinctId}. Dropped track calls are resolved without converting their
+     * properties, and kept events of a sampled event name carry the $sample_rate property.
+     */
+    @ReactMethod
+    public void setSamplingPolicies(final String token, ReadableMap policies, Promise promise) {
+        state(token).sampler = EventSampler.fromReadableMap(policies);
+        resolve(promise, null);
+    }
+
+    /**
+     * Resolves the kept, sampledOut and rateLimited counts of the token's sampled event names, keyed by event name.
+     */
+    @ReactMethod
+    public void getSamplingStats(final String token, Promise promise) {
+        EventSampler sampler = state(token).sampler;
+        resolve(promise, sampler != null ? sampler.snapshot() : Arguments.createMap());
+    }
+
+    /**
+     * Returns the token's policy for the event name, or null when its events are all kept.
+     */
+    private EventSampler.Policy policy(String token, String eventName) {
+        EventSampler sampler = state(token).sampler;
+        return sampler != null ? sampler.policy(eventName) : null;
+    }
+
+    /**
+     * Samples an event before its properties are converted. Returns the sample rate of a kept event, 1 without a
+     * policy, or 0 when it is dropped. Per distinct id policies use the last published identity rather than reading
+     * the instance outside the call order.
+     */
+    private double admit(String token, EventSampler.Policy policy) {
+        if (policy == null) {
+            return 1;
+        }
+        String distinctId = null;
+        if (policy.isPerDistinctId()) {
+            SerialInstanceExecutor.IdentitySnapshot identity = publishedIdentity(state(token));
+            distinctId = identity != null ? identity.distinctId : null;
+        }
+        return policy.admit(distinctId);
+    }
+
+    /**
+     * Takes back the admission of an event whose properties could not be converted, so it is not counted as kept.
+     */
+    private static void retract(EventSampler.Policy policy) {
+        if (policy != null) {
+            policy.retract();
         }
-        synchronized (instance) {
-            JSONArray propertyValue = ReactNativeHelper.reactToJSON(value);
-            instance.getPeople().union(name, propertyValue);
-            promise.resolve(null);
+    }
+
+    /**
+     * Stamps the sample rate on the converted properties of an admitted event and counts the event for the
+     * adaptive flush scheduler.
+     */
+    private void admitted(String token, JSONObject eventProperties, double sampleRate) {
+        stampSampleRate(eventProperties, sampleRate);
+        noteEnqueued(token, 1);
+    }
+
+    /**
+     * Resolves a call that is not dispatched, such as a dropped event.
+     */
+    private void skip(Promise promise) {
+        resolve(promise, null);
+    }
+
+    private static void stampSampleRate(JSONObject properties, double sampleRate) {
+        if (sampleRate < 1) {
+            try {
+                properties.put(EventSampler.SAMPLE_RATE, sampleRate);
+            } catch (JSONException ignored) {
+                // only thrown for non-finite numbers
+            }
         }
     }
 
     @ReactMethod
-    public void getSuperProperties(final String token, Promise promise) throws JSONException {
-        MixpanelAPI instance = MixpanelAPI.getInstance(this.mReactContext, token, true);
-        if (instance == null) {
-            promise.reject("Instance Error", "Failed to get Mixpanel instance");
+    public void hasOptedOutTracking(final String token, Promise promise) {
+        call(token, "hasOptedOutTracking", promise, instance -> {
+            SerialInstanceExecutor.IdentitySnapshot identity = currentIdentity(token);
+            if (identity != null) {
+                resolve(promise, identity.optedOut);
+                return;
+            }
+            execute(token, instance, promise, () -> {
+                resolve(promise, instance.hasOptedOutTracking());
+            });
+        });
+    }
+
+    @ReactMethod
+    public void optInTracking(final String token, Promise promise) {
+        executeIdentityWrite(token, "optInTracking", promise, instance -> {
+            instance.optInTracking();
+            resolve(promise, null);
+        });
+    }
+
+    @ReactMethod
+    public void optOutTracking(final String token, Promise promise) {
+        executeIdentityWrite(token, "optOutTracking", promise, instance -> {
+            instance.optOutTracking();
+            getSuperPropertiesSnapshot(token).bump(mReactContext);
+            resolve(promise, null);
+        });
+    }
+
+    @ReactMethod
+    public void identify(final String token, final String distinctId, Promise promise) {
+        executeIdentityWrite(token, "identify", promise, instance -> {
+            instance.identify(distinctId);
+            resolve(promise, null);
+        });
+    }
+
+    @ReactMethod
+    public void getDistinctId(final String token, Promise promise) {
+        call(token, "getDistinctId", promise, instance -> {
+            SerialInstanceExecutor.IdentitySnapshot identity = currentIdentity(token);
+            if (identity != null) {
+                resolve(promise, identity.distinctId);
+                return;
+            }
+            execute(token, instance, promise, () -> {
+                resolve(promise, instance.getDistinctId());
+            });
+        });
+    }
+
+    @ReactMethod
+    public void getDeviceId(final String token, Promise promise) {
+        call(token, "getDeviceId", promise, instance -> {
+            SerialInstanceExecutor.IdentitySnapshot identity = currentIdentity(token);
+            if (identity != null) {
+                resolve(promise, identity.deviceId);
+                return;
+            }
+            execute(token, instance, promise, () -> {
+                resolve(promise, instance.getAnonymousId());
+            });
+        });
+    }
+
+    @ReactMethod
+    public void track(final String token, final String eventName, ReadableMap properties, Promise promise) {
+        trackEvent(token, "track", promise, eventName, () -> ReactNativeHelper.readableMapToJSON(properties));
+    }
+
+    /**
+     * Same as track, with the properties passed as their JSON.stringify() output, which is parsed here directly
+     * instead of being built into a ReadableMap by the bridge first.
+     */
+    @ReactMethod
+    public void trackJson(final String token, final String eventName, String properties, Promise promise) {
+        trackEvent(token, "trackJson", promise, eventName, () -> ReactNativeHelper.jsonToJSON(properties));
+    }
+
+    /**
+     * Adds the context properties and the automatic properties to the properties of a tracked event. The context
+     * is the one current at the time of the call.
+     */
+    private Conversion<JSONObject> eventProperties(final String token, final Conversion<JSONObject> properties) {
+        final JSONObject context = getContext(token);
+        return () -> {
+            JSONObject eventProperties = properties.convert();
+            ContextStack.appendTo(context, eventProperties);
+            AutomaticProperties.appendLibraryProperties(token, eventProperties);
+            return eventProperties;
+        };
+    }
+
+    /**
+     * Converts the properties of an admitted event, or takes the admission back, rejects the call with a Conversion
+     * Error and returns null.
+     */
+    private JSONObject convertEvent(Promise promise, EventSampler.Policy policy, Conversion<JSONObject> conversion) {
+        try {
+            JSONObject eventProperties = conversion.convert();
+            mPerformance.conversionDone();
+            return eventProperties;
+        } catch (JSONException e) {
+            retract(policy);
+            reject(promise, "Conversion Error", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Samples, converts and tracks an event, converting on the conversion pipeline when setParallelConversionEnabled
+     * is on. With setTrackBufferingEnabled on, the event joins the buffer instead of draining it.
+     */
+    private void trackEvent(String token, String method, Promise promise, String eventName, Conversion<JSONObject> properties) {
+        call(token, method, promise, instance -> {
+            final EventSampler.Policy policy = policy(token, eventName);
+            final double sampleRate = admit(token, policy);
+            if (sampleRate == 0) {
+                skip(promise);
+                return;
+            }
+            final Conversion<JSONObject> conversion = eventProperties(token, properties);
+            final EventBuffer buffer = state(token).eventBuffer;
+            final ConvertedTask<JSONObject> track = (current, eventProperties) -> {
+                if (buffer != null) {
+                    buffer.add(current, eventName, eventProperties);
+                } else {
+                    current.track(eventName, eventProperties);
+                }
+                resolve(promise, null);
+            };
+            final TokenState state = state(token);
+            final ConversionPipeline pipeline = state.pipeline;
+            final SerialInstanceExecutor executor = state.executor;
+            if (pipeline != null && executor != null) {
+                trackConverted(token, instance, promise, pipeline, executor, policy, sampleRate, conversion, track);
+                return;
+            }
+            final JSONObject eventProperties = convertEvent(promise, policy, conversion);
+            if (eventProperties == null) {
+                return;
+            }
+            admitted(token, eventProperties, sampleRate);
+            dispatch(token, instance, promise, () -> track.run(instance, eventProperties), false);
+        });
+    }
+
+    /**
+     * Same as track, with the event routed by priority when setPriorityLanesEnabled is on: PriorityLanes.CRITICAL
+     * events trigger an expedited flush and PriorityLanes.BULK events are held for the bulk flush interval. Any
+     * other priority tracks the event normally.
+     */
+    @ReactMethod
+    public void trackWithPriority(final String token, final String eventName, ReadableMap properties, String priority, Promise promise) {
+        if (deferUntilInitialized(token, promise, () -> trackWithPriority(token, eventName, properties, priority, promise))) {
             return;
         }
-        synchronized (instance) {
-            promise.resolve(ReactNativeHelper.convertJsonToMap(instance.getSuperProperties()));
+        final PriorityLanes lanes = state(token).priorityLanes;
+        final boolean critical = PriorityLanes.CRITICAL.equals(priority);
+        if (lanes == null || !(critical || PriorityLanes.BULK.equals(priority))) {
+            track(token, eventName, properties, promise);
+            return;
         }
+        call(token, "trackWithPriority", promise, instance -> {
+            final EventSampler.Policy policy = policy(token, eventName);
+            final double sampleRate = admit(token, policy);
+            if (sampleRate == 0) {
+                skip(promise);
+                return;
+            }
+            final JSONObject eventProperties = convertEvent(promise, policy,
+                    eventProperties(token, () -> ReactNativeHelper.readableMapToJSON(properties)));
+            if (eventProperties == null) {
+                return;
+            }
+            admitted(token, eventProperties, sampleRate);
+            execute(token, instance, promise, () -> {
+                if (critical) {
+                    instance.track(eventName, eventProperties);
+                    lanes.expediteFlush();
+                } else {
+                    lanes.addBulk(instance, eventName, eventProperties);
+                }
+                resolve(promise, null);
+            });
+        });
+    }
+
+    /**
+     * Counts the event instead of tracking it, summing its numeric metrics per event name and set of dimensions.
+     * One summary event per set is tracked when the aggregation window elapses, on flush, on reset and when the
+     * app goes to the background. See setAggregationWindow.
+     */
+    @ReactMethod
+    public void trackAggregated(final String token, final String eventName, ReadableMap dimensions, ReadableMap metrics, Promise promise) {
+        call(token, "trackAggregated", promise, instance -> {
+            final EventAggregator aggregator = getAggregator(token);
+            execute(token, instance, promise, () -> EventAggregator.Sample.of(eventName, dimensions, metrics),
+                    (current, sample) -> {
+                        aggregator.add(sample);
+                        resolve(promise, null);
+                    });
+        });
+    }
+
+    /**
+     * Tracks a burst of events with a single instance lookup, lock acquisition and promise.
+     * Each entry of the array is a map of the form {eventName, properties}.
+     */
+    @ReactMethod
+    public void trackBatch(final String token, ReadableArray events, Promise promise) {
+        call(token, "trackBatch", promise, instance -> {
+            final JSONObject context = getContext(token);
+            final int size = events.size();
+            final String[] eventNames = new String[size];
+            final JSONObject[] eventProperties = new JSONObject[size];
+            final EventSampler.Policy[] policies = new EventSampler.Policy[size];
+            int tracked = 0;
+            try {
+                for (int i = 0; i < size; i++) {
+                    ReadableMap event = events.getMap(i);
+                    String eventName = event.getString("eventName");
+                    policies[i] = policy(token, eventName);
+                    double sampleRate = admit(token, policies[i]);
+                    if (sampleRate == 0) {
+                        // dropped events are left out of the arrays, unconverted
+                        continue;
+                    }
+                    eventNames[i] = eventName;
+                    eventProperties[i] = event.hasKey("properties") && !event.isNull("properties")
+                            ? ReactNativeHelper.readableMapToJSON(event.getMap("properties"))
+                            : new JSONObject();
+                    ContextStack.appendTo(context, eventProperties[i]);
+                    AutomaticProperties.appendLibraryProperties(token, eventProperties[i]);
+                    stampSampleRate(eventProperties[i], sampleRate);
+                    tracked++;
+                }
+            } catch (JSONException e) {
+                // none of the batch is tracked
+                for (int i = 0; i < size; i++) {
+                    if (eventNames[i] != null) {
+                        retract(policies[i]);
+                    }
+                }
+                reject(promise, "Conversion Error", e.getMessage());
+                return;
+            }
+            mPerformance.conversionDone();
+            noteEnqueued(token, tracked);
+            execute(token, instance, promise, () -> {
+                for (int i = 0; i < size; i++) {
+                    if (eventNames[i] != null) {
+                        instance.track(eventNames[i], eventProperties[i]);
+                    }
+                }
+                resolve(promise, null);
+            });
+        });
+    }
+
+    @ReactMethod
+    public void registerSuperProperties(final String token, ReadableMap properties, Promise promise) {
+        execute(token, "registerSuperProperties", promise, () -> ReactNativeHelper.readableMapToJSON(properties),
+                (instance, superProperties) -> {
+                    writeSuperProperties(token, instance, () -> instance.registerSuperProperties(superProperties));
+                    resolve(promise, null);
+                });
+    }
+
+    /**
+     * Same as registerSuperProperties, with the properties passed as their JSON.stringify() output.
+     */
+    @ReactMethod
+    public void registerSuperPropertiesJson(final String token, String properties, Promise promise) {
+        execute(token, "registerSuperPropertiesJson", promise, () -> ReactNativeHelper.jsonToJSON(properties),
+                (instance, superProperties) -> {
+                    writeSuperProperties(token, instance, () -> instance.registerSuperProperties(superProperties));
+                    resolve(promise, null);
+                });
+    }
+
+    @ReactMethod
+    public void registerSuperPropertiesOnce(final String token, ReadableMap properties, Promise promise) {
+        execute(token, "registerSuperPropertiesOnce", promise, () -> ReactNativeHelper.readableMapToJSON(properties),
+                (instance, superProperties) -> {
+                    writeSuperProperties(token, instance, () -> instance.registerSuperPropertiesOnce(superProperties));
+                    resolve(promise, null);
+                });
+    }
+
+    @ReactMethod
+    public void unregisterSuperProperty(final String token, String superPropertyName, Promise promise) {
+        execute(token, "unregisterSuperProperty", promise, instance -> {
+            writeSuperProperties(token, instance, () -> instance.unregisterSuperProperty(superPropertyName));
+            resolve(promise, null);
+        });
+    }
+
+    @ReactMethod
+    public void union(final String token, String name, ReadableArray value, Promise promise) {
+        execute(token, "union", promise, () -> ReactNativeHelper.reactToJSON(value), (instance, propertyValue) -> {
+            instance.getPeople().union(name, propertyValue);
+            resolve(promise, null);
+        });
+    }
+
+    @ReactMethod
+    public void getSuperProperties(final String token, Promise promise) {
+        execute(token, "getSuperProperties", promise, instance -> {
+            try {
+                resolve(promise, getSuperPropertiesSnapshot(token).get(instance));
+            } catch (JSONException e) {
+                reject(promise, "Conversion Error", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Sends MixpanelReactNativeSuperPropertiesChanged to JS whenever a call may have changed the token's super
+     * properties, so JS can cache them between changes.
+     */
+    @ReactMethod
+    public void setSuperPropertiesCacheEnabled(final String token, boolean enabled, Promise promise) {
+        getSuperPropertiesSnapshot(token).setNotifyChanges(enabled);
+        resolve(promise, null);
+    }
+
+    private SuperPropertiesSnapshot getSuperPropertiesSnapshot(String token) {
+        return state(token).superProperties;
+    }
+
+    /**
+     * Runs a call that changes the token's super properties, including the group memberships kept among them. The
+     * held bulk events and aggregates are handed to the SDK first, so they get the super properties of the time they
+     * were tracked, and the snapshot is bumped afterwards.
+     */
+    private void writeSuperProperties(String token, MixpanelAPI instance, Runnable write) {
+        drainHeldEvents(token, instance);
+        write.run();
+        getSuperPropertiesSnapshot(token).bump(mReactContext);
     }
 
     @ReactMethod
     public void clearSuperProperties(final String token, Promise promise) {
-        MixpanelAPI instance = MixpanelAPI.getInstance(this.mReactContext, token, true);
-        if (instance == null) {
-            promise.reject("Instance Error", "Failed to get Mixpanel instance");
+        execute(token, "clearSuperProperties", promise, instance -> {
+            writeSuperProperties(token, instance, instance::clearSuperProperties);
+            resolve(promise, null);
+        });
+    }
+
+    /**
+     * Pushes scoped properties, such as those of the current screen, that are added to every event tracked until
+     * popContext is called with the same id. They are kept converted in memory and are not persisted.
+     */
+    @ReactMethod
+    public void pushContext(final String token, String id, ReadableMap properties, Promise promise) {
+        if (deferUntilInitialized(token, promise, () -> pushContext(token, id, properties, promise))) {
             return;
         }
-        synchronized (instance) {
-            instance.clearSuperProperties();
-            promise.resolve(null);
+        JSONObject contextProperties;
+        try {
+            contextProperties = ReactNativeHelper.readableMapToJSON(properties);
+        } catch (JSONException e) {
+            reject(promise, "Conversion Error", e.getMessage());
+            return;
         }
+        state(token).contexts.push(id, contextProperties);
+        resolve(promise, null);
     }
 
+    /**
+     * Removes the most recent context pushed with the id, along with any context pushed after it.
+     */
     @ReactMethod
-    public void alias(final String token, String alias, String original, Promise promise) {
-        MixpanelAPI instance = MixpanelAPI.getInstance(this.mReactContext, token, true);
-        if (instance == null) {
-            promise.reject("Instance Error", "Failed to get Mixpanel instance");
+    public void popContext(final String token, String id, Promise promise) {
+        if (deferUntilInitialized(token, promise, () -> popContext(token, id, promise))) {
             return;
         }
-        synchronized (instance) {
+        state(token).contexts.pop(id);
+        resolve(promise, null);
+    }
+
+    /**
+     * Returns the merged context properties of the token at the time of the call, or null when there are none.
+     */
+    private JSONObject getContext(String token) {
+        return state(token).contexts.snapshot();
+    }
+
+    @ReactMethod
+    public void alias(final String token, String alias, String original, Promise promise) {
+        executeIdentityWrite(token, "alias", promise, instance -> {
             instance.alias(alias, original);
-            promise.resolve(null);
-        }
+            resolve(promise, null);
+        });
     }
 
     @ReactMethod
     public void reset(final String token, Promise promise) {
-        MixpanelAPI instance = MixpanelAPI.getInstance(this.mReactContext, token, true);
-        if (instance == null) {
-            promise.reject("Instance Error", "Failed to get Mixpanel instance");
-            return;
-        }
-        synchronized (instance) {
+        executeIdentityWrite(token, "reset", promise, instance -> {
             instance.reset();
-            promise.resolve(null);
-        }
+            getSuperPropertiesSnapshot(token).bump(mReactContext);
+            resolve(promise, null);
+        });
     }
 
     @ReactMethod
     public void flush(final String token, Promise promise) {
-        MixpanelAPI instance = MixpanelAPI.getInstance(this.mReactContext, token, true);
-        if (instance == null) {
-            promise.reject("Instance Error", "Failed to get Mixpanel instance");
-            return;
-        }
-        synchronized (instance) {
+        execute(token, "flush", promise, instance -> {
+            drainHeldEvents(token, instance);
             instance.flush();
-            promise.resolve(null);
-        }
+            resolve(promise, null);
+        });
     }
 
     @ReactMethod
     public void timeEvent(final String token, final String eventName, Promise promise) {
-        MixpanelAPI instance = MixpanelAPI.getInstance(this.mReactContext, token, true);
-        if (instance == null) {
-            promise.reject("Instance Error", "Failed to get Mixpanel instance");
-            return;
-        }
-        synchronized (instance) {
+        execute(token, "timeEvent", promise, instance -> {
+            // a held event of the name would otherwise be timed by the new timer
+            drainHeldEvents(token, instance);
             instance.timeEvent(eventName);
-            promise.resolve(null);
-        }
+            resolve(promise, null);
+        });
     }
 
     @ReactMethod
     public void eventElapsedTime(final String token, final String eventName, Promise promise) {
-        MixpanelAPI instance = MixpanelAPI.getInstance(this.mReactContext, token, true);
-        if (instance == null) {
-            promise.reject("Instance Error", "Failed to get Mixpanel instance");
-            return;
-        }
-        synchronized (instance) {
-            promise.resolve(instance.eventElapsedTime(eventName));
-        }
+        execute(token, "eventElapsedTime", promise, instance -> {
+            resolve(promise, instance.eventElapsedTime(eventName));
+        });
     }
 
     @ReactMethod
-    public void set(final String token, ReadableMap properties, Promise promise) throws JSONException {
-        MixpanelAPI instance = MixpanelAPI.getInstance(this.mReactContext, token, true);
-        if (instance == null) {
-            promise.reject("Instance Error", "Failed to get Mixpanel instance");
-            return;
-        }
-        synchronized (instance) {
-            JSONObject sendProperties = ReactNativeHelper.reactToJSON(properties);
-            AutomaticProperties.appendLibraryProperties(sendProperties);
+    public void set(final String token, ReadableMap properties, Promise promise) {
+        execute(token, "set", promise, () -> {
+            JSONObject sendProperties = ReactNativeHelper.readableMapToJSON(properties);
+            AutomaticProperties.appendLibraryProperties(token, sendProperties);
+            return sendProperties;
+        }, (instance, sendProperties) -> {
             instance.getPeople().set(sendProperties);
-            promise.resolve(null);
-        }
+            resolve(promise, null);
+        });
+    }
+
+    /**
+     * Same as set, with the properties passed as their JSON.stringify() output.
+     */
+    @ReactMethod
+    public void setJson(final String token, String properties, Promise promise) {
+        execute(token, "setJson", promise, () -> {
+            JSONObject sendProperties = ReactNativeHelper.jsonToJSON(properties);
+            AutomaticProperties.appendLibraryProperties(token, sendProperties);
+            return sendProperties;
+        }, (instance, sendProperties) -> {
+            instance.getPeople().set(sendProperties);
+            resolve(promise, null);
+        });
     }
 
     @ReactMethod
     public void unset(final String token, String propertyName, Promise promise) {
-        MixpanelAPI instance = MixpanelAPI.getInstance(this.mReactContext, token, true);
-        if (instance == null) {
-            promise.reject("Instance Error", "Failed to get Mixpanel instance");
-            return;
-        }
-        synchronized (instance) {
+        execute(token, "unset", promise, instance -> {
             instance.getPeople().unset(propertyName);
-            promise.resolve(null);
-        }
+            resolve(promise, null);
+        });
     }
 
     @ReactMethod
-    public void setOnce(final String token, ReadableMap properties, Promise promise) throws JSONException {
-        MixpanelAPI instance = MixpanelAPI.getInstance(this.mReactContext, token, true);
-        if (instance == null) {
-            promise.reject("Instance Error", "Failed to get Mixpanel instance");
-            return;
-        }
-        synchronized (instance) {
-            JSONObject sendProperties = ReactNativeHelper.reactToJSON(properties);
-            AutomaticProperties.appendLibraryProperties(sendProperties);
+    public void setOnce(final String token, ReadableMap properties, Promise promise) {
+        execute(token, "setOnce", promise, () -> {
+            JSONObject sendProperties = ReactNativeHelper.readableMapToJSON(properties);
+            AutomaticProperties.appendLibraryProperties(token, sendProperties);
+            return sendProperties;
+        }, (instance, sendProperties) -> {
             instance.getPeople().setOnce(sendProperties);
-            promise.resolve(null);
-        }
+            resolve(promise, null);
+        });
     }
 
+    /**
+     * Applies an ordered list of People operations with one instance lookup, lock acquisition and promise, merging
+     * consecutive operations that combine into a single profile update. See PeopleBatch for the operation format.
+     */
     @ReactMethod
-    public void trackCharge(final String token, double charge, ReadableMap properties, Promise promise) throws JSONException {
-        MixpanelAPI instance = MixpanelAPI.getInstance(this.mReactContext, token, true);
-        if (instance == null) {
-            promise.reject("Instance Error", "Failed to get Mixpanel instance");
-            return;
-        }
-        synchronized (instance) {
-            JSONObject transactionValue = ReactNativeHelper.reactToJSON(properties);
-            instance.getPeople().trackCharge(charge, transactionValue);
-            promise.resolve(null);
-        }
+    public void peopleBatch(final String token, ReadableArray operations, Promise promise) {
+        execute(token, "peopleBatch", promise, () -> PeopleBatch.fromReadableArray(token, operations),
+                (instance, batch) -> {
+                    batch.applyTo(instance.getPeople());
+                    resolve(promise, null);
+                });
+    }
+
+    @ReactMethod
+    public void trackCharge(final String token, double charge, ReadableMap properties, Promise promise) {
+        execute(token, "trackCharge", promise, () -> ReactNativeHelper.readableMapToJSON(properties),
+                (instance, transactionValue) -> {
+                    instance.getPeople().trackCharge(charge, transactionValue);
+                    resolve(promise, null);
+                });
     }
 
     @ReactMethod
     public void clearCharges(final String token, Promise promise) {
-        MixpanelAPI instance = MixpanelAPI.getInstance(this.mReactContext, token, true);
-        if (instance == null) {
-            promise.reject("Instance Error", "Failed to get Mixpanel instance");
-            return;
-        }
-        synchronized (instance) {
+        execute(token, "clearCharges", promise, instance -> {
             instance.getPeople().clearCharges();
-            promise.resolve(null);
-        }
+            resolve(promise, null);
+        });
     }
 
     @ReactMethod
     public void increment(final String token, ReadableMap properties, Promise promise) {
-        Map incrementProperties = ReactNativeHelper.toMap(properties);
-        MixpanelAPI instance = MixpanelAPI.getInstance(this.mReactContext, token, true);
-        if (instance == null) {
-            promise.reject("Instance Error", "Failed to get Mixpanel instance");
-            return;
-        }
-        synchronized (instance) {
-            instance.getPeople().increment(incrementProperties);
-            promise.resolve(null);
-        }
+        execute(token, "increment", promise, () -> (Map) ReactNativeHelper.toMap(properties),
+                (instance, incrementProperties) -> {
+                    instance.getPeople().increment(incrementProperties);
+                    resolve(promise, null);
+                });
     }
 
     @ReactMethod
-    public void append(final String token, String name, Dynamic value, Promise promise) throws JSONException {
-        MixpanelAPI instance = MixpanelAPI.getInstance(this.mReactContext, token, true);
-        if (instance == null) {
-            promise.reject("Instance Error", "Failed to get Mixpanel instance");
-            return;
-        }
-        synchronized (instance) {
-            instance.getPeople().append(name, ReactNativeHelper.dynamicToObject(value));
-            promise.resolve(null);
-        }
+    public void append(final String token, String name, Dynamic value, Promise promise) {
+        execute(token, "append", promise, () -> ReactNativeHelper.dynamicToObject(value), (instance, valueObject) -> {
+            instance.getPeople().append(name, valueObject);
+            resolve(promise, null);
+        });
     }
 
     @ReactMethod
     public void deleteUser(final String token, Promise promise) {
-        MixpanelAPI instance = MixpanelAPI.getInstance(this.mReactContext, token, true);
-        if (instance == null) {
-            promise.reject("Instance Error", "Failed to get Mixpanel instance");
-            return;
-        }
-        synchronized (instance) {
+        execute(token, "deleteUser", promise, instance -> {
             instance.getPeople().deleteUser();
-            promise.resolve(null);
-        }
+            resolve(promise, null);
+        });
     }
 
     @ReactMethod
-    public void remove(final String token, String name, Dynamic value, Promise promise) throws JSONException {
-        MixpanelAPI instance = MixpanelAPI.getInstance(this.mReactContext, token, true);
-        if (instance == null) {
-            promise.reject("Instance Error", "Failed to get Mixpanel instance");
-            return;
-        }
-        synchronized (instance) {
-            instance.getPeople().remove(name, ReactNativeHelper.dynamicToObject(value));
-            promise.resolve(null);
-        }
+    public void remove(final String token, String name, Dynamic value, Promise promise) {
+        execute(token, "remove", promise, () -> ReactNativeHelper.dynamicToObject(value), (instance, valueObject) -> {
+            instance.getPeople().remove(name, valueObject);
+            resolve(promise, null);
+        });
     }
 
     @ReactMethod
     public void trackWithGroups(final String token, String eventName, ReadableMap properties, ReadableMap groups, Promise promise) {
-        MixpanelAPI instance = MixpanelAPI.getInstance(this.mReactContext, token, true);
-        if (instance == null) {
-            promise.reject("Instance Error", "Failed to get Mixpanel instance");
-            return;
-        }
-        synchronized (instance) {
-            Map eventProperties = ReactNativeHelper.toMap(properties);
-            Map eventGroups = ReactNativeHelper.toMap(groups);
-            instance.trackWithGroups(eventName, eventProperties, eventGroups);
-            promise.resolve(null);
-        }
+        call(token, "trackWithGroups", promise, instance -> {
+            final EventSampler.Policy policy = policy(token, eventName);
+            final double sampleRate = admit(token, policy);
+            if (sampleRate == 0) {
+                skip(promise);
+                return;
+            }
+            Map<String, Object> eventProperties;
+            Map eventGroups;
+            try {
+                eventProperties = ReactNativeHelper.readableMapToMap(properties);
+                eventGroups = ReactNativeHelper.readableMapToMap(groups);
+            } catch (JSONException e) {
+                retract(policy);
+                reject(promise, "Conversion Error", e.getMessage());
+                return;
+            }
+            ContextStack.appendTo(getContext(token), eventProperties);
+            mPerformance.conversionDone();
+            if (sampleRate < 1) {
+                eventProperties.put(EventSampler.SAMPLE_RATE, sampleRate);
+            }
+            noteEnqueued(token, 1);
+            execute(token, instance, promise, () -> {
+                instance.trackWithGroups(eventName, eventProperties, eventGroups);
+                resolve(promise, null);
+            });
+        });
     }
 
 
     @ReactMethod
     public void setGroup(final String token, String groupKey, Dynamic groupID, Promise promise) {
-        MixpanelAPI instance = MixpanelAPI.getInstance(this.mReactContext, token, true);
-        if (instance == null) {
-            promise.reject("Instance Error", "Failed to get Mixpanel instance");
-            return;
-        }
-        synchronized (instance) {
-            instance.setGroup(groupKey, ReactNativeHelper.dynamicToObject(groupID));
-            promise.resolve(null);
-        }
+        execute(token, "setGroup", promise, () -> ReactNativeHelper.dynamicToObject(groupID),
+                (instance, groupIDObject) -> {
+                    writeSuperProperties(token, instance, () -> instance.setGroup(groupKey, groupIDObject));
+                    resolve(promise, null);
+                });
     }
 
     @ReactMethod
-    public void setGroups(final String token, String groupKey, ReadableArray groupIDs, Promise promise) throws JSONException {
-        MixpanelAPI instance = MixpanelAPI.getInstance(this.mReactContext, token, true);
-        if (instance == null) {
-            promise.reject("Instance Error", "Failed to get Mixpanel instance");
-            return;
-        }
-        synchronized (instance) {
-            instance.setGroup(groupKey, Arrays.asList(ReactNativeHelper.toArray(groupIDs)));
-            promise.resolve(null);
-        }
+    public void setGroups(final String token, String groupKey, ReadableArray groupIDs, Promise promise) {
+        execute(token, "setGroups", promise, () -> Arrays.asList(ReactNativeHelper.toArray(groupIDs)),
+                (instance, groupIDList) -> {
+                    writeSuperProperties(token, instance, () -> instance.setGroup(groupKey, groupIDList));
+                    resolve(promise, null);
+                });
     }
 
     @ReactMethod
     public void addGroup(final String token, String groupKey, Dynamic groupID, Promise promise) {
-        MixpanelAPI instance = MixpanelAPI.getInstance(this.mReactContext, token, true);
-        if (instance == null) {
-            promise.reject("Instance Error", "Failed to get Mixpanel instance");
-            return;
-        }
-        synchronized (instance) {
-            instance.addGroup(groupKey, ReactNativeHelper.dynamicToObject(groupID));
-            promise.resolve(null);
-        }
+        execute(token, "addGroup", promise, () -> ReactNativeHelper.dynamicToObject(groupID),
+                (instance, groupIDObject) -> {
+                    writeSuperProperties(token, instance, () -> instance.addGroup(groupKey, groupIDObject));
+                    resolve(promise, null);
+                });
     }
 
     @ReactMethod
     public void removeGroup(final String token, String groupKey, Dynamic groupID, Promise promise) {
-        MixpanelAPI instance = MixpanelAPI.getInstance(this.mReactContext, token, true);
-        if (instance == null) {
-            promise.reject("Instance Error", "Failed to get Mixpanel instance");
-            return;
-        }
-        synchronized (instance) {
-            instance.removeGroup(groupKey, ReactNativeHelper.dynamicToObject(groupID));
-            promise.resolve(null);
-        }
+        execute(token, "removeGroup", promise, () -> ReactNativeHelper.dynamicToObject(groupID),
+                (instance, groupIDObject) -> {
+                    writeSuperProperties(token, instance, () -> instance.removeGroup(groupKey, groupIDObject));
+                    resolve(promise, null);
+                });
     }
 
     @ReactMethod
     public void deleteGroup(final String token, String groupKey, Dynamic groupID, Promise promise) {
-        MixpanelAPI instance = MixpanelAPI.getInstance(this.mReactContext, token, true);
-        if (instance == null) {
-            promise.reject("Instance Error", "Failed to get Mixpanel instance");
-            return;
-        }
-        synchronized (instance) {
-            instance.getGroup(groupKey, ReactNativeHelper.dynamicToObject(groupID)).deleteGroup();
-            promise.resolve(null);
-        }
+        execute(token, "deleteGroup", promise, () -> ReactNativeHelper.dynamicToObject(groupID),
+                (instance, groupIDObject) -> {
+                    getGroup(token, instance, groupKey, groupIDObject).deleteGroup();
+                    getGroupHandles(token).remove(groupKey, groupIDObject);
+                    resolve(promise, null);
+                });
     }
 
+    /**
+     * Applies an ordered list of group operations, across any number of groups, with one instance lookup, lock
+     * acquisition and promise. See GroupBatch for the operation format.
+     */
     @ReactMethod
-    public void groupSetProperties(final String token, String groupKey, Dynamic groupID, ReadableMap properties, Promise promise) throws JSONException {
-        MixpanelAPI instance = MixpanelAPI.getInstance(this.mReactContext, token, true);
-        if (instance == null) {
-            promise.reject("Instance Error", "Failed to get Mixpanel instance");
-            return;
-        }
-        synchronized (instance) {
-            JSONObject sendProperties = ReactNativeHelper.reactToJSON(properties);
-            instance.getGroup(groupKey, ReactNativeHelper.dynamicToObject(groupID)).set(sendProperties);
-            promise.resolve(null);
-        }
+    public void groupBatch(final String token, ReadableArray operations, Promise promise) {
+        execute(token, "groupBatch", promise, () -> GroupBatch.fromReadableArray(operations), (instance, batch) -> {
+            batch.applyTo(instance, getGroupHandles(token));
+            resolve(promise, null);
+        });
+    }
+
+    private MixpanelAPI.Group getGroup(String token, MixpanelAPI instance, String groupKey, Object groupID) {
+        return getGroupHandles(token).get(instance, groupKey, groupID);
+    }
+
+    private GroupHandleCache getGroupHandles(String token) {
+        return state(token).groupHandles;
     }
 
     @ReactMethod
-    public void groupSetPropertyOnce(final String token, String groupKey, Dynamic groupID, ReadableMap properties, Promise promise) throws JSONException {
-        MixpanelAPI instance = MixpanelAPI.getInstance(this.mReactContext, token, true);
-        if (instance == null) {
-            promise.reject("Instance Error", "Failed to get Mixpanel instance");
-            return;
-        }
-        synchronized (instance) {
-            JSONObject sendProperties = ReactNativeHelper.reactToJSON(properties);
-            instance.getGroup(groupKey, ReactNativeHelper.dynamicToObject(groupID)).setOnce(sendProperties);
-            promise.resolve(null);
-        }
+    public void groupSetProperties(final String token, String groupKey, Dynamic groupID, ReadableMap properties, Promise promise) {
+        call(token, "groupSetProperties", promise, instance -> {
+            Object groupIDObject = ReactNativeHelper.dynamicToObject(groupID);
+            execute(token, instance, promise, () -> ReactNativeHelper.readableMapToJSON(properties), (current, sendProperties) -> {
+                getGroup(token, current, groupKey, groupIDObject).set(sendProperties);
+                resolve(promise, null);
+            });
+        });
     }
 
     @ReactMethod
-    public void groupUnsetProperty(final String token, String groupKey, Dynamic groupID, String propertyName, Promise promise) throws JSONException {
-        MixpanelAPI instance = MixpanelAPI.getInstance(this.mReactContext, token, true);
-        if (instance == null) {
-            promise.reject("Instance Error", "Failed to get Mixpanel instance");
-            return;
-        }
-        synchronized (instance) {
-            instance.getGroup(groupKey, ReactNativeHelper.dynamicToObject(groupID)).unset(propertyName);
-            promise.resolve(null);
-        }
+    public void groupSetPropertyOnce(final String token, String groupKey, Dynamic groupID, ReadableMap properties, Promise promise) {
+        call(token, "groupSetPropertyOnce", promise, instance -> {
+            Object groupIDObject = ReactNativeHelper.dynamicToObject(groupID);
+            execute(token, instance, promise, () -> ReactNativeHelper.readableMapToJSON(properties), (current, sendProperties) -> {
+                getGroup(token, current, groupKey, groupIDObject).setOnce(sendProperties);
+                resolve(promise, null);
+            });
+        });
     }
 
     @ReactMethod
-    public void groupRemovePropertyValue(final String token, String groupKey, Dynamic groupID, String name, Dynamic value, Promise promise) throws JSONException {
-        MixpanelAPI instance = MixpanelAPI.getInstance(this.mReactContext, token, true);
-        if (instance == null) {
-            promise.reject("Instance Error", "Failed to get Mixpanel instance");
-            return;
-        }
-        synchronized (instance) {
-            instance.getGroup(groupKey, ReactNativeHelper.dynamicToObject(groupID)).remove(name, ReactNativeHelper.dynamicToObject(value));
-            promise.resolve(null);
-        }
+    public void groupUnsetProperty(final String token, String groupKey, Dynamic groupID, String propertyName, Promise promise) {
+        execute(token, "groupUnsetProperty", promise, () -> ReactNativeHelper.dynamicToObject(groupID),
+                (instance, groupIDObject) -> {
+                    getGroup(token, instance, groupKey, groupIDObject).unset(propertyName);
+                    resolve(promise, null);
+                });
     }
 
     @ReactMethod
-    public void groupUnionProperty(final String token, String groupKey, Dynamic groupID, String name, ReadableArray values, Promise promise) throws JSONException {
-        MixpanelAPI instance = MixpanelAPI.getInstance(this.mReactContext, token, true);
-        if (instance == null) {
-            promise.reject("Instance Error", "Failed to get Mixpanel instance");
-            return;
-        }
-        synchronized (instance) {
-            JSONArray arrayValues = ReactNativeHelper.reactToJSON(values);
-            instance.getGroup(groupKey, ReactNativeHelper.dynamicToObject(groupID)).union(name, arrayValues);
-            promise.resolve(null);
-        }
+    public void groupRemovePropertyValue(final String token, String groupKey, Dynamic groupID, String name, Dynamic value, Promise promise) {
+        call(token, "groupRemovePropertyValue", promise, instance -> {
+            Object groupIDObject = ReactNativeHelper.dynamicToObject(groupID);
+            execute(token, instance, promise, () -> ReactNativeHelper.dynamicToObject(value), (current, valueObject) -> {
+                getGroup(token, current, groupKey, groupIDObject).remove(name, valueObject);
+                resolve(promise, null);
+            });
+        });
+    }
+
+    @ReactMethod
+    public void groupUnionProperty(final String token, String groupKey, Dynamic groupID, String name, ReadableArray values, Promise promise) {
+        call(token, "groupUnionProperty", promise, instance -> {
+            Object groupIDObject = ReactNativeHelper.dynamicToObject(groupID);
+            execute(token, instance, promise, () -> ReactNativeHelper.reactToJSON(values), (current, arrayValues) -> {
+                getGroup(token, current, groupKey, groupIDObject).union(name, arrayValues);
+                resolve(promise, null);
+            });
+        });
+    }
+
+    // Promise-less variants of the write-only methods. They skip the promise allocation on both sides of the
+    // bridge and the resolve message sent back to JS; failures are reported through ErrorReporter.EVENT_NAME.
+
+    @ReactMethod
+    public void trackVoid(final String token, final String eventName, ReadableMap properties) {
+        runWithoutPromise(() -> track(token, eventName, properties, null));
+    }
+
+    @ReactMethod
+    public void trackBatchVoid(final String token, ReadableArray events) {
+        runWithoutPromise(() -> trackBatch(token, events, null));
+    }
+
+    @ReactMethod
+    public void trackWithGroupsVoid(final String token, String eventName, ReadableMap properties, ReadableMap groups) {
+        runWithoutPromise(() -> trackWithGroups(token, eventName, properties, groups, null));
+    }
+
+    @ReactMethod
+    public void timeEventVoid(final String token, final String eventName) {
+        runWithoutPromise(() -> timeEvent(token, eventName, null));
+    }
+
+    @ReactMethod
+    public void registerSuperPropertiesVoid(final String token, ReadableMap properties) {
+        runWithoutPromise(() -> registerSuperProperties(token, properties, null));
+    }
+
+    @ReactMethod
+    public void registerSuperPropertiesOnceVoid(final String token, ReadableMap properties) {
+        runWithoutPromise(() -> registerSuperPropertiesOnce(token, properties, null));
+    }
+
+    @ReactMethod
+    public void setVoid(final String token, ReadableMap properties) {
+        runWithoutPromise(() -> set(token, properties, null));
+    }
+
+    @ReactMethod
+    public void setOnceVoid(final String token, ReadableMap properties) {
+        runWithoutPromise(() -> setOnce(token, properties, null));
+    }
+
+    @ReactMethod
+    public void unsetVoid(final String token, String propertyName) {
+        runWithoutPromise(() -> unset(token, propertyName, null));
+    }
+
+    @ReactMethod
+    public void incrementVoid(final String token, ReadableMap properties) {
+        runWithoutPromise(() -> increment(token, properties, null));
+    }
+
+    @ReactMethod
+    public void appendVoid(final String token, String name, Dynamic value) {
+        runWithoutPromise(() -> append(token, name, value, null));
+    }
+
+    @ReactMethod
+    public void unionVoid(final String token, String name, ReadableArray value) {
+        runWithoutPromise(() -> union(token, name, value, null));
+    }
+
+    @ReactMethod
+    public void removeVoid(final String token, String name, Dynamic value) {
+        runWithoutPromise(() -> remove(token, name, value, null));
+    }
+
+    // Synchronous variants of the cheap reads. They answer from the identity and super properties the token's
+    // calls published, so they never wait for the queued calls; a write still queued is not visible to them yet.
+
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public String getDistinctIdSync(final String token) {
+        return callSync(token, "getDistinctIdSync", (state, instance) -> {
+            SerialInstanceExecutor.IdentitySnapshot identity = publishedIdentity(state);
+            return identity != null ? identity.distinctId : null;
+        });
+    }
+
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public String getDeviceIdSync(final String token) {
+        return callSync(token, "getDeviceIdSync", (state, instance) -> {
+            SerialInstanceExecutor.IdentitySnapshot identity = publishedIdentity(state);
+            return identity != null ? identity.deviceId : null;
+        });
+    }
+
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public boolean hasOptedOutTrackingSync(final String token) {
+        Boolean optedOut = callSync(token, "hasOptedOutTrackingSync", (state, instance) -> {
+            SerialInstanceExecutor.IdentitySnapshot identity = publishedIdentity(state);
+            return identity != null ? Boolean.valueOf(identity.optedOut) : null;
+        });
+        return optedOut != null && optedOut;
+    }
+
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public double eventElapsedTimeSync(final String token, final String eventName) {
+        // the SDK guards its event timings itself
+        Double elapsedTime = callSync(token, "eventElapsedTimeSync",
+                (state, instance) -> instance.eventElapsedTime(eventName));
+        return elapsedTime != null ? elapsedTime : 0;
+    }
+
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public WritableMap getSuperPropertiesSync(final String token) {
+        return callSync(token, "getSuperPropertiesSync", (state, instance) -> {
+            WritableMap superProperties = state.superProperties.peek();
+            return superProperties != null ? superProperties : state.superProperties.get(instance);
+        });
     }
 }
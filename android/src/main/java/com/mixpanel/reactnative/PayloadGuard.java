@@ -0,0 +1,128 @@
+package com.mixpanel.reactnative;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import org.json.JSONException;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits on the properties converted by ReactNativeHelper: the nesting depth, the number of keys of an object,
+ * the length of an array and the estimated serialized size of the whole payload. The converters check them as
+ * they go, so an oversized payload is truncated, or rejected, as soon as a limit is reached.
+ */
+class PayloadGuard {
+    private final int mMaxDepth;
+    private final int mMaxKeys;
+    private final int mMaxArrayLength;
+    private final long mMaxBytes;
+    private final boolean mReject;
+    private final AtomicLong mTruncated = new AtomicLong();
+    private final AtomicLong mRejected = new AtomicLong();
+
+    /**
+     * @param reject whether a payload over a limit fails its call with a conversion error instead of being truncated.
+     */
+    PayloadGuard(int maxDepth, int maxKeys, int maxArrayLength, long maxBytes, boolean reject) {
+        mMaxDepth = maxDepth;
+        mMaxKeys = maxKeys;
+        mMaxArrayLength = maxArrayLength;
+        mMaxBytes = maxBytes;
+        mReject = reject;
+    }
+
+    /**
+     * Starts the conversion of one payload.
+     */
+    Budget newBudget() {
+        return new Budget();
+    }
+
+    WritableMap snapshot() {
+        WritableMap stats = Arguments.createMap();
+        stats.putDouble("maxDepth", mMaxDepth);
+        stats.putDouble("maxKeys", mMaxKeys);
+        stats.putDouble("maxArrayLength", mMaxArrayLength);
+        stats.putDouble("maxBytes", mMaxBytes);
+        stats.putBoolean("reject", mReject);
+        stats.putDouble("truncated", mTruncated.get());
+        stats.putDouble("rejected", mRejected.get());
+        return stats;
+    }
+
+    /**
+     * What is left of the limits while converting one payload. Each check returns false when the entry or value has
+     * to be left out, or throws when the guard rejects oversized payloads. Not thread-safe.
+     */
+    final class Budget {
+        private long mBytes;
+        private boolean mLeftOut;
+
+        /**
+         * Checks the index-th key of an object. Once the byte limit is reached every key is refused.
+         */
+        boolean acceptKey(int index, String key) throws JSONException {
+            if (index >= mMaxKeys) {
+                return exceeded("more than " + mMaxKeys + " keys");
+            }
+            // "key":
+            return charge(key.length() + 3);
+        }
+
+        /**
+         * Checks the index-th element of an array.
+         */
+        boolean acceptElement(int index) throws JSONException {
+            if (index >= mMaxArrayLength) {
+                return exceeded("an array longer than " + mMaxArrayLength);
+            }
+            return charge(1);
+        }
+
+        /**
+         * Checks an object or array nested at the given depth, the top-level object being at depth 1.
+         */
+        boolean acceptContainer(int depth) throws JSONException {
+            if (depth > mMaxDepth) {
+                return exceeded("nesting deeper than " + mMaxDepth);
+            }
+            return charge(2);
+        }
+
+        /**
+         * Checks a scalar of the given estimated serialized size.
+         */
+        boolean acceptScalar(int bytes) throws JSONException {
+            return charge(bytes);
+        }
+
+        /**
+         * Counts the payload as truncated if anything was left out.
+         */
+        void finish() {
+            if (mLeftOut) {
+                mTruncated.incrementAndGet();
+            }
+        }
+
+        private boolean charge(int bytes) throws JSONException {
+            if (mBytes + bytes > mMaxBytes) {
+                // anything after the first entry over the limit is left out too
+                mBytes = mMaxBytes + 1;
+                return exceeded("more than " + mMaxBytes + " bytes");
+            }
+            mBytes += bytes;
+            return true;
+        }
+
+        private boolean exceeded(String limit) throws JSONException {
+            if (mReject) {
+                mRejected.incrementAndGet();
+                throw new JSONException("Properties exceed the payload limits: " + limit);
+            }
+            mLeftOut = true;
+            return false;
+        }
+    }
+}
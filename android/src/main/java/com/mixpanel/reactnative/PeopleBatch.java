@@ -0,0 +1,163 @@
+package com.mixpanel.reactnative;
+
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.mixpanel.android.mpmetrics.MixpanelAPI;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An ordered list of People operations converted from a single bridge call. Consecutive operations that combine
+ * into one profile update are merged while converting: sets into one set, setOnces into one setOnce keeping the
+ * first value of each property, increments summed per property and unions of the same property concatenated.
+ */
+class PeopleBatch {
+    static final String SET = "set";
+    static final String SET_ONCE = "setOnce";
+    static final String INCREMENT = "increment";
+    static final String UNION = "union";
+    static final String APPEND = "append";
+    static final String REMOVE = "remove";
+    static final String UNSET = "unset";
+
+    private final List<Operation> mOperations = new ArrayList<>();
+
+    /**
+     * Converts operations of the form {operation, properties} for set, setOnce and increment, {operation, name,
+     * value} for union, append and remove, and {operation, name} for unset.
+     */
+    static PeopleBatch fromReadableArray(String token, ReadableArray operations) throws JSONException {
+        PeopleBatch batch = new PeopleBatch();
+        for (int i = 0; i < operations.size(); i++) {
+            batch.add(operations.getMap(i));
+        }
+        for (Operation operation : batch.mOperations) {
+            if (operation.properties != null) {
+                AutomaticProperties.appendLibraryProperties(token, operation.properties);
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Number of profile updates left after merging.
+     */
+    int size() {
+        return mOperations.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    void applyTo(MixpanelAPI.People people) {
+        for (Operation operation : mOperations) {
+            switch (operation.type) {
+                case SET:
+                    people.set(operation.properties);
+                    break;
+                case SET_ONCE:
+                    people.setOnce(operation.properties);
+                    break;
+                case INCREMENT:
+                    people.increment((Map) operation.increments);
+                    break;
+                case UNION:
+                    people.union(operation.name, operation.values);
+                    break;
+                case APPEND:
+                    people.append(operation.name, operation.value);
+                    break;
+                case REMOVE:
+                    people.remove(operation.name, operation.value);
+                    break;
+                case UNSET:
+                    people.unset(operation.name);
+                    break;
+            }
+        }
+    }
+
+    private void add(ReadableMap operation) throws JSONException {
+        String type = operation.hasKey("operation") ? operation.getString("operation") : null;
+        if (type == null) {
+            throw new JSONException("Missing people operation");
+        }
+        Operation last = mOperations.isEmpty() ? null : mOperations.get(mOperations.size() - 1);
+        boolean mergeable = last != null && last.type.equals(type);
+        Operation added = new Operation(type);
+        switch (type) {
+            case SET:
+            case SET_ONCE:
+                JSONObject properties = ReactNativeHelper.readableMapToJSON(operation.getMap("properties"));
+                if (mergeable) {
+                    boolean keepFirst = SET_ONCE.equals(type);
+                    for (Iterator<String> keys = properties.keys(); keys.hasNext(); ) {
+                        String key = keys.next();
+                        if (!keepFirst || !last.properties.has(key)) {
+                            last.properties.put(key, properties.get(key));
+                        }
+                    }
+                    return;
+                }
+                added.properties = properties;
+                break;
+            case INCREMENT:
+                Map<String, Object> increments = ReactNativeHelper.toMap(operation.getMap("properties"));
+                if (mergeable) {
+                    for (Map.Entry<String, Object> entry : increments.entrySet()) {
+                        Object previous = last.increments.get(entry.getKey());
+                        Object value = entry.getValue();
+                        if (previous instanceof Number && value instanceof Number) {
+                            value = ((Number) previous).doubleValue() + ((Number) value).doubleValue();
+                        }
+                        last.increments.put(entry.getKey(), value);
+                    }
+                    return;
+                }
+                added.increments = new HashMap<>(increments);
+                break;
+            case UNION:
+                String name = operation.getString("name");
+                JSONArray values = ReactNativeHelper.reactToJSON(operation.getArray("value"));
+                if (mergeable && last.name.equals(name)) {
+                    for (int i = 0; i < values.length(); i++) {
+                        last.values.put(values.get(i));
+                    }
+                    return;
+                }
+                added.name = name;
+                added.values = values;
+                break;
+            case APPEND:
+            case REMOVE:
+                added.name = operation.getString("name");
+                added.value = ReactNativeHelper.mixedToObject(operation, "value");
+                break;
+            case UNSET:
+                added.name = operation.getString("name");
+                break;
+            default:
+                throw new JSONException("Unsupported people operation: " + type);
+        }
+        mOperations.add(added);
+    }
+
+    private static final class Operation {
+        final String type;
+        JSONObject properties;
+        Map<String, Object> increments;
+        String name;
+        JSONArray values;
+        Object value;
+
+        Operation(String type) {
+            this.type = type;
+        }
+    }
+}
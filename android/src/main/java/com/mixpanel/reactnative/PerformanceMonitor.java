@@ -0,0 +1,241 @@
+package com.mixpanel.reactnative;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records per token and per bridge method the call latency, the time spent converting arguments and the time
+ * spent waiting for the instance lock. Samples go to striped atomic histograms and allocate nothing; when the
+ * monitor is disabled every entry point but end() returns after a single volatile read.
+ */
+class PerformanceMonitor {
+    static final String EVENT_NAME = "MixpanelReactNativePerformance";
+
+    private final ReactApplicationContext mReactContext;
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, MethodStats>> mStats = new ConcurrentHashMap<>();
+    private final ThreadLocal<Call> mCurrentCall = new ThreadLocal<Call>() {
+        @Override
+        protected Call initialValue() {
+            return new Call();
+        }
+    };
+    private volatile boolean mEnabled;
+
+    PerformanceMonitor(ReactApplicationContext reactContext) {
+        mReactContext = reactContext;
+    }
+
+    void setEnabled(boolean enabled) {
+        mEnabled = enabled;
+    }
+
+    boolean isEnabled() {
+        return mEnabled;
+    }
+
+    /**
+     * Starts timing a bridge call on the current thread.
+     */
+    void begin(String token, String method) {
+        if (!mEnabled) {
+            return;
+        }
+        Call call = mCurrentCall.get();
+        call.stats = getMethodStats(token, method);
+        call.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Records the time the current call spent converting its arguments.
+     */
+    void conversionDone() {
+        if (!mEnabled) {
+            return;
+        }
+        Call call = mCurrentCall.get();
+        if (call.stats != null) {
+            call.stats.conversion.record(System.nanoTime() - call.startNanos);
+        }
+    }
+
+    /**
+     * Returns the statistics of the call begun on this thread and stops timing it, or null when nothing is timed.
+     * Each begun call is handed over once, so internal dispatches made without begin() are not recorded.
+     */
+    MethodStats takeStats() {
+        if (!mEnabled) {
+            return null;
+        }
+        Call call = mCurrentCall.get();
+        MethodStats stats = call.stats;
+        call.stats = null;
+        return stats;
+    }
+
+    /**
+     * Finishes the call begun on this thread. A call that was not handed over to a dispatch, such as one rejected,
+     * dropped or answered right away, is recorded with its latency so far. The thread never keeps the stats of a
+     * finished call, even when the monitor was disabled in the meantime.
+     */
+    void end() {
+        Call call = mCurrentCall.get();
+        MethodStats stats = call.stats;
+        if (stats == null) {
+            return;
+        }
+        call.stats = null;
+        if (mEnabled) {
+            stats.latency.record(System.nanoTime() - call.startNanos);
+        }
+    }
+
+    /**
+     * Returns the start time of the last call begun on this thread.
+     */
+    long startNanos() {
+        return mCurrentCall.get().startNanos;
+    }
+
+    private MethodStats getMethodStats(String token, String method) {
+        ConcurrentHashMap<String, MethodStats> tokenStats = mStats.get(token);
+        if (tokenStats == null) {
+            ConcurrentHashMap<String, MethodStats> created = new ConcurrentHashMap<>();
+            tokenStats = mStats.putIfAbsent(token, created);
+            if (tokenStats == null) {
+                tokenStats = created;
+            }
+        }
+        MethodStats stats = tokenStats.get(method);
+        if (stats == null) {
+            MethodStats created = new MethodStats();
+            stats = tokenStats.putIfAbsent(method, created);
+            if (stats == null) {
+                stats = created;
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Returns the statistics of the token's bridge methods, keyed by method name.
+     */
+    WritableMap snapshot(String token) {
+        WritableMap methods = Arguments.createMap();
+        ConcurrentHashMap<String, MethodStats> tokenStats = mStats.get(token);
+        if (tokenStats != null) {
+            for (Map.Entry<String, MethodStats> entry : tokenStats.entrySet()) {
+                methods.putMap(entry.getKey(), entry.getValue().snapshot());
+            }
+        }
+        return methods;
+    }
+
+    /**
+     * Sends the statistics of every token to JS, keyed by token.
+     */
+    void report() {
+        if (!mEnabled || !mReactContext.hasActiveReactInstance()) {
+            return;
+        }
+        WritableMap report = Arguments.createMap();
+        for (String token : mStats.keySet()) {
+            report.putMap(token, snapshot(token));
+        }
+        mReactContext
+                .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                .emit(EVENT_NAME, report);
+    }
+
+    private static final class Call {
+        MethodStats stats;
+        long startNanos;
+    }
+
+    static final class MethodStats {
+        final Histogram latency = new Histogram();
+        final Histogram conversion = new Histogram();
+        final Histogram lockWait = new Histogram();
+
+        WritableMap snapshot() {
+            WritableMap stats = Arguments.createMap();
+            stats.putDouble("calls", latency.count());
+            stats.putMap("latency", latency.snapshot());
+            stats.putMap("conversion", conversion.snapshot());
+            stats.putMap("lockWait", lockWait.snapshot());
+            return stats;
+        }
+    }
+
+    /**
+     * Log2 histogram of durations in microseconds. Bucket b counts the samples below 2^b us. Each thread writes
+     * to one of STRIPES copies of the counters, which are summed when a snapshot is taken.
+     */
+    static final class Histogram {
+        private static final int STRIPES = 4;
+        private static final int BUCKETS = 32;
+
+        private final AtomicLongArray mCounts = new AtomicLongArray(STRIPES * BUCKETS);
+        private final AtomicLongArray mTotalNanos = new AtomicLongArray(STRIPES);
+
+        void record(long nanos) {
+            int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+            long micros = nanos / 1000;
+            int bucket = micros <= 0 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+            mCounts.incrementAndGet(stripe * BUCKETS + bucket);
+            mTotalNanos.addAndGet(stripe, nanos);
+        }
+
+        long count() {
+            long count = 0;
+            for (int i = 0; i < mCounts.length(); i++) {
+                count += mCounts.get(i);
+            }
+            return count;
+        }
+
+        WritableMap snapshot() {
+            long[] buckets = new long[BUCKETS];
+            long count = 0;
+            long totalNanos = 0;
+            for (int stripe = 0; stripe < STRIPES; stripe++) {
+                for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                    long bucketCount = mCounts.get(stripe * BUCKETS + bucket);
+                    buckets[bucket] += bucketCount;
+                    count += bucketCount;
+                }
+                totalNanos += mTotalNanos.get(stripe);
+            }
+            WritableMap histogram = Arguments.createMap();
+            histogram.putDouble("count", count);
+            histogram.putDouble("meanUs", count > 0 ? totalNanos / 1000.0 / count : 0);
+            histogram.putDouble("p50Us", percentile(buckets, count, 0.5));
+            histogram.putDouble("p90Us", percentile(buckets, count, 0.9));
+            histogram.putDouble("p99Us", percentile(buckets, count, 0.99));
+            return histogram;
+        }
+
+        /**
+         * Returns the upper bound of the bucket holding the given percentile.
+         */
+        private static double percentile(long[] buckets, long count, double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(count * percentile);
+            long seen = 0;
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                seen += buckets[bucket];
+                if (seen >= rank) {
+                    return 1L << bucket;
+                }
+            }
+            return 1L << (BUCKETS - 1);
+        }
+    }
+}
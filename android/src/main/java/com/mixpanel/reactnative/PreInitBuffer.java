@@ -0,0 +1,50 @@
+package com.mixpanel.reactnative;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Captures the calls made for a token while its instance is created on a background thread. Once the instance
+ * is ready they are handed back in call order, to be replayed through the normal dispatch. At most maxCalls calls
+ * are held; later ones are dropped.
+ */
+class PreInitBuffer {
+
+    enum Offer {
+        /** The instance is ready: run the call now. */
+        RUN,
+        CAPTURED,
+        DROPPED
+    }
+
+    private final ArrayDeque<Runnable> mCalls = new ArrayDeque<>();
+    private final int mMaxCalls;
+    private boolean mReady;
+
+    PreInitBuffer(int maxCalls) {
+        mMaxCalls = maxCalls;
+    }
+
+    synchronized Offer offer(Runnable call) {
+        if (mReady) {
+            return Offer.RUN;
+        }
+        if (mCalls.size() >= mMaxCalls) {
+            return Offer.DROPPED;
+        }
+        mCalls.add(call);
+        return Offer.CAPTURED;
+    }
+
+    /**
+     * Marks the instance ready and returns the captured calls in call order.
+     * Later calls run directly, so the caller replays the returned ones before any other call of the token.
+     */
+    synchronized List<Runnable> ready() {
+        mReady = true;
+        List<Runnable> calls = new ArrayList<>(mCalls);
+        mCalls.clear();
+        return calls;
+    }
+}
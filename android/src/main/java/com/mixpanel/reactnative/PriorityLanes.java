@@ -0,0 +1,66 @@
+package com.mixpanel.reactnative;
+
+import com.mixpanel.android.mpmetrics.MixpanelAPI;
+
+import org.json.JSONObject;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Routes the prioritized events of a single token. Critical events are tracked right away and trigger a flush
+ * within the critical flush delay, coalescing the critical events of that delay into one request. Bulk events
+ * are held here instead of in the SDK's queue and handed to it every bulk flush interval, so expedited flushes
+ * do not send them early. Events tracked without a priority are queued by the SDK as usual.
+ */
+class PriorityLanes {
+    static final String CRITICAL = "critical";
+    static final String BULK = "bulk";
+
+    private final EventBuffer mBulkEvents;
+    private final long mCriticalFlushDelayMs;
+    private final ScheduledExecutorService mScheduler;
+    private final Runnable mOnCriticalFlush;
+    private boolean mFlushScheduled;
+
+    /**
+     * @param onCriticalFlush     run on the scheduler once the critical flush delay elapses; expected to dispatch
+     *                            the flush through the same path as the other calls of the token.
+     * @param onBulkFlushInterval run on the scheduler once the bulk flush interval elapses; expected to dispatch
+     *                            drainBulkTo likewise.
+     */
+    PriorityLanes(long criticalFlushDelayMs, long bulkFlushIntervalMs, int maxBulkEvents,
+                  ScheduledExecutorService scheduler, Runnable onCriticalFlush, Runnable onBulkFlushInterval) {
+        mBulkEvents = new EventBuffer(maxBulkEvents, bulkFlushIntervalMs, scheduler, onBulkFlushInterval);
+        mCriticalFlushDelayMs = criticalFlushDelayMs;
+        mScheduler = scheduler;
+        mOnCriticalFlush = onCriticalFlush;
+    }
+
+    /**
+     * Schedules the flush of a critical event, unless one is already scheduled.
+     */
+    synchronized void expediteFlush() {
+        if (mFlushScheduled) {
+            return;
+        }
+        mFlushScheduled = true;
+        mScheduler.schedule(() -> {
+            synchronized (PriorityLanes.this) {
+                mFlushScheduled = false;
+            }
+            mOnCriticalFlush.run();
+        }, mCriticalFlushDelayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Holds a bulk event, handing the held ones to the SDK once maxBulkEvents are held.
+     */
+    void addBulk(MixpanelAPI instance, String eventName, JSONObject properties) {
+        mBulkEvents.add(instance, eventName, properties);
+    }
+
+    void drainBulkTo(MixpanelAPI instance) {
+        mBulkEvents.drainTo(instance);
+    }
+}
@@ -1,9 +1,11 @@
 package com.mixpanel.reactnative;
 
+import android.util.JsonReader;
+import android.util.JsonToken;
+
 import com.facebook.react.bridge.Dynamic;
 import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.ReadableMap;
-import com.facebook.react.bridge.ReadableMapKeySetIterator;
 import com.facebook.react.bridge.ReadableType;
 import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
@@ -14,95 +16,486 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 public class ReactNativeHelper {
 
     private static final String UNSUPPORTED_TYPE = "Unsupported data type";
+    private static final int NUMBER_BYTES = 9;
+    private static final int BOOLEAN_BYTES = 6;
+    private static final int NULL_BYTES = 5;
+
+    private static volatile StringInterner sInterner;
+    private static volatile PayloadGuard sPayloadGuard;
+    // returned by the guarded conversions for a value that is left out
+    private static final Object OMITTED = new Object();
+
+    /**
+     * Sets the cache used to share property keys and short string values across events, or null to disable it.
+     */
+    static void setInterner(StringInterner interner) {
+        sInterner = interner;
+    }
+
+    static StringInterner getInterner() {
+        return sInterner;
+    }
+
+    /**
+     * Sets the limits enforced by every converter of properties headed for the SDK, or null to disable them.
+     */
+    static void setPayloadGuard(PayloadGuard guard) {
+        sPayloadGuard = guard;
+    }
+
+    static PayloadGuard getPayloadGuard() {
+        return sPayloadGuard;
+    }
+
+    private static String intern(StringInterner interner, String value) {
+        return interner != null ? interner.intern(value) : value;
+    }
 
     /**
-     * This method will convert the input of type ReadableMap into the Json object.
+     * This method will convert the input of type ReadableMap into the Json object, within the payload limits.
      */
     public static JSONObject reactToJSON(ReadableMap value) throws JSONException {
-        JSONObject properties = new JSONObject();
-        ReadableMapKeySetIterator iterator = value.keySetIterator();
+        return readableMapToJSON(value);
+    }
 
-        while (iterator.hasNextKey()) {
-            String key = iterator.nextKey();
-            ReadableType valueType = value.getType(key);
+    /**
+     * This method will convert the input of type ReadableArray into the Json
+     * object, within the payload limits. Non-finite numbers are left out.
+     */
+    public static JSONArray reactToJSON(ReadableArray value) throws JSONException {
+        PayloadGuard guard = sPayloadGuard;
+        if (guard == null) {
+            return readableArrayToJSON(value, sInterner, null, 1);
+        }
+        PayloadGuard.Budget budget = guard.newBudget();
+        JSONArray properties = readableArrayToJSON(value, sInterner, budget, 1);
+        budget.finish();
+        return properties;
+    }
 
-            switch (valueType) {
-            case Null:
-                properties.put(key, JSONObject.NULL);
-                break;
-            case Boolean:
-                properties.put(key, value.getBoolean(key));
-                break;
-            case Number:
-                double numberValue = value.getDouble(key);
-                if (!Double.isNaN(numberValue) && !Double.isInfinite(numberValue)) {
-                    properties.put(key, numberValue);
-                } else {
-                    properties.put(key, String.valueOf(numberValue));
-                }
-                break;
-            case String:
-                properties.put(key, value.getString(key));
-                break;
-            case Map:
-                properties.put(key, reactToJSON(value.getMap(key)));
-                break;
-            case Array:
-                properties.put(key, reactToJSON(value.getArray(key)));
+    /**
+     * Same as reactToJSON(ReadableArray), for arrays the library builds itself, such as the batches of JavaScript
+     * mode, which are neither limited nor interned.
+     */
+    static JSONArray reactToJSONWithoutLimits(ReadableArray value) throws JSONException {
+        return readableArrayToJSON(value, null, null, 1);
+    }
+
+    /**
+     * Converts the map reading every value once through the entry iterator, instead of a getType lookup followed
+     * by a typed getter.
+     */
+    public static JSONObject readableMapToJSON(ReadableMap value) throws JSONException {
+        PayloadGuard guard = sPayloadGuard;
+        if (guard == null) {
+            return readableMapToJSON(value, sInterner, null, 1);
+        }
+        PayloadGuard.Budget budget = guard.newBudget();
+        JSONObject properties = readableMapToJSON(value, sInterner, budget, 1);
+        budget.finish();
+        return properties;
+    }
+
+    private static JSONObject readableMapToJSON(ReadableMap value, StringInterner interner,
+                                                PayloadGuard.Budget budget, int depth) throws JSONException {
+        JSONObject properties = new JSONObject();
+        Iterator<Map.Entry<String, Object>> iterator = value.getEntryIterator();
+        int index = 0;
+
+        while (iterator.hasNext()) {
+            Map.Entry<String, Object> entry = iterator.next();
+            if (budget != null && !budget.acceptKey(index++, entry.getKey())) {
                 break;
-            default:
-                throw new IllegalArgumentException(UNSUPPORTED_TYPE + valueType);
+            }
+            Object entryValue = toJSONValue(entry.getValue(), interner, budget, depth);
+            if (entryValue != OMITTED) {
+                properties.put(intern(interner, entry.getKey()), entryValue);
             }
         }
         return properties;
     }
 
     /**
-     * This method will convert the input of type ReadableArray into the Json
-     * object.
+     * Parses the JSON.stringify() output of a properties object straight into a JSONObject, streaming over the
+     * string so that no ReadableMap is materialised on the way. An empty or null string is an empty object.
      */
-    public static JSONArray reactToJSON(ReadableArray value) throws JSONException {
+    public static JSONObject jsonToJSON(String json) throws JSONException {
+        if (json == null || json.isEmpty()) {
+            return new JSONObject();
+        }
+        PayloadGuard guard = sPayloadGuard;
+        PayloadGuard.Budget budget = guard != null ? guard.newBudget() : null;
+        JsonReader reader = new JsonReader(new StringReader(json));
+        try {
+            JSONObject properties = readJSONObject(reader, sInterner, budget, 1);
+            if (reader.peek() != JsonToken.END_DOCUMENT) {
+                throw new JSONException("Unexpected data after the properties object");
+            }
+            if (budget != null) {
+                budget.finish();
+            }
+            return properties;
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw new JSONException("Malformed properties JSON: " + e.getMessage());
+        }
+    }
+
+    private static JSONObject readJSONObject(JsonReader reader, StringInterner interner,
+                                             PayloadGuard.Budget budget, int depth) throws IOException, JSONException {
+        JSONObject properties = new JSONObject();
+        int index = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            if (budget != null && !budget.acceptKey(index++, key)) {
+                // the rest of the object is still consumed, without being built
+                reader.skipValue();
+                continue;
+            }
+            Object value = readJSONValue(reader, interner, budget, depth);
+            if (value != OMITTED) {
+                properties.put(intern(interner, key), value);
+            }
+        }
+        reader.endObject();
+        return properties;
+    }
+
+    private static JSONArray readJSONArray(JsonReader reader, StringInterner interner,
+                                           PayloadGuard.Budget budget, int depth) throws IOException, JSONException {
         JSONArray properties = new JSONArray();
+        int index = 0;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (budget != null && !budget.acceptElement(index++)) {
+                reader.skipValue();
+                continue;
+            }
+            Object value = readJSONValue(reader, interner, budget, depth);
+            if (value != OMITTED) {
+                properties.put(value);
+            }
+        }
+        reader.endArray();
+        return properties;
+    }
+
+    /**
+     * Reads the next value of the object or array at the given depth.
+     */
+    private static Object readJSONValue(JsonReader reader, StringInterner interner,
+                                        PayloadGuard.Budget budget, int depth) throws IOException, JSONException {
+        JsonToken token = reader.peek();
+        switch (token) {
+        case BEGIN_OBJECT:
+        case BEGIN_ARRAY:
+            if (budget != null && !budget.acceptContainer(depth + 1)) {
+                reader.skipValue();
+                return OMITTED;
+            }
+            return token == JsonToken.BEGIN_OBJECT
+                    ? readJSONObject(reader, interner, budget, depth + 1)
+                    : readJSONArray(reader, interner, budget, depth + 1);
+        case STRING:
+            String stringValue = reader.nextString();
+            if (budget != null && !budget.acceptScalar(stringValue.length() + 3)) {
+                return OMITTED;
+            }
+            return intern(interner, stringValue);
+        case NUMBER:
+            if (budget != null && !budget.acceptScalar(NUMBER_BYTES)) {
+                reader.skipValue();
+                return OMITTED;
+            }
+            // numbers arrive as doubles over the bridge as well
+            return reader.nextDouble();
+        case BOOLEAN:
+            if (budget != null && !budget.acceptScalar(BOOLEAN_BYTES)) {
+                reader.skipValue();
+                return OMITTED;
+            }
+            return reader.nextBoolean();
+        case NULL:
+            reader.nextNull();
+            if (budget != null && !budget.acceptScalar(NULL_BYTES)) {
+                return OMITTED;
+            }
+            return JSONObject.NULL;
+        default:
+            throw new JSONException(UNSUPPORTED_TYPE + token);
+        }
+    }
 
-        for (int i = 0; i < value.size(); i++) {
-            ReadableType valueType = value.getType(i);
+    /**
+     * Single-pass variant of toMap: every value is read once through the entry iterator. The output matches
+     * toMap, with nested arrays as Object[] and non-finite numbers as strings at any depth.
+     */
+    public static Map<String, Object> readableMapToMap(ReadableMap value) throws JSONException {
+        PayloadGuard guard = sPayloadGuard;
+        if (guard == null) {
+            return readableMapToMap(value, null, 1);
+        }
+        PayloadGuard.Budget budget = guard.newBudget();
+        Map<String, Object> mapProperties = readableMapToMap(value, budget, 1);
+        budget.finish();
+        return mapProperties;
+    }
 
-            switch (valueType) {
-            case Null:
-                properties.put(JSONObject.NULL);
-                break;
-            case Boolean:
-                properties.put(value.getBoolean(i));
+    private static Map<String, Object> readableMapToMap(ReadableMap value, PayloadGuard.Budget budget,
+                                                        int depth) throws JSONException {
+        Map<String, Object> mapProperties = new HashMap<>();
+        Iterator<Map.Entry<String, Object>> iterator = value.getEntryIterator();
+        int index = 0;
+
+        while (iterator.hasNext()) {
+            Map.Entry<String, Object> entry = iterator.next();
+            if (budget != null && !budget.acceptKey(index++, entry.getKey())) {
                 break;
-            case Number:
-                double numberValue = value.getDouble(i);
-                if (!Double.isNaN(numberValue) && !Double.isInfinite(numberValue)) {
-                    properties.put(numberValue);
+            }
+            Object entryValue = toMapValue(entry.getValue(), budget, depth);
+            if (entryValue != OMITTED) {
+                mapProperties.put(entry.getKey(), entryValue);
+            }
+        }
+        return mapProperties;
+    }
+
+    /**
+     * Converts a value read from an entry iterator, where nested containers may come as readable or plain ones,
+     * or returns OMITTED when the budget leaves it out.
+     */
+    private static Object toMapValue(Object value, PayloadGuard.Budget budget, int depth) throws JSONException {
+        if (value instanceof ReadableMap || value instanceof ReadableArray
+                || value instanceof Map || value instanceof List) {
+            if (budget != null && !budget.acceptContainer(depth + 1)) {
+                return OMITTED;
+            }
+            if (value instanceof ReadableMap) {
+                return readableMapToMap((ReadableMap) value, budget, depth + 1);
+            } else if (value instanceof ReadableArray) {
+                return readableArrayToArray((ReadableArray) value, budget, depth + 1);
+            } else if (value instanceof List) {
+                return listToArray((List<?>) value, budget, depth + 1);
+            }
+            Map<String, Object> mapProperties = new HashMap<>();
+            int index = 0;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                String key = (String) entry.getKey();
+                if (budget != null && !budget.acceptKey(index++, key)) {
+                    break;
+                }
+                Object entryValue = toMapValue(entry.getValue(), budget, depth + 1);
+                if (entryValue != OMITTED) {
+                    mapProperties.put(key, entryValue);
                 }
+            }
+            return mapProperties;
+        }
+        if (budget != null && !budget.acceptScalar(estimateBytes(value))) {
+            return OMITTED;
+        }
+        if (value instanceof Double) {
+            double numberValue = (Double) value;
+            if (Double.isNaN(numberValue) || Double.isInfinite(numberValue)) {
+                return String.valueOf(numberValue);
+            }
+        }
+        return value;
+    }
+
+    private static Object[] listToArray(List<?> value, PayloadGuard.Budget budget, int depth) throws JSONException {
+        ArrayList<Object> propertyList = new ArrayList<>(value.size());
+        for (int i = 0, size = value.size(); i < size; i++) {
+            if (budget != null && !budget.acceptElement(i)) {
+                break;
+            }
+            Object item = toMapValue(value.get(i), budget, depth);
+            if (item != OMITTED) {
+                propertyList.add(item);
+            }
+        }
+        return propertyList.toArray();
+    }
+
+    /**
+     * Same as listToArray, reading the array by index instead of copying it with toArrayList(), so the budget is
+     * charged before each element is read and the elements past a limit are never built.
+     */
+    private static Object[] readableArrayToArray(ReadableArray value, PayloadGuard.Budget budget,
+                                                 int depth) throws JSONException {
+        ArrayList<Object> propertyList = new ArrayList<>();
+        for (int i = 0, size = value.size(); i < size; i++) {
+            if (budget != null && !budget.acceptElement(i)) {
                 break;
+            }
+            ReadableType type = value.getType(i);
+            Object item;
+            if (type == ReadableType.Map || type == ReadableType.Array) {
+                if (budget != null && !budget.acceptContainer(depth + 1)) {
+                    continue;
+                }
+                item = type == ReadableType.Map
+                        ? readableMapToMap(value.getMap(i), budget, depth + 1)
+                        : readableArrayToArray(value.getArray(i), budget, depth + 1);
+            } else {
+                item = toMapValue(scalarAt(value, i, type), budget, depth);
+            }
+            if (item != OMITTED) {
+                propertyList.add(item);
+            }
+        }
+        return propertyList.toArray();
+    }
+
+    /**
+     * Reads the scalar at the index of the array, null for a null.
+     */
+    private static Object scalarAt(ReadableArray value, int index, ReadableType type) {
+        switch (type) {
+            case Boolean:
+                return value.getBoolean(index);
+            case Number:
+                return value.getDouble(index);
             case String:
-                properties.put(value.getString(i));
+                return value.getString(index);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Converts a value of the object or array at the given depth, or returns OMITTED when the budget leaves it out.
+     */
+    private static Object toJSONValue(Object value, StringInterner interner,
+                                      PayloadGuard.Budget budget, int depth) throws JSONException {
+        if (value instanceof ReadableMap || value instanceof ReadableArray
+                || value instanceof Map || value instanceof List) {
+            if (budget != null && !budget.acceptContainer(depth + 1)) {
+                return OMITTED;
+            }
+            if (value instanceof ReadableMap) {
+                return readableMapToJSON((ReadableMap) value, interner, budget, depth + 1);
+            } else if (value instanceof ReadableArray) {
+                return readableArrayToJSON((ReadableArray) value, interner, budget, depth + 1);
+            } else if (value instanceof Map) {
+                return mapToJSON((Map<?, ?>) value, interner, budget, depth + 1);
+            }
+            return listToJSON((List<?>) value, interner, budget, depth + 1);
+        }
+        if (budget != null && !budget.acceptScalar(estimateBytes(value))) {
+            return OMITTED;
+        }
+        if (value == null) {
+            return JSONObject.NULL;
+        } else if (value instanceof String) {
+            return intern(interner, (String) value);
+        } else if (value instanceof Double) {
+            double numberValue = (Double) value;
+            if (Double.isNaN(numberValue) || Double.isInfinite(numberValue)) {
+                return String.valueOf(numberValue);
+            }
+            return value;
+        }
+        return value;
+    }
+
+    private static JSONObject mapToJSON(Map<?, ?> value, StringInterner interner,
+                                        PayloadGuard.Budget budget, int depth) throws JSONException {
+        JSONObject properties = new JSONObject();
+        int index = 0;
+        for (Map.Entry<?, ?> entry : value.entrySet()) {
+            String key = (String) entry.getKey();
+            if (budget != null && !budget.acceptKey(index++, key)) {
                 break;
-            case Map:
-                properties.put(reactToJSON(value.getMap(i)));
+            }
+            Object entryValue = toJSONValue(entry.getValue(), interner, budget, depth);
+            if (entryValue != OMITTED) {
+                properties.put(intern(interner, key), entryValue);
+            }
+        }
+        return properties;
+    }
+
+    private static JSONArray listToJSON(List<?> value, StringInterner interner,
+                                        PayloadGuard.Budget budget, int depth) throws JSONException {
+        JSONArray properties = new JSONArray();
+        for (int i = 0, size = value.size(); i < size; i++) {
+            if (budget != null && !budget.acceptElement(i)) {
                 break;
-            case Array:
-                properties.put(reactToJSON(value.getArray(i)));
+            }
+            Object item = value.get(i);
+            if (item instanceof Double && (((Double) item).isNaN() || ((Double) item).isInfinite())) {
+                // non-finite numbers are dropped from arrays, as in readableArrayToJSON
+                continue;
+            }
+            Object converted = toJSONValue(item, interner, budget, depth);
+            if (converted != OMITTED) {
+                properties.put(converted);
+            }
+        }
+        return properties;
+    }
+
+    /**
+     * Same as listToJSON, reading the array by index instead of copying it with toArrayList(), so the budget is
+     * charged before each element is read and the elements past a limit are never built.
+     */
+    private static JSONArray readableArrayToJSON(ReadableArray value, StringInterner interner,
+                                                 PayloadGuard.Budget budget, int depth) throws JSONException {
+        JSONArray properties = new JSONArray();
+        for (int i = 0, size = value.size(); i < size; i++) {
+            if (budget != null && !budget.acceptElement(i)) {
                 break;
-            default:
-                throw new IllegalArgumentException(UNSUPPORTED_TYPE + valueType);
+            }
+            ReadableType type = value.getType(i);
+            Object converted;
+            if (type == ReadableType.Map || type == ReadableType.Array) {
+                if (budget != null && !budget.acceptContainer(depth + 1)) {
+                    continue;
+                }
+                converted = type == ReadableType.Map
+                        ? readableMapToJSON(value.getMap(i), interner, budget, depth + 1)
+                        : readableArrayToJSON(value.getArray(i), interner, budget, depth + 1);
+            } else {
+                Object item = scalarAt(value, i, type);
+                if (item instanceof Double && (((Double) item).isNaN() || ((Double) item).isInfinite())) {
+                    // non-finite numbers are dropped from arrays
+                    continue;
+                }
+                converted = toJSONValue(item, interner, budget, depth);
+            }
+            if (converted != OMITTED) {
+                properties.put(converted);
             }
         }
         return properties;
     }
 
+    /**
+     * Rough size of a scalar once serialized, including its separator.
+     */
+    private static int estimateBytes(Object value) {
+        if (value instanceof String) {
+            return ((String) value).length() + 3;
+        } else if (value instanceof Boolean) {
+            return BOOLEAN_BYTES;
+        } else if (value == null) {
+            return NULL_BYTES;
+        }
+        return NUMBER_BYTES;
+    }
+
     public static Object dynamicToObject(Dynamic value) {
         ReadableType valueType = value.getType();
 
@@ -123,75 +516,43 @@ public class ReactNativeHelper {
     }
 
     /**
-     * This method will convert the input of type ReadableMap into the Map.
+     * Reads a mixed value of a map the way dynamicToObject reads a Dynamic, without going through one.
      */
-    public static Map<String, Object> toMap(ReadableMap value) {
-        Map<String, Object> mapProperties = new HashMap<>();
-        ReadableMapKeySetIterator iterator = value.keySetIterator();
-
-        while (iterator.hasNextKey()) {
-            String key = iterator.nextKey();
-            ReadableType type = value.getType(key);
-
-            switch (type) {
-            case Null:
-                mapProperties.put(key, null);
-                break;
+    public static Object mixedToObject(ReadableMap map, String key) {
+        switch (map.getType(key)) {
             case Boolean:
-                mapProperties.put(key, value.getBoolean(key));
-                break;
+                return map.getBoolean(key);
             case Number:
-                double numberValue = value.getDouble(key);
-                if (!Double.isNaN(numberValue) && !Double.isInfinite(numberValue)) {
-                    mapProperties.put(key, value.getDouble(key));
-                } else {
-                    mapProperties.put(key, String.valueOf(numberValue));
-                }
-                break;
+                return map.getDouble(key);
             case String:
-                mapProperties.put(key, value.getString(key));
-                break;
+                return map.getString(key);
             case Map:
-                mapProperties.put(key, toMap(value.getMap(key)));
-                break;
+                return map.getMap(key);
             case Array:
-                mapProperties.put(key, toArray(value.getArray(key)));
-                break;
-            }
+                return map.getArray(key);
+            default:
+                return null;
         }
-        return mapProperties;
     }
 
     /**
-     * This method will convert the input of type ReadableArray into the Array.
+     * This method will convert the input of type ReadableMap into the Map, within the payload limits.
      */
-    public static Object[] toArray(ReadableArray value) {
-        Object[] propertyList = new Object[value.size()];
-
-        for (int i = 0; i < value.size(); i++) {
-            ReadableType type = value.getType(i);
+    public static Map<String, Object> toMap(ReadableMap value) throws JSONException {
+        return readableMapToMap(value);
+    }
 
-            switch (type) {
-            case Null:
-                propertyList[i] = null;
-                break;
-            case Boolean:
-                propertyList[i] = value.getBoolean(i);
-                break;
-            case Number:
-                propertyList[i] = value.getDouble(i);
-                break;
-            case String:
-                propertyList[i] = value.getString(i);
-                break;
-            case Map:
-                propertyList[i] = toMap(value.getMap(i));
-                break;
-            case Array:
-                propertyList[i] = toArray(value.getArray(i));
-                break;
-            }
+    /**
+     * This method will convert the input of type ReadableArray into the Array, within the payload limits.
+     */
+    public static Object[] toArray(ReadableArray value) throws JSONException {
+        PayloadGuard guard = sPayloadGuard;
+        if (guard == null) {
+            return readableArrayToArray(value, null, 1);
         }
+        PayloadGuard.Budget budget = guard.newBudget();
+        Object[] propertyList = readableArrayToArray(value, budget, 1);
+        budget.finish();
         return propertyList;
     }
 
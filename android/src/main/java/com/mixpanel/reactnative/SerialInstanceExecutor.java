@@ -0,0 +1,157 @@
+package com.mixpanel.reactnative;
+
+import com.mixpanel.android.mpmetrics.MixpanelAPI;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the calls made for a single token on a dedicated thread, in submission order and without
+ * taking the instance lock, so one slow call no longer stalls the native modules thread.
+ */
+class SerialInstanceExecutor {
+
+    private final ExecutorService mExecutor;
+    // guarded by this
+    private boolean mRetiring;
+    private boolean mRetired;
+    private final AtomicInteger mPendingIdentityWrites = new AtomicInteger();
+    private volatile IdentitySnapshot mIdentitySnapshot;
+
+    SerialInstanceExecutor(final String token) {
+        mExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "MixpanelReactNative-" + token);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Queues the task, or returns false once the executor is retired, in which case the caller
+     * runs it under the instance lock instead.
+     */
+    synchronized boolean execute(Runnable task) {
+        if (mRetired) {
+            return false;
+        }
+        mExecutor.execute(task);
+        return true;
+    }
+
+    /**
+     * Runs a call that may change the distinct id, device id or opt-out state, then publishes
+     * a fresh identity snapshot for readers. Returns false once the executor is retired.
+     */
+    boolean executeIdentityWrite(final MixpanelAPI instance, final Runnable task) {
+        return execute(identityWrite(instance, task));
+    }
+
+    /**
+     * Wraps an identity write to be executed later. The write is pending from now on, so readers
+     * stop using the snapshot it is about to replace.
+     */
+    Runnable identityWrite(final MixpanelAPI instance, final Runnable task) {
+        mPendingIdentityWrites.incrementAndGet();
+        return () -> {
+            try {
+                task.run();
+            } finally {
+                publishIdentity(instance);
+                mPendingIdentityWrites.decrementAndGet();
+            }
+        };
+    }
+
+    void publishIdentity(MixpanelAPI instance) {
+        mIdentitySnapshot = IdentitySnapshot.of(instance);
+    }
+
+    /**
+     * Returns the last published identity, or null while an identity write is still queued,
+     * in which case the read has to be queued behind it.
+     */
+    IdentitySnapshot currentIdentity() {
+        return mPendingIdentityWrites.get() == 0 ? mIdentitySnapshot : null;
+    }
+
+    /**
+     * Returns the last published identity, even while an identity write is still queued.
+     */
+    IdentitySnapshot publishedIdentity() {
+        return mIdentitySnapshot;
+    }
+
+    /**
+     * Retires the executor without waiting for it. A sentinel is queued behind the calls made so
+     * far, which keep running in order. When it is reached, the sentinel takes the instance lock,
+     * stops accepting calls, runs onRetired and then the calls queued behind it, so the calls made
+     * once the executor is gone, under the lock, run after all of them and never alongside.
+     */
+    void retire(final Object instanceLock, final Runnable onRetired) {
+        synchronized (this) {
+            if (mRetiring || mRetired) {
+                return;
+            }
+            mRetiring = true;
+        }
+        execute(() -> {
+            synchronized (instanceLock) {
+                List<Runnable> queued;
+                synchronized (SerialInstanceExecutor.this) {
+                    if (!mRetiring || mRetired) {
+                        // resumed meanwhile, or retired by an earlier sentinel
+                        return;
+                    }
+                    onRetired.run();
+                    mRetired = true;
+                    queued = mExecutor.shutdownNow();
+                }
+                // shutdownNow interrupts the thread this runs on
+                Thread.interrupted();
+                for (Runnable task : queued) {
+                    task.run();
+                }
+            }
+        });
+    }
+
+    /**
+     * Cancels a retirement whose sentinel has not been reached yet. Returns false once the
+     * executor is retired.
+     */
+    synchronized boolean resume() {
+        if (mRetired) {
+            return false;
+        }
+        mRetiring = false;
+        return true;
+    }
+
+    static final class IdentitySnapshot {
+        final String distinctId;
+        final String deviceId;
+        final boolean optedOut;
+
+        IdentitySnapshot(String distinctId, String deviceId, boolean optedOut) {
+            this.distinctId = distinctId;
+            this.deviceId = deviceId;
+            this.optedOut = optedOut;
+        }
+
+        /**
+         * Reads the identity of the instance; callers hold the instance lock or run on the serial thread.
+         */
+        static IdentitySnapshot of(MixpanelAPI instance) {
+            return new IdentitySnapshot(
+                    instance.getDistinctId(),
+                    instance.getAnonymousId(),
+                    instance.hasOptedOutTracking());
+        }
+    }
+}
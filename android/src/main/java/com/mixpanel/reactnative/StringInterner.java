@@ -0,0 +1,80 @@
+package com.mixpanel.reactnative;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded cache that maps equal property keys and short string values to a single shared instance,
+ * so the strings retained by queued events are not duplicated for every event.
+ *
+ * <p>The cache is a direct-mapped table of maxEntries slots without locks: a lookup reads one slot, a hit writes
+ * nothing and a miss replaces the string in its slot. Strings are immutable, so a racing reader sees either the
+ * old or the new string, and at worst misses. Hits and misses are counted on per-thread stripes.
+ */
+class StringInterner {
+    static final int MAX_VALUE_LENGTH = 64;
+
+    private static final int STRIPES = 8;
+    // one stripe per 64 bytes, so counting threads do not share a cache line
+    private static final int STRIPE_WIDTH = 8;
+
+    private final String[] mSlots;
+    private final AtomicLongArray mCounts = new AtomicLongArray(STRIPES * STRIPE_WIDTH);
+
+    StringInterner(final int maxEntries) {
+        mSlots = new String[maxEntries];
+    }
+
+    /**
+     * Returns the cached instance equal to the string, caching this one on a miss. Strings longer than
+     * MAX_VALUE_LENGTH are returned as is, as they are unlikely to repeat.
+     */
+    String intern(String value) {
+        if (value == null || value.length() > MAX_VALUE_LENGTH) {
+            return value;
+        }
+        int hash = value.hashCode();
+        int slot = ((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % mSlots.length;
+        int stripe = (int) (Thread.currentThread().getId() & (STRIPES - 1)) * STRIPE_WIDTH;
+        String cached = mSlots[slot];
+        if (value.equals(cached)) {
+            mCounts.incrementAndGet(stripe);
+            return cached;
+        }
+        mCounts.incrementAndGet(stripe + 1);
+        mSlots[slot] = value;
+        return value;
+    }
+
+    long getHits() {
+        return sum(0);
+    }
+
+    long getMisses() {
+        return sum(1);
+    }
+
+    /**
+     * Counts the occupied slots; only meant for the statistics.
+     */
+    int size() {
+        int size = 0;
+        for (String slot : mSlots) {
+            if (slot != null) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    int getMaxEntries() {
+        return mSlots.length;
+    }
+
+    private long sum(int offset) {
+        long sum = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            sum += mCounts.get(i * STRIPE_WIDTH + offset);
+        }
+        return sum;
+    }
+}
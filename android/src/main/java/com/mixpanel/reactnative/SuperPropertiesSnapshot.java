@@ -0,0 +1,85 @@
+package com.mixpanel.reactnative;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+import com.mixpanel.android.mpmetrics.MixpanelAPI;
+
+import org.json.JSONException;
+
+/**
+ * The super properties of a token converted for the bridge, kept until the next call that may change them bumps
+ * the version. They are written by the token's calls, which run one at a time, and peeked by the synchronous reads.
+ */
+class SuperPropertiesSnapshot {
+    static final String EVENT_NAME = "MixpanelReactNativeSuperPropertiesChanged";
+
+    private final String mToken;
+    private volatile long mVersion;
+    // the converted map and the version it was converted at, published together for peek()
+    private volatile Converted mSnapshot;
+    private volatile boolean mNotifyChanges;
+
+    SuperPropertiesSnapshot(String token) {
+        mToken = token;
+    }
+
+    /**
+     * Whether bumping the version also sends EVENT_NAME to JS, for its cache of the super properties.
+     */
+    void setNotifyChanges(boolean notifyChanges) {
+        mNotifyChanges = notifyChanges;
+    }
+
+    /**
+     * Returns a copy of the converted super properties, converting them again only if they changed since the last
+     * read. The copy is needed as a map passed over the bridge is consumed.
+     */
+    synchronized WritableMap get(MixpanelAPI instance) throws JSONException {
+        Converted snapshot = mSnapshot;
+        if (snapshot == null || snapshot.version != mVersion) {
+            snapshot = new Converted(ReactNativeHelper.convertJsonToMap(instance.getSuperProperties()), mVersion);
+            mSnapshot = snapshot;
+        }
+        return snapshot.map.copy();
+    }
+
+    /**
+     * Returns a copy of the converted super properties without taking the lock, or null when they changed since
+     * the last conversion.
+     */
+    WritableMap peek() {
+        Converted snapshot = mSnapshot;
+        return snapshot != null && snapshot.version == mVersion ? snapshot.map.copy() : null;
+    }
+
+    /**
+     * Marks the super properties as changed, to be called after the SDK call that changed them.
+     */
+    void bump(ReactApplicationContext reactContext) {
+        long version;
+        synchronized (this) {
+            version = ++mVersion;
+        }
+        if (!mNotifyChanges || !reactContext.hasActiveReactInstance()) {
+            return;
+        }
+        WritableMap change = Arguments.createMap();
+        change.putString("token", mToken);
+        change.putDouble("version", version);
+        reactContext
+                .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                .emit(EVENT_NAME, change);
+    }
+
+    private static final class Converted {
+        final WritableMap map;
+        final long version;
+
+        Converted(WritableMap map, long version) {
+            this.map = map;
+            this.version = version;
+        }
+    }
+}
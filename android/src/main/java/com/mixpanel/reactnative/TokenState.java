@@ -0,0 +1,34 @@
+package com.mixpanel.reactnative;
+
+import com.mixpanel.android.mpmetrics.MixpanelAPI;
+
+/**
+ * The native state of a token: its instance and the optional features enabled for it. Features are swapped by
+ * their bridge calls and read from any thread, so the references are volatile; the ones every token has are
+ * created along with the state.
+ */
+class TokenState {
+
+    final ContextStack contexts = new ContextStack();
+    final GroupHandleCache groupHandles = new GroupHandleCache(GroupHandleCache.DEFAULT_MAX_ENTRIES);
+    final SuperPropertiesSnapshot superProperties;
+
+    volatile MixpanelAPI instance;
+    /** The identity published by the identity writes made without serial execution. */
+    volatile SerialInstanceExecutor.IdentitySnapshot identity;
+    volatile SerialInstanceExecutor executor;
+    volatile ConversionPipeline pipeline;
+    volatile EventBuffer eventBuffer;
+    volatile EventSampler sampler;
+    volatile EventAggregator aggregator;
+    volatile PriorityLanes priorityLanes;
+    volatile AdaptiveFlushScheduler flushScheduler;
+    /** The maxPendingCalls of setAsyncInitializationEnabled, or null when it is off. */
+    volatile Integer maxPendingCalls;
+    /** Set while the instance is created in the background. */
+    volatile PreInitBuffer preInitBuffer;
+
+    TokenState(String token) {
+        superProperties = new SuperPropertiesSnapshot(token);
+    }
+}
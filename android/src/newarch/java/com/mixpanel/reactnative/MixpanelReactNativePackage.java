@@ -0,0 +1,58 @@
+package com.mixpanel.reactnative;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.facebook.react.TurboReactPackage;
+import com.facebook.react.bridge.NativeModule;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.module.model.ReactModuleInfo;
+import com.facebook.react.module.model.ReactModuleInfoProvider;
+
+public class MixpanelReactNativePackage extends TurboReactPackage {
+    @Override
+    public NativeModule getModule(String name, ReactApplicationContext reactContext) {
+        if (NativeMixpanelReactNativeSpec.NAME.equals(name)) {
+            return new MixpanelReactNativeModule(reactContext);
+        }
+        if (NativeMixpanelQueueStorageSpec.NAME.equals(name)) {
+            return new MixpanelQueueStorageModule(reactContext);
+        }
+        if (NativeMixpanelBatchSenderSpec.NAME.equals(name)) {
+            return new MixpanelBatchSenderModule(reactContext);
+        }
+        return null;
+    }
+
+    @Override
+    public ReactModuleInfoProvider getReactModuleInfoProvider() {
+        return () -> {
+            Map<String, ReactModuleInfo> moduleInfos = new HashMap<>();
+            moduleInfos.put(NativeMixpanelReactNativeSpec.NAME, new ReactModuleInfo(
+                    NativeMixpanelReactNativeSpec.NAME,
+                    MixpanelReactNativeModule.class.getName(),
+                    false, // canOverrideExistingModule
+                    false, // needsEagerInit
+                    false, // isCxxModule
+                    true // isTurboModule
+            ));
+            moduleInfos.put(NativeMixpanelQueueStorageSpec.NAME, new ReactModuleInfo(
+                    NativeMixpanelQueueStorageSpec.NAME,
+                    MixpanelQueueStorageModule.class.getName(),
+                    false, // canOverrideExistingModule
+                    false, // needsEagerInit
+                    false, // isCxxModule
+                    true // isTurboModule
+            ));
+            moduleInfos.put(NativeMixpanelBatchSenderSpec.NAME, new ReactModuleInfo(
+                    NativeMixpanelBatchSenderSpec.NAME,
+                    MixpanelBatchSenderModule.class.getName(),
+                    false, // canOverrideExistingModule
+                    false, // needsEagerInit
+                    false, // isCxxModule
+                    true // isTurboModule
+            ));
+            return moduleInfos;
+        };
+    }
+}
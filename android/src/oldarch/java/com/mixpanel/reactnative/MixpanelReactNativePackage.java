@@ -13,7 +13,10 @@ import com.facebook.react.bridge.JavaScriptModule;
 public class MixpanelReactNativePackage implements ReactPackage {
     @Override
     public List<NativeModule> createNativeModules(ReactApplicationContext reactContext) {
-        return Arrays.<NativeModule>asList(new MixpanelReactNativeModule(reactContext));
+        return Arrays.<NativeModule>asList(
+                new MixpanelReactNativeModule(reactContext),
+                new MixpanelQueueStorageModule(reactContext),
+                new MixpanelBatchSenderModule(reactContext));
     }
 
     // Deprecated from RN 0.47
@@ -0,0 +1,21 @@
+package com.mixpanel.reactnative;
+
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+
+/**
+ * Legacy architecture stand-in for the codegen spec generated from javascript/NativeMixpanelQueueStorage.js,
+ * so MixpanelQueueStorageModule has the same base class on both architectures.
+ */
+abstract class NativeMixpanelQueueStorageSpec extends ReactContextBaseJavaModule {
+    public static final String NAME = "MixpanelQueueStorage";
+
+    NativeMixpanelQueueStorageSpec(ReactApplicationContext reactContext) {
+        super(reactContext);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+}
@@ -0,0 +1,21 @@
+package com.mixpanel.reactnative;
+
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+
+/**
+ * Legacy architecture stand-in for the codegen spec generated from javascript/NativeMixpanelReactNative.js,
+ * so MixpanelReactNativeModule has the same base class on both architectures.
+ */
+abstract class NativeMixpanelReactNativeSpec extends ReactContextBaseJavaModule {
+    public static final String NAME = "MixpanelReactNative";
+
+    NativeMixpanelReactNativeSpec(ReactApplicationContext reactContext) {
+        super(reactContext);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+}
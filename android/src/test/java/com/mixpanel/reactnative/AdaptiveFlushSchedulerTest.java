@@ -0,0 +1,239 @@
+package com.mixpanel.reactnative;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.Application;
+import android.content.Context;
+import android.content.Intent;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkInfo;
+import android.os.Build;
+import android.os.Looper;
+import android.os.PowerManager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowNetwork;
+import org.robolectric.shadows.ShadowNetworkCapabilities;
+import org.robolectric.shadows.ShadowNetworkInfo;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drives AdaptiveFlushScheduler with simulated lifecycle, connectivity, battery saver and enqueue signals on
+ * Robolectric's paused main looper, which only advances time when told to. Connectivity changes are reported
+ * through the default network callback, and through the connectivity broadcast before API 24.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class AdaptiveFlushSchedulerTest {
+    private static final long INTERVAL_MS = 60000;
+    private static final int QUEUE_DEPTH = 50;
+
+    private final AtomicInteger mFlushes = new AtomicInteger();
+    private final Network mNetwork = ShadowNetwork.newInstance(1);
+    private Application mApplication;
+    private AdaptiveFlushScheduler mScheduler;
+
+    @Before
+    public void setUp() {
+        mApplication = RuntimeEnvironment.getApplication();
+        mScheduler = new AdaptiveFlushScheduler(Looper.getMainLooper(), INTERVAL_MS, QUEUE_DEPTH,
+                mFlushes::incrementAndGet);
+        mScheduler.start(mApplication);
+        idleFor(0);
+        setActiveNetwork(NetworkCapabilities.TRANSPORT_WIFI, true);
+    }
+
+    @After
+    public void tearDown() {
+        mScheduler.stop();
+    }
+
+    @Test
+    public void flushesEveryIntervalInForeground() {
+        mScheduler.onEnqueue(1);
+        idleFor(INTERVAL_MS - 1);
+        assertEquals(0, mFlushes.get());
+
+        idleFor(1);
+        assertEquals(1, mFlushes.get());
+        assertEquals(1, mScheduler.getFlushCount(AdaptiveFlushScheduler.Reason.INTERVAL));
+        assertEquals("flush", mScheduler.getLastAction());
+    }
+
+    @Test
+    public void flushesRightAwayOnBackground() {
+        mScheduler.onEnqueue(3);
+        mScheduler.onHostPause();
+        assertEquals(1, mFlushes.get());
+        assertEquals(1, mScheduler.getFlushCount(AdaptiveFlushScheduler.Reason.BACKGROUND));
+
+        // events tracked in the background are flushed shortly after
+        mScheduler.onEnqueue(1);
+        idleFor(AdaptiveFlushScheduler.COALESCE_MS);
+        assertEquals(2, mFlushes.get());
+        assertEquals(2, mScheduler.getFlushCount(AdaptiveFlushScheduler.Reason.BACKGROUND));
+    }
+
+    @Test
+    public void doesNotFlushOnBackgroundWhenNothingIsQueued() {
+        mScheduler.onHostPause();
+        idleFor(INTERVAL_MS);
+        assertEquals(0, mFlushes.get());
+    }
+
+    @Test
+    public void backsOffOnMeteredNetwork() {
+        mScheduler.onConnectivityChanged(true, true, false);
+        mScheduler.onEnqueue(1);
+        assertEquals(INTERVAL_MS * AdaptiveFlushScheduler.BACKOFF_FACTOR, mScheduler.getLastDelayMs());
+
+        idleFor(INTERVAL_MS);
+        assertEquals(0, mFlushes.get());
+
+        idleFor(INTERVAL_MS * (AdaptiveFlushScheduler.BACKOFF_FACTOR - 1));
+        assertEquals(1, mFlushes.get());
+    }
+
+    @Test
+    public void backsOffInBatterySaver() {
+        PowerManager powerManager = (PowerManager) mApplication.getSystemService(Context.POWER_SERVICE);
+        shadowOf(powerManager).setIsPowerSaveMode(true);
+        mApplication.sendBroadcast(new Intent(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED));
+        idleFor(0);
+
+        mScheduler.onEnqueue(1);
+        assertEquals("schedule", mScheduler.getLastAction());
+        assertEquals(INTERVAL_MS * AdaptiveFlushScheduler.BACKOFF_FACTOR, mScheduler.getLastDelayMs());
+    }
+
+    @Test
+    public void defersWhileOfflineAndFlushesOnReconnect() {
+        setActiveNetwork(NetworkCapabilities.TRANSPORT_WIFI, false);
+        mScheduler.onEnqueue(1);
+        mScheduler.onHostPause();
+        assertEquals(0, mFlushes.get());
+        assertEquals(1, mScheduler.getDeferrals());
+        assertEquals("defer", mScheduler.getLastAction());
+
+        setActiveNetwork(NetworkCapabilities.TRANSPORT_WIFI, true);
+        assertEquals(1, mFlushes.get());
+        assertEquals(1, mScheduler.getFlushCount(AdaptiveFlushScheduler.Reason.RECONNECT));
+    }
+
+    @Test
+    @Config(sdk = Build.VERSION_CODES.M)
+    public void followsTheConnectivityBroadcastBeforeApi24() {
+        setLegacyActiveNetwork(ConnectivityManager.TYPE_WIFI, false);
+        mScheduler.onEnqueue(1);
+        mScheduler.onHostPause();
+        assertEquals(0, mFlushes.get());
+        assertTrue(shadowOf(connectivityManager()).getNetworkCallbacks().isEmpty());
+
+        setLegacyActiveNetwork(ConnectivityManager.TYPE_WIFI, true);
+        assertEquals(1, mFlushes.get());
+        assertEquals(1, mScheduler.getFlushCount(AdaptiveFlushScheduler.Reason.RECONNECT));
+    }
+
+    @Test
+    public void stopsOnHostDestroyUntilResumed() {
+        mScheduler.onEnqueue(1);
+        mScheduler.onHostDestroy();
+        assertEquals(1, mFlushes.get());
+        assertTrue(shadowOf(connectivityManager()).getNetworkCallbacks().isEmpty());
+
+        // only counted while stopped
+        mScheduler.onEnqueue(1);
+        idleFor(INTERVAL_MS);
+        assertEquals(1, mFlushes.get());
+
+        mScheduler.onHostResume();
+        idleFor(0);
+        assertEquals(1, shadowOf(connectivityManager()).getNetworkCallbacks().size());
+        setActiveNetwork(NetworkCapabilities.TRANSPORT_WIFI, true);
+        idleFor(INTERVAL_MS);
+        assertEquals(2, mFlushes.get());
+        assertEquals(1, mScheduler.getFlushCount(AdaptiveFlushScheduler.Reason.INTERVAL));
+    }
+
+    @Test
+    public void coalescesBurstsIntoOneFlush() {
+        mScheduler.onEnqueue(QUEUE_DEPTH);
+        // 20 events per second for 5 seconds
+        for (int i = 0; i < 100; i++) {
+            mScheduler.onEnqueue(1);
+            idleFor(50);
+        }
+        assertEquals(0, mFlushes.get());
+
+        idleFor(AdaptiveFlushScheduler.COALESCE_MS);
+        assertEquals(1, mFlushes.get());
+        assertEquals(1, mScheduler.getFlushCount(AdaptiveFlushScheduler.Reason.QUEUE_DEPTH));
+        assertEquals(0, mScheduler.getFlushCount(AdaptiveFlushScheduler.Reason.INTERVAL));
+    }
+
+    @Test
+    public void flushesQueueDepthWithoutWaitingForTheInterval() {
+        mScheduler.onEnqueue(QUEUE_DEPTH);
+        idleFor(AdaptiveFlushScheduler.COALESCE_MS);
+        assertEquals(1, mFlushes.get());
+        assertEquals(1, mScheduler.getFlushCount(AdaptiveFlushScheduler.Reason.QUEUE_DEPTH));
+    }
+
+    /**
+     * Reports an unmetered network of the given transport as the default one, or its loss, to the network callbacks.
+     */
+    private void setActiveNetwork(int transport, boolean connected) {
+        NetworkCapabilities capabilities = ShadowNetworkCapabilities.newInstance();
+        shadowOf(capabilities).addTransportType(transport);
+        shadowOf(capabilities).addCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED);
+        shadowOf(capabilities).addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET);
+        shadowOf(capabilities).addCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED);
+        for (ConnectivityManager.NetworkCallback callback : shadowOf(connectivityManager()).getNetworkCallbacks()) {
+            if (connected) {
+                callback.onCapabilitiesChanged(mNetwork, capabilities);
+            } else {
+                callback.onLost(mNetwork);
+            }
+        }
+        idleFor(0);
+    }
+
+    /**
+     * Makes the given network the active one and broadcasts the change, as before API 24.
+     */
+    @SuppressWarnings("deprecation")
+    private void setLegacyActiveNetwork(int type, boolean connected) {
+        shadowOf(connectivityManager()).setActiveNetworkInfo(ShadowNetworkInfo.newInstance(
+                connected ? NetworkInfo.DetailedState.CONNECTED : NetworkInfo.DetailedState.DISCONNECTED,
+                type, 0, true,
+                connected ? NetworkInfo.State.CONNECTED : NetworkInfo.State.DISCONNECTED));
+        mApplication.sendBroadcast(new Intent(ConnectivityManager.CONNECTIVITY_ACTION));
+        idleFor(0);
+    }
+
+    private ConnectivityManager connectivityManager() {
+        return (ConnectivityManager) mApplication.getSystemService(Context.CONNECTIVITY_SERVICE);
+    }
+
+    /**
+     * Runs the main looper's tasks due within the given time, advancing the clock.
+     */
+    private static void idleFor(long millis) {
+        if (millis == 0) {
+            shadowOf(Looper.getMainLooper()).idle();
+        } else {
+            shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(millis));
+        }
+    }
+}
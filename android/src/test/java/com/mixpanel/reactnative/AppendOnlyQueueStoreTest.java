@@ -0,0 +1,262 @@
+package com.mixpanel.reactnative;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Simulates crashes by closing the store and tearing or corrupting its files before opening it again. The
+ * directory syncs are counted instead of reaching the OS.
+ */
+public class AppendOnlyQueueStoreTest {
+    private static final int SEGMENT_BYTES = 64;
+
+    @Rule
+    public final TemporaryFolder mFolder = new TemporaryFolder();
+
+    private File mDir;
+    private AppendOnlyQueueStore mStore;
+    private int mDirectorySyncs;
+
+    @Before
+    public void setUp() throws IOException {
+        mDir = new File(mFolder.getRoot(), "queue");
+        mStore = open();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mStore.close();
+    }
+
+    @Test
+    public void readsAppendedRecordsAfterReopen() throws IOException {
+        mStore.append("{\"event\":\"a\"}");
+        mStore.append("{\"event\":\"\u00e9\"}");
+
+        reopen();
+        assertEquals(Arrays.asList("{\"event\":\"a\"}", "{\"event\":\"\u00e9\"}"), mStore.read());
+    }
+
+    @Test
+    public void keepsAcknowledgementsAfterReopen() throws IOException {
+        mStore.append("a");
+        mStore.append("b");
+        mStore.append("c");
+        mStore.acknowledge(2);
+
+        reopen();
+        assertEquals(Collections.singletonList("c"), mStore.read());
+    }
+
+    @Test
+    public void truncatesTornRecord() throws IOException {
+        mStore.append("first");
+        mStore.append("second");
+        File segment = segment(0);
+        truncate(segment, segment.length() - 3);
+
+        reopen();
+        assertEquals(Collections.singletonList("first"), mStore.read());
+        assertEquals(8 + "first".length(), segment.length());
+
+        mStore.append("third");
+        reopen();
+        assertEquals(Arrays.asList("first", "third"), mStore.read());
+    }
+
+    @Test
+    public void truncatesTornHeader() throws IOException {
+        mStore.append("first");
+        mStore.close();
+        try (FileOutputStream out = new FileOutputStream(segment(0), true)) {
+            out.write(new byte[]{0, 0, 0});
+        }
+
+        reopen();
+        assertEquals(Collections.singletonList("first"), mStore.read());
+        assertEquals(8 + "first".length(), segment(0).length());
+    }
+
+    @Test
+    public void dropsRecordWithBadChecksum() throws IOException {
+        mStore.append("first");
+        mStore.append("second");
+        File segment = segment(0);
+        overwrite(segment, segment.length() - 1, 'X');
+
+        reopen();
+        assertEquals(Collections.singletonList("first"), mStore.read());
+    }
+
+    @Test
+    public void dropsRecordWithImpossibleLength() throws IOException {
+        mStore.append("first");
+        mStore.append("second");
+        // the length of the second record
+        overwrite(segment(0), 8 + "first".length(), 0x7f);
+
+        reopen();
+        assertEquals(Collections.singletonList("first"), mStore.read());
+    }
+
+    @Test
+    public void rollsSegmentsAndDeletesAcknowledgedOnes() throws IOException {
+        for (int i = 0; i < 10; i++) {
+            mStore.append("record-" + i);
+        }
+        assertTrue(segment(1).exists());
+
+        mStore.acknowledge(8);
+        assertFalse(segment(0).exists());
+
+        reopen();
+        assertEquals(Arrays.asList("record-8", "record-9"), mStore.read());
+    }
+
+    @Test
+    public void startsAnEmptySegmentOnceEverythingIsAcknowledged() throws IOException {
+        mStore.append("a");
+        mStore.append("b");
+        mStore.acknowledge(2);
+        assertFalse(segment(0).exists());
+        assertEquals(0, segment(1).length());
+
+        mStore.append("c");
+        reopen();
+        assertEquals(Collections.singletonList("c"), mStore.read());
+    }
+
+    @Test
+    public void replacesRecords() throws IOException {
+        mStore.append("a");
+        mStore.append("b");
+        mStore.replace(Arrays.asList("a2", "b2"));
+        mStore.append("c");
+
+        reopen();
+        assertEquals(Arrays.asList("a2", "b2", "c"), mStore.read());
+    }
+
+    @Test
+    public void keepsRecordsWhenReplaceCrashesBeforeTheIndex() throws IOException {
+        mStore.append("a");
+        mStore.append("b");
+        mStore.close();
+        // a replace that crashed halfway through its temporary segment
+        try (FileOutputStream out = new FileOutputStream(new File(mDir, "segment-1.tmp"))) {
+            out.write(new byte[]{0, 0, 0, 2, 1});
+        }
+
+        reopen();
+        assertEquals(Arrays.asList("a", "b"), mStore.read());
+        assertFalse(new File(mDir, "segment-1.tmp").exists());
+    }
+
+    @Test
+    public void completesReplaceThatCrashedAfterTheIndex() throws IOException {
+        mStore.append("a");
+        mStore.replace(Arrays.asList("a2", "b2"));
+        mStore.close();
+        // the crash came before the temporary segment was renamed
+        assertTrue(segment(1).renameTo(new File(mDir, "segment-1.tmp")));
+
+        reopen();
+        assertEquals(Arrays.asList("a2", "b2"), mStore.read());
+    }
+
+    @Test
+    public void compactsTheSegmentBeingWrittenOnceMostlyAcknowledged() throws IOException {
+        // four 13 byte frames share the 64 byte segment
+        for (int i = 0; i < 4; i++) {
+            mStore.append("rec-" + i);
+        }
+        mStore.acknowledge(2);
+        assertTrue(segment(0).exists());
+
+        mStore.acknowledge(1);
+        assertFalse(segment(0).exists());
+        assertEquals(13, segment(1).length());
+        assertEquals(Collections.singletonList("rec-3"), mStore.read());
+
+        mStore.append("rec-4");
+        reopen();
+        assertEquals(Arrays.asList("rec-3", "rec-4"), mStore.read());
+    }
+
+    @Test
+    public void syncsTheDirectoryAfterRenames() throws IOException {
+        mStore.append("a");
+        mDirectorySyncs = 0;
+        mStore.acknowledge(0);
+        // the index
+        assertEquals(1, mDirectorySyncs);
+
+        mStore.replace(Collections.singletonList("a2"));
+        // the index and the segment
+        assertEquals(3, mDirectorySyncs);
+    }
+
+    @Test
+    public void remembersTheMigration() throws IOException {
+        assertFalse(mStore.isMigrated());
+        mStore.markMigrated();
+
+        reopen();
+        assertTrue(mStore.isMigrated());
+    }
+
+    @Test
+    public void replaysRemainingSegmentsWithCorruptIndex() throws IOException {
+        mStore.append("a");
+        mStore.append("b");
+        mStore.acknowledge(1);
+        mStore.close();
+        overwrite(new File(mDir, "index"), 0, 0xff);
+
+        reopen();
+        assertEquals(Arrays.asList("a", "b"), mStore.read());
+    }
+
+    private void reopen() throws IOException {
+        mStore.close();
+        mStore = open();
+    }
+
+    private AppendOnlyQueueStore open() throws IOException {
+        return new AppendOnlyQueueStore(mDir, SEGMENT_BYTES, dir -> {
+            assertEquals(mDir, dir);
+            mDirectorySyncs++;
+        });
+    }
+
+    private File segment(long segment) {
+        return new File(mDir, "segment-" + segment + ".log");
+    }
+
+    private static void truncate(File file, long length) throws IOException {
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.setLength(length);
+        }
+    }
+
+    private static void overwrite(File file, long offset, int value) throws IOException {
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.seek(offset);
+            out.write(value);
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package com.mixpanel.reactnative;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Sends batches to a mock HTTP server on the loopback interface, which answers with the scripted responses in
+ * order and then with 200.
+ */
+public class BatchSenderTest {
+    private static final String BATCH = "[{\"event\":\"Purchase\",\"properties\":{\"item\":\"a & b\"}}]";
+
+    private final ConcurrentLinkedQueue<Integer> mStatuses = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<String> mRetryAfters = new ConcurrentLinkedQueue<>();
+    private final List<Request> mRequests = Collections.synchronizedList(new ArrayList<>());
+    private volatile boolean mTruncateBody;
+    private HttpServer mServer;
+    private BatchSender mSender;
+
+    private static final class Request {
+        final String body;
+        final String contentEncoding;
+        final int clientPort;
+        final long receivedAt;
+
+        Request(String body, String contentEncoding, int clientPort) {
+            this.body = body;
+            this.contentEncoding = contentEncoding;
+            this.clientPort = clientPort;
+            this.receivedAt = System.nanoTime();
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        mServer.createContext("/track/", this::handle);
+        mServer.start();
+        mSender = new BatchSender(3, 10, 1500, new Random(42));
+    }
+
+    @After
+    public void tearDown() {
+        mSender.shutdown();
+        mServer.stop(0);
+    }
+
+    @Test
+    public void sendsGzippedFormBody() throws Exception {
+        BatchSender.Result result = send(true);
+
+        assertEquals(200, result.status);
+        assertEquals("1", result.body);
+        assertEquals(1, result.attempts);
+        Request request = mRequests.get(0);
+        assertEquals("gzip", request.contentEncoding);
+        assertEquals("data=" + BATCH, URLDecoder.decode(request.body, "UTF-8"));
+    }
+
+    @Test
+    public void sendsPlainFormBody() throws Exception {
+        BatchSender.Result result = send(false);
+
+        assertEquals(200, result.status);
+        Request request = mRequests.get(0);
+        assertNull(request.contentEncoding);
+        assertEquals("data=" + BATCH, URLDecoder.decode(request.body, "UTF-8"));
+    }
+
+    @Test
+    public void reusesTheConnection() throws Exception {
+        send(true);
+        send(false);
+        send(true);
+
+        HashSet<Integer> ports = new HashSet<>();
+        for (Request request : mRequests) {
+            ports.add(request.clientPort);
+        }
+        assertEquals(1, ports.size());
+    }
+
+    @Test
+    public void retriesServerErrors() throws Exception {
+        mStatuses.add(503);
+        mStatuses.add(500);
+
+        BatchSender.Result result = send(true);
+
+        assertEquals(200, result.status);
+        assertEquals(3, result.attempts);
+        assertEquals(3, mRequests.size());
+    }
+
+    @Test
+    public void honoursRetryAfter() throws Exception {
+        mStatuses.add(429);
+        mRetryAfters.add("1");
+
+        BatchSender.Result result = send(true);
+
+        assertEquals(200, result.status);
+        assertEquals(2, result.attempts);
+        long waitedMs = TimeUnit.NANOSECONDS.toMillis(mRequests.get(1).receivedAt - mRequests.get(0).receivedAt);
+        assertTrue(waitedMs >= 1000);
+    }
+
+    @Test
+    public void doesNotRetryInvalidBatches() throws Exception {
+        mStatuses.add(400);
+
+        BatchSender.Result result = send(true);
+
+        assertEquals(400, result.status);
+        assertEquals(1, result.attempts);
+        assertEquals(1, mRequests.size());
+    }
+
+    @Test
+    public void givesUpAfterMaxRetries() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            mStatuses.add(502);
+        }
+
+        BatchSender.Result result = send(true);
+
+        assertEquals(502, result.status);
+        assertEquals(4, result.attempts);
+    }
+
+    @Test
+    public void reportsConnectionFailures() throws Exception {
+        int port = mServer.getAddress().getPort();
+        mServer.stop(0);
+
+        CompletableFuture<BatchSender.Result> future = new CompletableFuture<>();
+        mSender.send("http://127.0.0.1:" + port + "/track/?ip=1", BATCH, true, callback(future));
+        BatchSender.Result result = future.get(10, TimeUnit.SECONDS);
+
+        assertEquals(0, result.status);
+        assertEquals(4, result.attempts);
+        assertNotNull(result.error);
+    }
+
+    @Test
+    public void jittersTheBackoff() {
+        for (int attempt = 1; attempt <= 10; attempt++) {
+            long backoffMs = Math.min(10L << (attempt - 1), 1500);
+            long delayMs = mSender.delayFor(attempt, null);
+            assertTrue(delayMs >= backoffMs / 2 && delayMs <= backoffMs);
+        }
+        assertEquals(1000, mSender.delayFor(1, "1"));
+        assertEquals(1500, mSender.delayFor(1, "120"));
+        assertEquals(-1, BatchSender.parseRetryAfter("soon"));
+        assertEquals(0, BatchSender.parseRetryAfter("Wed, 21 Oct 2015 07:28:00 GMT"));
+    }
+
+    @Test
+    public void keepsTheOrderWhileRetrying() throws Exception {
+        mStatuses.add(503);
+
+        CompletableFuture<BatchSender.Result> first = sendAsync("[1]");
+        CompletableFuture<BatchSender.Result> second = sendAsync("[2]");
+
+        assertEquals(200, first.get(10, TimeUnit.SECONDS).status);
+        assertEquals(200, second.get(10, TimeUnit.SECONDS).status);
+        assertEquals(3, mRequests.size());
+        assertEquals("data=[1]", URLDecoder.decode(mRequests.get(0).body, "UTF-8"));
+        assertEquals("data=[1]", URLDecoder.decode(mRequests.get(1).body, "UTF-8"));
+        assertEquals("data=[2]", URLDecoder.decode(mRequests.get(2).body, "UTF-8"));
+    }
+
+    @Test
+    public void keepsTheStatusWhenTheBodyIsCutOff() throws Exception {
+        mTruncateBody = true;
+
+        BatchSender.Result result = send(false);
+
+        assertEquals(200, result.status);
+        assertEquals(1, result.attempts);
+        assertNotNull(result.error);
+    }
+
+    @Test
+    public void cancelsPendingBatchesOnShutdown() throws Exception {
+        // the first batch waits a minute for its retry
+        mStatuses.add(429);
+        mRetryAfters.add("60");
+        CompletableFuture<BatchSender.Result> first = sendAsync(BATCH);
+        CompletableFuture<BatchSender.Result> second = sendAsync(BATCH);
+        while (mRequests.isEmpty()) {
+            Thread.sleep(10);
+        }
+
+        mSender.shutdown();
+
+        assertTrue(first.isCompletedExceptionally());
+        assertTrue(second.isCompletedExceptionally());
+    }
+
+    @Test
+    public void encodesLikeUrlEncoder() throws Exception {
+        String value = "{\"a b\":\"\u00e9\u20ac\ud83d\ude00+&=~\ud800\"}";
+        StringWriter writer = new StringWriter();
+        BatchSender.writeFormEncoded(writer, value);
+        assertEquals(URLEncoder.encode(value, "UTF-8"), writer.toString());
+    }
+
+    private BatchSender.Result send(boolean gzip) throws Exception {
+        CompletableFuture<BatchSender.Result> future = new CompletableFuture<>();
+        String url = "http://127.0.0.1:" + mServer.getAddress().getPort() + "/track/?ip=1";
+        mSender.send(url, BATCH, gzip, callback(future));
+        return future.get(10, TimeUnit.SECONDS);
+    }
+
+    private CompletableFuture<BatchSender.Result> sendAsync(String json) {
+        CompletableFuture<BatchSender.Result> future = new CompletableFuture<>();
+        String url = "http://127.0.0.1:" + mServer.getAddress().getPort() + "/track/?ip=1";
+        mSender.send(url, json, false, callback(future));
+        return future;
+    }
+
+    private static BatchSender.Callback callback(final CompletableFuture<BatchSender.Result> future) {
+        return new BatchSender.Callback() {
+            @Override
+            public void onResult(BatchSender.Result result) {
+                future.complete(result);
+            }
+
+            @Override
+            public void onCancelled() {
+                future.completeExceptionally(new CancellationException());
+            }
+        };
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String contentEncoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+        InputStream in = exchange.getRequestBody();
+        if ("gzip".equals(contentEncoding)) {
+            in = new GZIPInputStream(in);
+        }
+        mRequests.add(new Request(readAll(in), contentEncoding, exchange.getRemoteAddress().getPort()));
+        Integer scripted = mStatuses.poll();
+        int status = scripted != null ? scripted : 200;
+        String retryAfter = status == 429 ? mRetryAfters.poll() : null;
+        if (retryAfter != null) {
+            exchange.getResponseHeaders().add("Retry-After", retryAfter);
+        }
+        byte[] body = (status == 200 ? "1" : "0").getBytes(StandardCharsets.UTF_8);
+        if (mTruncateBody) {
+            // drop the connection in the middle of a chunked body, so the client fails while reading it
+            exchange.sendResponseHeaders(status, 0);
+            exchange.getResponseBody().write(body);
+            exchange.getResponseBody().flush();
+            throw new IOException("cut off");
+        }
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static String readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,153 @@
+package com.mixpanel.reactnative;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.facebook.react.bridge.JavaOnlyArray;
+import com.facebook.react.bridge.JavaOnlyMap;
+import com.facebook.react.bridge.ReadableArray;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Converts JavaOnlyMap payloads, which hand out nested containers the way the bridge does.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ReactNativeHelperTest {
+
+    @After
+    public void tearDown() {
+        ReactNativeHelper.setPayloadGuard(null);
+    }
+
+    @Test
+    public void readableMapToMapKeepsTheTypesOfToMap() throws JSONException {
+        JavaOnlyMap properties = JavaOnlyMap.of(
+                "name", "a",
+                "count", 2.0,
+                "flag", true,
+                "nested", JavaOnlyMap.of("ratio", Double.NaN),
+                "list", JavaOnlyArray.of("x", 1.0, JavaOnlyMap.of("inner", Double.POSITIVE_INFINITY)));
+
+        Map<String, Object> map = ReactNativeHelper.readableMapToMap(properties);
+
+        assertEquals("a", map.get("name"));
+        assertEquals(2.0, map.get("count"));
+        assertEquals(true, map.get("flag"));
+        Map<String, Object> nested = new HashMap<>();
+        nested.put("ratio", "NaN");
+        assertEquals(nested, map.get("nested"));
+        Object[] list = (Object[]) map.get("list");
+        assertEquals("x", list[0]);
+        assertEquals(1.0, list[1]);
+        Map<String, Object> inner = new HashMap<>();
+        inner.put("inner", "Infinity");
+        assertEquals(inner, list[2]);
+    }
+
+    @Test
+    public void readableMapToMapSanitizesNestedArrays() throws JSONException {
+        JavaOnlyMap properties = JavaOnlyMap.of(
+                "matrix", JavaOnlyArray.of(
+                        JavaOnlyArray.of(Double.NaN, 1.0),
+                        JavaOnlyArray.of(Double.NEGATIVE_INFINITY, JavaOnlyArray.of(Double.POSITIVE_INFINITY))));
+
+        Object[] matrix = (Object[]) ReactNativeHelper.readableMapToMap(properties).get("matrix");
+
+        assertArrayEquals(new Object[]{"NaN", 1.0}, (Object[]) matrix[0]);
+        Object[] second = (Object[]) matrix[1];
+        assertEquals("-Infinity", second[0]);
+        assertArrayEquals(new Object[]{"Infinity"}, (Object[]) second[1]);
+    }
+
+    @Test
+    public void readableMapToMapTruncatesOverTheLimits() throws JSONException {
+        ReactNativeHelper.setPayloadGuard(new PayloadGuard(2, 2, 2, Long.MAX_VALUE, false));
+        JavaOnlyMap properties = JavaOnlyMap.of(
+                "list", JavaOnlyArray.of(1.0, 2.0, 3.0),
+                "nested", JavaOnlyMap.of("deeper", JavaOnlyMap.of("a", 1.0)),
+                "dropped", "c");
+
+        Map<String, Object> map = ReactNativeHelper.readableMapToMap(properties);
+
+        assertEquals(2, map.size());
+        assertArrayEquals(new Object[]{1.0, 2.0}, (Object[]) map.get("list"));
+        assertEquals(new HashMap<String, Object>(), map.get("nested"));
+        assertArrayEquals(new Object[]{"a", "b"}, ReactNativeHelper.toArray(JavaOnlyArray.of("a", "b", "c")));
+    }
+
+    @Test
+    public void legacyConvertersRejectOverTheLimits() {
+        ReactNativeHelper.setPayloadGuard(new PayloadGuard(8, 1, 1, Long.MAX_VALUE, true));
+        JavaOnlyArray values = JavaOnlyArray.of("a", "b");
+        JavaOnlyMap properties = JavaOnlyMap.of("a", 1.0, "b", 2.0);
+
+        assertRejected(() -> ReactNativeHelper.reactToJSON(values));
+        assertRejected(() -> ReactNativeHelper.reactToJSON(properties));
+        assertRejected(() -> ReactNativeHelper.toArray(values));
+        assertRejected(() -> ReactNativeHelper.toMap(properties));
+    }
+
+    @Test
+    public void arraysAreReadOnlyUpToTheLimits() throws JSONException {
+        ReactNativeHelper.setPayloadGuard(new PayloadGuard(8, 8, 2, Long.MAX_VALUE, false));
+        int[] reads = new int[1];
+        ReadableArray list = countingArray(reads, JavaOnlyArray.of(
+                JavaOnlyMap.of("a", 1.0), JavaOnlyMap.of("b", 2.0), JavaOnlyMap.of("c", 3.0), JavaOnlyMap.of("d", 4.0)));
+
+        assertEquals(2, ReactNativeHelper.reactToJSON(list).length());
+        assertEquals(2, ReactNativeHelper.toArray(list).length);
+        assertEquals(2, ((Object[]) ReactNativeHelper.readableMapToMap(JavaOnlyMap.of("list", list)).get("list")).length);
+        assertEquals(2, ((JSONArray) ReactNativeHelper.readableMapToJSON(JavaOnlyMap.of("list", list)).get("list")).length());
+        assertEquals(8, reads[0]);
+    }
+
+    /**
+     * Wraps the array so that toArrayList() fails and every element read is counted.
+     */
+    private static ReadableArray countingArray(final int[] reads, final ReadableArray array) {
+        return (ReadableArray) Proxy.newProxyInstance(ReadableArray.class.getClassLoader(),
+                new Class<?>[]{ReadableArray.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "toArrayList":
+                            throw new AssertionError("the array was copied");
+                        case "getMap":
+                        case "getArray":
+                            reads[0]++;
+                            break;
+                        default:
+                            break;
+                    }
+                    try {
+                        return method.invoke(array, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private interface Conversion {
+        void run() throws JSONException;
+    }
+
+    private static void assertRejected(Conversion conversion) {
+        try {
+            conversion.run();
+            fail("expected the payload to be rejected");
+        } catch (JSONException e) {
+            assertTrue(e.getMessage().startsWith("Properties exceed the payload limits"));
+        }
+    }
+}
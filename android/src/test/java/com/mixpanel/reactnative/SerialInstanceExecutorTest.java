@@ -0,0 +1,105 @@
+package com.mixpanel.reactnative;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retires executors whose thread is held on a latch, so the calls queued around the sentinel can be observed.
+ */
+public class SerialInstanceExecutorTest {
+
+    private final Object mLock = new Object();
+    private final SerialInstanceExecutor mExecutor = new SerialInstanceExecutor("token");
+    private final CountDownLatch mRelease = new CountDownLatch(1);
+    private final CountDownLatch mRetired = new CountDownLatch(1);
+    private final List<String> mCalls = Collections.synchronizedList(new ArrayList<String>());
+
+    @Test
+    public void retiresWithoutWaitingForTheQueuedCalls() throws Exception {
+        block();
+        mExecutor.execute(() -> mCalls.add("before"));
+
+        long start = System.nanoTime();
+        mExecutor.retire(mLock, mRetired::countDown);
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 500);
+        assertEquals(1, mRetired.getCount());
+        mRelease.countDown();
+        assertTrue(mRetired.await(10, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList("before"), mCalls);
+    }
+
+    @Test
+    public void runsTheCallsQueuedBehindTheSentinelUnderTheLock() throws Exception {
+        block();
+        mExecutor.retire(mLock, mRetired::countDown);
+        final CountDownLatch after = new CountDownLatch(1);
+        assertTrue(mExecutor.execute(() -> {
+            mCalls.add(Thread.holdsLock(mLock) ? "locked" : "unlocked");
+            after.countDown();
+        }));
+
+        mRelease.countDown();
+
+        assertTrue(after.await(10, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList("locked"), mCalls);
+        assertFalse(mExecutor.execute(() -> mCalls.add("rejected")));
+        assertFalse(mExecutor.resume());
+    }
+
+    @Test
+    public void runsTheCallsMadeUnderTheLockAfterTheQueuedOnes() throws Exception {
+        block();
+        mExecutor.retire(mLock, mRetired::countDown);
+        mExecutor.execute(() -> mCalls.add("queued"));
+        mRelease.countDown();
+        assertTrue(mRetired.await(10, TimeUnit.SECONDS));
+
+        // a caller that read the executor before it retired falls back to the lock
+        if (!mExecutor.execute(() -> mCalls.add("executor"))) {
+            synchronized (mLock) {
+                mCalls.add("locked");
+            }
+        }
+
+        assertEquals(2, mCalls.size());
+        assertEquals("queued", mCalls.get(0));
+        assertEquals("locked", mCalls.get(1));
+    }
+
+    @Test
+    public void resumesBeforeTheSentinelIsReached() throws Exception {
+        block();
+        mExecutor.retire(mLock, mRetired::countDown);
+
+        assertTrue(mExecutor.resume());
+        mRelease.countDown();
+
+        final CountDownLatch after = new CountDownLatch(1);
+        assertTrue(mExecutor.execute(after::countDown));
+        assertTrue(after.await(10, TimeUnit.SECONDS));
+        assertEquals(1, mRetired.getCount());
+    }
+
+    /**
+     * Holds the executor's thread until mRelease is counted down.
+     */
+    private void block() {
+        mExecutor.execute(() -> {
+            try {
+                mRelease.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+}
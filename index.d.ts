@@ -1,5 +1,40 @@
 type MixpanelType = any;
 type MixpanelProperties = {[key: string]: MixpanelType};
+type PeopleOperation =
+  | {operation: "set" | "setOnce"; properties: MixpanelProperties}
+  | {operation: "increment"; properties: {[name: string]: number}}
+  | {operation: "union"; name: string; value: MixpanelType[]}
+  | {operation: "append" | "remove"; name: string; value: MixpanelType}
+  | {operation: "unset"; name: string};
+type GroupOperation = {groupKey: string; groupID: MixpanelType} & (
+  | {operation: "set" | "setOnce"; properties: MixpanelProperties}
+  | {operation: "unset"; name: string}
+  | {operation: "remove"; name: string; value: MixpanelType}
+  | {operation: "union"; name: string; value: MixpanelType[]}
+  | {operation: "delete"}
+);
+type PayloadLimits = {
+  maxDepth?: number;
+  maxKeys?: number;
+  maxArrayLength?: number;
+  maxBytes?: number;
+  reject?: boolean;
+};
+type PerformanceHistogram = {
+  count: number;
+  meanUs: number;
+  p50Us: number;
+  p90Us: number;
+  p99Us: number;
+};
+type PerformanceStats = {
+  [method: string]: {
+    calls: number;
+    latency: PerformanceHistogram;
+    conversion: PerformanceHistogram;
+    lockWait: PerformanceHistogram;
+  };
+};
 
 export type MixpanelAsyncStorage = {
   getItem(key: string): Promise<string | null>;
@@ -7,6 +42,13 @@ export type MixpanelAsyncStorage = {
   removeItem(key: string): Promise<void>;
 };
 
+export class NativeQueueStorage {
+  constructor(storage?: MixpanelAsyncStorage);
+  getItem(key: string): Promise<string | null>;
+  setItem(key: string, value: string): Promise<void>;
+  removeItem(key: string): Promise<void>;
+}
+
 export class Mixpanel {
   constructor(token: string, trackAutoMaticEvents: boolean);
   constructor(token: string, trackAutoMaticEvents: boolean, useNative: true);
@@ -32,12 +74,107 @@ export class Mixpanel {
   setFlushOnBackground(flushOnBackground: boolean): void;
   setUseIpAddressForGeolocation(useIpAddressForGeolocation: boolean): void;
   setFlushBatchSize(flushBatchSize: number): void;
+  setNativeBatchSenderEnabled(enabled: boolean): void;
+  setTrackBatchingEnabled(
+    enabled: boolean,
+    maxBatchSize?: number,
+    flushInterval?: number
+  ): void;
+  setSamplingPolicies(policies: {
+    [eventName: string]: {
+      sampleRate?: number;
+      maxPerSecond?: number;
+      perDistinctId?: boolean;
+    };
+  }): void;
+  getSamplingStats(): Promise<{
+    [eventName: string]: {
+      kept: number;
+      sampledOut: number;
+      rateLimited: number;
+    };
+  }>;
+  setSuperPropertiesCacheEnabled(enabled: boolean): void;
+  setAsyncInitializationEnabled(enabled: boolean, maxPendingCalls?: number): void;
+  setSerialExecutionEnabled(enabled: boolean): void;
+  setParallelConversionEnabled(enabled: boolean, workers?: number): void;
+  setPayloadLimits(limits?: PayloadLimits | null): void;
+  getPayloadStats(): Promise<
+    (Required<PayloadLimits> & {truncated: number; rejected: number}) | null
+  >;
+  setPerformanceStatsEnabled(
+    enabled: boolean,
+    reportInterval?: number,
+    onReport?: (report: {[token: string]: PerformanceStats}) => void
+  ): void;
+  getPerformanceStats(): Promise<PerformanceStats>;
+  setPropertyInterningEnabled(enabled: boolean, maxEntries?: number): void;
+  getInterningStats(): Promise<{
+    hits: number;
+    misses: number;
+    hitRate: number;
+    size: number;
+    maxEntries: number;
+  } | null>;
+  setTrackBufferingEnabled(
+    enabled: boolean,
+    maxBatchSize?: number,
+    flushInterval?: number
+  ): void;
+  setFireAndForgetEnabled(
+    enabled: boolean,
+    onError?: (error: {count: number; code: string; message: string}) => void
+  ): void;
   hasOptedOutTracking(): Promise<boolean>;
   optInTracking(): void;
   optOutTracking(): void;
   identify(distinctId: string): Promise<void>;
   alias(alias: string, distinctId: string): void;
-  track(eventName: string, properties?: MixpanelProperties): void;
+  track(
+    eventName: string,
+    properties?: MixpanelProperties,
+    priority?: "critical" | "bulk"
+  ): void;
+  trackJson(eventName: string, json: string): void;
+  trackAggregated(
+    eventName: string,
+    dimensions?: {[key: string]: string | number | boolean},
+    metrics?: {[key: string]: number}
+  ): void;
+  setAggregationWindow(window: number): void;
+  setPriorityLanesEnabled(
+    enabled: boolean,
+    criticalFlushDelay?: number,
+    bulkFlushInterval?: number,
+    maxBulkEvents?: number
+  ): void;
+  setAdaptiveFlushEnabled(
+    enabled: boolean,
+    interval?: number,
+    queueDepth?: number
+  ): void;
+  getFlushSchedulerStats(): Promise<{
+    flushCount: number;
+    flushes: {
+      background: number;
+      interval: number;
+      queueDepth: number;
+      reconnect: number;
+    };
+    deferrals: number;
+    lastDecision: {
+      action: "none" | "schedule" | "flush" | "defer";
+      reason?: "background" | "interval" | "queueDepth" | "reconnect";
+      delayMs: number;
+    };
+    pendingEvents: number;
+    enqueueRate: number;
+    foreground: boolean;
+    connected: boolean;
+    metered: boolean;
+    slowNetwork: boolean;
+    powerSave: boolean;
+  } | null>;
   getPeople(): People;
   trackWithGroups(
     eventName: string,
@@ -49,16 +186,25 @@ export class Mixpanel {
   addGroup(groupKey: string, groupID: MixpanelType): void;
   removeGroup(groupKey: string, groupID: MixpanelType): void;
   deleteGroup(groupKey: string, groupID: MixpanelType): void;
+  groupBatch(operations: GroupOperation[]): void;
   registerSuperProperties(properties: MixpanelProperties): void;
+  registerSuperPropertiesJson(json: string): void;
   registerSuperPropertiesOnce(properties: MixpanelProperties): void;
   unregisterSuperProperty(propertyName: string): void;
   getSuperProperties(): Promise<MixpanelProperties>;
   clearSuperProperties(): void;
+  pushContext(id: string, properties?: MixpanelProperties): void;
+  popContext(id: string): void;
   timeEvent(eventName: string): void;
   eventElapsedTime(eventName: string): Promise<number>;
   reset(): void;
   getDistinctId(): Promise<string>;
   getDeviceId(): Promise<string>;
+  getDistinctIdSync(): string | undefined;
+  getDeviceIdSync(): string | undefined;
+  hasOptedOutTrackingSync(): boolean | undefined;
+  eventElapsedTimeSync(eventName: string): number | undefined;
+  getSuperPropertiesSync(): MixpanelProperties | undefined;
   flush(): void;
 }
 
@@ -66,6 +212,7 @@ export class People {
   constructor(token: string, mixpanelInstance: any);
   set(prop: string, to: MixpanelType): void;
   set(properties: MixpanelProperties): void;
+  setJson(json: string): void;
   setOnce(prop: string, to: MixpanelType): void;
   setOnce(properties: MixpanelProperties): void;
   increment(prop: string, by: number): void;
@@ -77,6 +224,7 @@ export class People {
   trackCharge(charge: number, properties: MixpanelProperties): void;
   clearCharges(): void;
   deleteUser(): void;
+  batch(operations: PeopleOperation[]): void;
 }
 
 export class MixpanelGroup {
@@ -1,9 +1,18 @@
 "use strict";
 
-import {Platform, NativeModules} from "react-native";
+import {Platform, NativeModules, DeviceEventEmitter} from "react-native";
 import packageJson from "./package.json";
-const {MixpanelReactNative} = NativeModules;
+import NativeMixpanelReactNative from "mixpanel-react-native/javascript/NativeMixpanelReactNative";
+const MixpanelReactNative =
+  NativeMixpanelReactNative ?? NativeModules.MixpanelReactNative;
 import MixpanelMain from "mixpanel-react-native/javascript/mixpanel-main"
+export {NativeQueueStorage} from "mixpanel-react-native/javascript/mixpanel-storage";
+import {MixpanelTrackBatcher} from "mixpanel-react-native/javascript/mixpanel-track-batcher";
+import {
+  defaultTrackBatchSize,
+  defaultTrackBatchInterval,
+  defaultPayloadLimits,
+} from "mixpanel-react-native/javascript/mixpanel-constants";
 
 const DevicePlatform = {
   Unknown: "Unknown",
@@ -29,10 +38,17 @@ const PARAMS = {
   NAME: "name",
   CHARGE: "charge",
   PROPERTY_VALUE: "property value",
+  CONTEXT_ID: "id",
+  DIMENSIONS: "dimensions",
+  METRICS: "metrics",
 };
 
 const DEFAULT_OPT_OUT = false;
 
+const NATIVE_ERROR_EVENT = "MixpanelReactNativeError";
+const NATIVE_PERFORMANCE_EVENT = "MixpanelReactNativePerformance";
+const NATIVE_SUPER_PROPERTIES_EVENT = "MixpanelReactNativeSuperPropertiesChanged";
+
 /**
  * The primary class for integrating Mixpanel with your app.
  */
@@ -46,6 +62,15 @@ export class Mixpanel {
     }
     this.token = token;
     this.trackAutomaticEvents = trackAutomaticEvents;
+    this.trackBatcher = null;
+    this.fireAndForget = false;
+    this.nativeErrorSubscription = null;
+    this.performanceSubscription = null;
+    this.superPropertiesSubscription = null;
+    this.superPropertiesCache = null;
+    this.superPropertiesVersion = 0;
+    this.contexts = [];
+    this.contextProperties = {};
 
     if (useNative && MixpanelReactNative) {
       this.mixpanelImpl = MixpanelReactNative;
@@ -183,6 +208,302 @@ export class Mixpanel {
     this.mixpanelImpl.setFlushBatchSize(this.token, flushBatchSize);
   }
 
+  /**
+   * JavaScript mode on Android only. Send the queued batches through the native
+   * MixpanelBatchSender module instead of fetch: it encodes and gzips them off the JS thread,
+   * reuses one connection and retries with backoff, one batch at a time so batches keep their
+   * order. Where the module is missing, fetch is used as before.
+   *
+   * @param {boolean} enabled whether to send batches natively. Defaults to false.
+   *
+   */
+  setNativeBatchSenderEnabled(enabled) {
+    if (this.mixpanelImpl instanceof MixpanelMain) {
+      this.mixpanelImpl.setNativeBatchSenderEnabled(this.token, enabled);
+    } else {
+      console.warn(
+        "Mixpanel setNativeBatchSenderEnabled was called and ignored because this method only works in JavaScript mode."
+      );
+    }
+  }
+
+  /**
+   * Coalesce track() calls into batches that are handed to the native module in a single call.
+   * Useful when your app fires bursts of events, e.g. on screen transitions. A batch is sent once
+   * it reaches maxBatchSize events, after flushInterval milliseconds, or before any call that
+   * could change how buffered events are attributed (identify, reset, super properties, flush...).
+   *
+   * @param {boolean} enabled whether to batch track calls. Defaults to false.
+   * @param {number} maxBatchSize Optional number of events that triggers an immediate send. Defaults to 50.
+   * @param {number} flushInterval Optional time in milliseconds an event may wait in the buffer. Defaults to 100.
+   *
+   */
+  setTrackBatchingEnabled(enabled, maxBatchSize, flushInterval) {
+    this._drainTrackBatch();
+    this.trackBatcher = enabled
+      ? new MixpanelTrackBatcher(
+          (events) => this._sendTrackBatch(events),
+          maxBatchSize,
+          flushInterval
+        )
+      : null;
+  }
+
+  /**
+   * Send write-only calls such as track(), timeEvent() and People updates through native methods that
+   * take no promise, which halves the bridge messages per call. Failures of those calls are
+   * aggregated natively and passed to onError at most once per second as
+   * {count, code, message}. Platforms without promise-less methods keep using the regular ones.
+   *
+   * @param {boolean} enabled whether to use promise-less calls. Defaults to false.
+   * @param {function} onError Optional callback receiving aggregated native errors.
+   *
+   */
+  setFireAndForgetEnabled(enabled, onError) {
+    this.fireAndForget = enabled;
+    if (this.people) {
+      this.people.fireAndForget = enabled;
+    }
+    if (this.nativeErrorSubscription) {
+      this.nativeErrorSubscription.remove();
+      this.nativeErrorSubscription = null;
+    }
+    if (enabled && onError) {
+      this.nativeErrorSubscription = DeviceEventEmitter.addListener(
+        NATIVE_ERROR_EVENT,
+        onError
+      );
+    }
+  }
+
+  /**
+   * Android only. Buffer track() calls in the native module and hand them to the Mixpanel SDK
+   * together, once maxBatchSize events are buffered or flushInterval milliseconds after the first
+   * one, which spreads the SDK's per-event work over fewer lock acquisitions. Each event keeps the
+   * time of its track() call, and any other call such as identify() or flush() hands the buffered
+   * events over first.
+   *
+   * @param {boolean} enabled whether to buffer track calls natively. Defaults to false.
+   * @param {number} maxBatchSize Optional number of buffered events that triggers a handoff. Defaults to 50.
+   * @param {number} flushInterval Optional milliseconds to wait for more events. Defaults to 100.
+   *
+   */
+  setTrackBufferingEnabled(
+    enabled,
+    maxBatchSize = defaultTrackBatchSize,
+    flushInterval = defaultTrackBatchInterval
+  ) {
+    this._callAndroidNative(
+      "setTrackBufferingEnabled",
+      enabled,
+      maxBatchSize,
+      flushInterval
+    );
+  }
+
+  /**
+   * Android only. Share repeated property keys and short string values, such as screen names or
+   * experiment variants, between the events converted by the native module instead of keeping a
+   * copy per event. The cache keeps up to maxEntries strings, a new string replacing the one that
+   * shares its slot, and is shared by all instances. Use getInterningStats() to size it.
+   *
+   * @param {boolean} enabled whether to intern property strings. Defaults to false.
+   * @param {number} maxEntries Optional maximum number of cached strings. Defaults to 1024.
+   *
+   */
+  setPropertyInterningEnabled(enabled, maxEntries = 1024) {
+    this._callAndroidNative("setPropertyInterningEnabled", enabled, maxEntries);
+  }
+
+  /**
+   * Android only. Returns the hit and miss counts of the cache enabled by setPropertyInterningEnabled().
+   *
+   * @return {Promise<object>} A Promise to {hits, misses, hitRate, size, maxEntries}, or to null while interning is disabled
+   *
+   */
+  getInterningStats() {
+    return this._callAndroidNative("getInterningStats");
+  }
+
+  /**
+   * Android only. Limit the properties converted natively: the nesting depth, the number of keys
+   * of an object, the length of an array and the estimated serialized size of the whole payload.
+   * The limits are checked during conversion, so an oversized payload is truncated, or rejected
+   * when reject is true, without being converted in full. They are shared by all instances.
+   * Pass null to remove the limits.
+   *
+   * @param {object} limits Optional {maxDepth, maxKeys, maxArrayLength, maxBytes, reject}; missing
+   *                   values take the defaults of 8, 255, 255, 65536 bytes and false.
+   *
+   */
+  setPayloadLimits(limits = {}) {
+    this._callAndroidNative(
+      "setPayloadLimits",
+      limits === null ? null : {...defaultPayloadLimits, ...limits}
+    );
+  }
+
+  /**
+   * Android only. Returns the limits set by setPayloadLimits() with the number of truncated and
+   * rejected payloads.
+   *
+   * @return {Promise<object>} A Promise to {maxDepth, maxKeys, maxArrayLength, maxBytes, reject, truncated, rejected}, or to null without limits
+   *
+   */
+  getPayloadStats() {
+    return this._callAndroidNative("getPayloadStats");
+  }
+
+  /**
+   * Android only. Record, for every native method, the number of calls and histograms of the
+   * end-to-end latency, the argument conversion time and the time spent waiting for the instance
+   * lock. Recording allocates nothing per call and costs a single check while disabled.
+   * With a positive reportInterval, onReport receives the statistics of every token, keyed by
+   * token, every reportInterval milliseconds.
+   *
+   * @param {boolean} enabled whether to record native performance statistics. Defaults to false.
+   * @param {number} reportInterval Optional milliseconds between reports. Defaults to 0, no reports.
+   * @param {function} onReport Optional callback receiving the periodic reports.
+   *
+   */
+  setPerformanceStatsEnabled(enabled, reportInterval = 0, onReport) {
+    if (this.performanceSubscription) {
+      this.performanceSubscription.remove();
+      this.performanceSubscription = null;
+    }
+    if (enabled && reportInterval > 0 && onReport) {
+      this.performanceSubscription = DeviceEventEmitter.addListener(
+        NATIVE_PERFORMANCE_EVENT,
+        onReport
+      );
+    }
+    this._callAndroidNative(
+      "setPerformanceStatsEnabled",
+      enabled,
+      reportInterval
+    );
+  }
+
+  /**
+   * Android only. Returns the statistics recorded since setPerformanceStatsEnabled(true), keyed by
+   * native method name. Each entry holds calls and the latency, conversion and lockWait
+   * histograms as {count, meanUs, p50Us, p90Us, p99Us}.
+   *
+   * @return {Promise<object>} A Promise to the statistics of this instance's token
+   *
+   */
+  getPerformanceStats() {
+    return this._callAndroidNative("getPerformanceStats");
+  }
+
+  /**
+   * Android only. Sample and rate limit high-frequency events natively, before their properties
+   * are converted. Policies are keyed by event name; each one may set sampleRate, the fraction
+   * of events to keep, maxPerSecond, the most events to keep per second with bursts of up to one
+   * second's worth, and perDistinctId, to make the same sampling decision for every event of a
+   * user. Kept events of a sampled event name carry a $sample_rate property.
+   * Call it with an empty object to remove the policies.
+   *
+   * @param {object} policies A Map of event name to {sampleRate, maxPerSecond, perDistinctId}
+   *
+   */
+  setSamplingPolicies(policies) {
+    if (!ObjectHelper.isValid(policies)) {
+      ObjectHelper.raiseError(PARAMS.PROPERTIES);
+    }
+    this._callAndroidNative("setSamplingPolicies", policies || {});
+  }
+
+  /**
+   * Android only. Returns, per sampled event name, the number of kept events and of the events
+   * dropped by sampling (sampledOut) and by rate limiting (rateLimited).
+   *
+   * @return {Promise<object>} A Promise to the counts keyed by event name
+   *
+   */
+  getSamplingStats() {
+    return this._callAndroidNative("getSamplingStats");
+  }
+
+  /**
+   * Android only. Cache the super properties in JavaScript, so getSuperProperties() and
+   * getSuperPropertiesSync() only cross the bridge after they may have changed. The cache is
+   * dropped by every super property method, reset() and optOutTracking(), and whenever the
+   * native module reports a change. Treat the returned objects as read-only while it is enabled.
+   *
+   * @param {boolean} enabled whether to cache the super properties. Defaults to false.
+   *
+   */
+  setSuperPropertiesCacheEnabled(enabled) {
+    if (this.superPropertiesSubscription) {
+      this.superPropertiesSubscription.remove();
+      this.superPropertiesSubscription = null;
+    }
+    this._invalidateSuperProperties();
+    if (enabled && Helper.isAndroidNative(this.mixpanelImpl)) {
+      this.superPropertiesSubscription = DeviceEventEmitter.addListener(
+        NATIVE_SUPER_PROPERTIES_EVENT,
+        ({token}) => {
+          if (token === this.token) {
+            this._invalidateSuperProperties();
+          }
+        }
+      );
+    }
+    this._callAndroidNative("setSuperPropertiesCacheEnabled", enabled);
+  }
+
+  /**
+   * Android only. Make the next init() create the native Mixpanel instance on a background
+   * thread, so loading its storage does not hold up the React Native modules thread during app
+   * startup. Calls made before it completes are captured natively and replayed in call order
+   * once the instance is ready, and the promise returned by init() resolves after that. Calls
+   * beyond maxPendingCalls fail. The synchronous reads never wait for the instance: they return
+   * empty values until init() completes. Call it before init().
+   *
+   * @param {boolean} enabled whether to initialize asynchronously. Defaults to false.
+   * @param {number} maxPendingCalls Optional number of calls captured before init() completes. Defaults to 500.
+   *
+   */
+  setAsyncInitializationEnabled(enabled, maxPendingCalls = 500) {
+    this._callAndroidNative(
+      "setAsyncInitializationEnabled",
+      enabled,
+      maxPendingCalls
+    );
+  }
+
+  /**
+   * Android only. Run this instance's native calls on a dedicated serial thread instead of
+   * locking the Mixpanel instance on the React Native modules thread, so one slow call such as
+   * flush() or reset() does not hold up the others. Calls keep their order, and reads such as
+   * getDistinctId() are answered from the latest identity snapshot. Call it right after init().
+   * Disabling it also disables setParallelConversionEnabled().
+   *
+   * @param {boolean} enabled whether to use serial execution. Defaults to false.
+   *
+   */
+  setSerialExecutionEnabled(enabled) {
+    this._callAndroidNative("setSerialExecutionEnabled", enabled);
+  }
+
+  /**
+   * Android only. Convert the properties of track() and trackJson() calls on a pool of native
+   * worker threads instead of the React Native modules thread, which keeps that thread responsive
+   * for large property maps. Events still reach the Mixpanel instance in call order.
+   *
+   * The pipeline hands the converted events over on the serial thread of setSerialExecutionEnabled(),
+   * so enabling it forces serial execution on. Serial execution stays on when the pipeline is
+   * disabled again, until setSerialExecutionEnabled(false) turns both off.
+   *
+   * @param {boolean} enabled whether to convert properties off the modules thread. Defaults to false.
+   * @param {number} workers Optional number of conversion threads. Defaults to 2.
+   *
+   */
+  setParallelConversionEnabled(enabled, workers = 2) {
+    this._callAndroidNative("setParallelConversionEnabled", enabled, workers);
+  }
+
   /**
    * Will return true if the user has opted out from tracking.
    *
@@ -199,6 +520,7 @@ export class Mixpanel {
    *
    */
   optInTracking() {
+    this._drainTrackBatch();
     this.mixpanelImpl.optInTracking(this.token);
   }
 
@@ -210,7 +532,9 @@ export class Mixpanel {
    * This method will also remove any user-related information from the device.
    */
   optOutTracking() {
+    this._drainTrackBatch();
     this.mixpanelImpl.optOutTracking(this.token);
+    this._invalidateSuperProperties();
   }
 
   /**
@@ -239,6 +563,7 @@ export class Mixpanel {
         StringHelper.raiseError(PARAMS.DISTINCT_ID);
         reject(new Error("Invalid distinctId"));
       }
+      this._drainTrackBatch();
       this.mixpanelImpl
         .identify(this.token, distinctId)
         .then(() => {
@@ -270,6 +595,7 @@ export class Mixpanel {
     if (!StringHelper.isValid(distinctId)) {
       StringHelper.raiseError(PARAMS.DISTINCT_ID);
     }
+    this._drainTrackBatch();
     this.mixpanelImpl.alias(this.token, alias, distinctId);
   }
 
@@ -284,18 +610,172 @@ export class Mixpanel {
    * @param {string} eventName The name of the event to send
    * @param {object} properties A Map containing the key value pairs of the properties to include in this event.
    *                   Pass null if no extra properties exist.
+   * @param {string} priority Optional, Android only. "critical" to flush the event within seconds, or "bulk"
+   *                   to hold it for the bulk flush interval. See setPriorityLanesEnabled().
    */
-  track(eventName, properties) {
+  track(eventName, properties, priority) {
     if (!StringHelper.isValid(eventName)) {
       StringHelper.raiseError(PARAMS.EVENT_NAME);
     }
     if (!ObjectHelper.isValidOrUndefined(properties)) {
       ObjectHelper.raiseError(PARAMS.PROPERTIES);
     }
-    this.mixpanelImpl.track(this.token, eventName, {
+    const eventProperties = {
       ...Helper.getMetaData(),
+      ...this.contextProperties,
       ...properties,
-    });
+    };
+    if (priority && Helper.isAndroidNative(this.mixpanelImpl)) {
+      this._drainTrackBatch();
+      this.mixpanelImpl.trackWithPriority(
+        this.token,
+        eventName,
+        eventProperties,
+        priority
+      );
+      return;
+    }
+    if (this.trackBatcher) {
+      this.trackBatcher.add(eventName, eventProperties);
+    } else {
+      Helper.callWriteMethod(this, "track", eventName, eventProperties);
+    }
+  }
+
+  /**
+   * Track an event whose properties are already serialized with JSON.stringify().
+   *
+   * <p>On Android the native module parses the string directly, which is cheaper for large
+   * property maps than passing an object over the bridge. Elsewhere the string is parsed
+   * and the event is sent with track().
+   *
+   * @param {string} eventName The name of the event to send
+   * @param {string} json The JSON.stringify() output of the event properties
+   */
+  trackJson(eventName, json) {
+    if (!StringHelper.isValid(eventName)) {
+      StringHelper.raiseError(PARAMS.EVENT_NAME);
+    }
+    if (typeof json !== "string") {
+      ObjectHelper.raiseError(PARAMS.PROPERTIES);
+    }
+    if (!Helper.isAndroidNative(this.mixpanelImpl)) {
+      this.track(eventName, JSON.parse(json));
+      return;
+    }
+    this._drainTrackBatch();
+    Helper.callWriteMethod(this, "trackJson", eventName, json);
+  }
+
+  /**
+   * Count an event instead of sending it. On Android the calls are aggregated natively per event
+   * name and set of dimensions, and one summary event per set is sent with the dimensions, the
+   * sum of each metric under the metric's name, the number of calls as $count and the start of
+   * the window as $window_start. Summaries are sent when the window set by
+   * setAggregationWindow() elapses, on flush(), when the app goes to the background and before
+   * any call that changes the identity, the opt-out state or the super properties. Summaries not
+   * sent yet are only held in memory and are lost if the app is killed. Elsewhere every call is
+   * sent as a regular event.
+   *
+   * @param {string} eventName The name of the event to count
+   * @param {object} dimensions Optional string, number or boolean properties that identify the summary
+   * @param {object} metrics Optional numeric properties to sum
+   */
+  trackAggregated(eventName, dimensions, metrics) {
+    if (!StringHelper.isValid(eventName)) {
+      StringHelper.raiseError(PARAMS.EVENT_NAME);
+    }
+    if (!ObjectHelper.isValidOrUndefined(dimensions)) {
+      ObjectHelper.raiseError(PARAMS.DIMENSIONS);
+    }
+    if (!ObjectHelper.isValidOrUndefined(metrics)) {
+      ObjectHelper.raiseError(PARAMS.METRICS);
+    }
+    if (!Helper.isAndroidNative(this.mixpanelImpl)) {
+      this.track(eventName, {...dimensions, ...metrics});
+      return;
+    }
+    this._drainTrackBatch();
+    this.mixpanelImpl.trackAggregated(
+      this.token,
+      eventName,
+      dimensions || {},
+      metrics || {}
+    );
+  }
+
+  /**
+   * Android only. Route the events tracked with a priority into lanes. Events tracked with the
+   * "critical" priority, such as purchases, are flushed within criticalFlushDelay milliseconds,
+   * along with the events tracked without a priority so far. Events tracked with the "bulk"
+   * priority are held natively and handed to the Mixpanel instance every bulkFlushInterval
+   * milliseconds, or once maxBulkEvents are held, so expedited flushes do not send them early.
+   * flush(), the app going to the background and any call that changes the identity, the opt-out
+   * state or the super properties send them right away. Held events are only kept in memory and
+   * are lost if the app is killed before they are sent.
+   *
+   * @param {boolean} enabled whether to route events by priority. Defaults to false.
+   * @param {number} criticalFlushDelay Optional milliseconds before critical events are flushed. Defaults to 1000.
+   * @param {number} bulkFlushInterval Optional milliseconds bulk events are held for. Defaults to 60000.
+   * @param {number} maxBulkEvents Optional number of bulk events held at most. Defaults to 1000.
+   *
+   */
+  setPriorityLanesEnabled(
+    enabled,
+    criticalFlushDelay = 1000,
+    bulkFlushInterval = 60000,
+    maxBulkEvents = 1000
+  ) {
+    this._callAndroidNative(
+      "setPriorityLanesEnabled",
+      enabled,
+      criticalFlushDelay,
+      bulkFlushInterval,
+      maxBulkEvents
+    );
+  }
+
+  /**
+   * Android only. Set how often the events counted with trackAggregated() are sent as summary
+   * events. The current summaries are sent first.
+   *
+   * @param {number} window Milliseconds between summaries. Defaults to 60000.
+   */
+  setAggregationWindow(window) {
+    this._callAndroidNative("setAggregationWindow", window);
+  }
+
+  /**
+   * Android only. Flush the queue based on the app lifecycle, the network and the rate events
+   * are tracked at, on top of the Mixpanel instance's own flush interval. What is queued is
+   * flushed as soon as the app goes to the background. In the foreground, the queue is flushed
+   * every interval milliseconds, or shortly after queueDepth events were tracked, waiting for
+   * bursts of events to end. Flushes are less frequent on metered or slow networks and in
+   * battery saver, and are held while offline until the network comes back.
+   *
+   * @param {boolean} enabled whether to schedule flushes adaptively. Defaults to false.
+   * @param {number} interval Optional milliseconds between foreground flushes. Defaults to 60000.
+   * @param {number} queueDepth Optional number of tracked events that triggers a flush. Defaults to 50.
+   *
+   */
+  setAdaptiveFlushEnabled(enabled, interval = 60000, queueDepth = 50) {
+    this._callAndroidNative(
+      "setAdaptiveFlushEnabled",
+      enabled,
+      interval,
+      queueDepth
+    );
+  }
+
+  /**
+   * Android only. Returns the flushes of the adaptive flush scheduler by reason, the flushes
+   * deferred while offline and the scheduler's last decision.
+   *
+   * @return {Promise<object>} A Promise to the scheduler statistics, or to null while adaptive flushing is disabled
+   *
+   */
+  getFlushSchedulerStats() {
+    return this._callAndroidNative("getFlushSchedulerStats");
   }
 
   /**
@@ -310,6 +790,7 @@ export class Mixpanel {
       return this.people;
     } else {
       this.people = new People(this.token, this.mixpanelImpl);
+      this.people.fireAndForget = this.fireAndForget;
       return this.people;
     }
   }
@@ -335,11 +816,14 @@ export class Mixpanel {
     if (!ObjectHelper.isValidOrUndefined(properties)) {
       ObjectHelper.raiseError(PARAMS.PROPERTIES);
     }
-    this.mixpanelImpl.trackWithGroups(
-      this.token,
+    this._drainTrackBatch();
+    Helper.callWriteMethod(
+      this,
+      "trackWithGroups",
       eventName,
       {
         ...Helper.getMetaData(),
+        ...this.contextProperties,
         ...properties,
       },
       groups
@@ -356,7 +840,10 @@ export class Mixpanel {
     if (!StringHelper.isValid(groupKey)) {
       StringHelper.raiseError(PARAMS.GROUP_KEY);
     }
+    this._drainTrackBatch();
     this.mixpanelImpl.setGroup(this.token, groupKey, groupID);
+    // group memberships are kept as super properties
+    this._invalidateSuperProperties();
   }
 
   /**
@@ -392,7 +879,10 @@ export class Mixpanel {
     if (!StringHelper.isValid(groupKey)) {
       StringHelper.raiseError(PARAMS.GROUP_KEY);
     }
+    this._drainTrackBatch();
     this.mixpanelImpl.addGroup(this.token, groupKey, groupID);
+    // group memberships are kept as super properties
+    this._invalidateSuperProperties();
   }
 
   /**
@@ -405,7 +895,10 @@ export class Mixpanel {
     if (!StringHelper.isValid(groupKey)) {
       StringHelper.raiseError(PARAMS.GROUP_KEY);
     }
+    this._drainTrackBatch();
     this.mixpanelImpl.removeGroup(this.token, groupKey, groupID);
+    // group memberships are kept as super properties
+    this._invalidateSuperProperties();
   }
 
   /**
@@ -423,6 +916,54 @@ export class Mixpanel {
     this.mixpanelImpl.deleteGroup(this.token, groupKey, groupID);
   }
 
+  /**
+   * Apply an ordered list of operations on any number of groups in a single call. On Android the
+   * native module applies them under one lock and reuses cached group handles. Elsewhere each
+   * operation is applied with the matching MixpanelGroup method.
+   *
+   * @param {Array<object>} operations Operations of the form {groupKey, groupID, operation} with
+   *                   properties for "set" and "setOnce", name for "unset", name and value for
+   *                   "remove" and "union", and nothing more for "delete"
+   */
+  groupBatch(operations) {
+    if (!Array.isArray(operations)) {
+      ObjectHelper.raiseError(PARAMS.PROPERTIES);
+    }
+    if (Helper.isAndroidNative(this.mixpanelImpl)) {
+      this._drainTrackBatch();
+      this.mixpanelImpl.groupBatch(this.token, operations);
+      return;
+    }
+    operations.forEach(
+      ({groupKey, groupID, operation, properties, name, value}) => {
+        const group = new MixpanelGroup(
+          this.token,
+          groupKey,
+          groupID,
+          this.mixpanelImpl
+        );
+        switch (operation) {
+          case "set":
+          case "setOnce":
+            group[operation](properties);
+            break;
+          case "unset":
+            group.unset(name);
+            break;
+          case "remove":
+          case "union":
+            group[operation](name, value);
+            break;
+          case "delete":
+            this.deleteGroup(groupKey, groupID);
+            break;
+          default:
+            throw new Error(`Unsupported group operation ${operation}`);
+        }
+      }
+    );
+  }
+
   /**
    * Register properties that will be sent with every subsequent call to track().
    *
@@ -442,7 +983,28 @@ export class Mixpanel {
     if (!ObjectHelper.isValidOrUndefined(properties)) {
       ObjectHelper.raiseError(PARAMS.PROPERTIES);
     }
-    this.mixpanelImpl.registerSuperProperties(this.token, properties || {});
+    this._drainTrackBatch();
+    Helper.callWriteMethod(this, "registerSuperProperties", properties || {});
+    this._invalidateSuperProperties();
+  }
+
+  /**
+   * Same as registerSuperProperties(), with the properties already serialized with JSON.stringify().
+   * On Android the native module parses the string directly.
+   *
+   * @param {string} json The JSON.stringify() output of the super properties to register
+   */
+  registerSuperPropertiesJson(json) {
+    if (typeof json !== "string") {
+      ObjectHelper.raiseError(PARAMS.PROPERTIES);
+    }
+    if (!Helper.isAndroidNative(this.mixpanelImpl)) {
+      this.registerSuperProperties(JSON.parse(json));
+      return;
+    }
+    this._drainTrackBatch();
+    Helper.callWriteMethod(this, "registerSuperPropertiesJson", json);
+    this._invalidateSuperProperties();
   }
 
   /**
@@ -457,7 +1019,13 @@ export class Mixpanel {
     if (!ObjectHelper.isValidOrUndefined(properties)) {
       ObjectHelper.raiseError(PARAMS.PROPERTIES);
     }
-    this.mixpanelImpl.registerSuperPropertiesOnce(this.token, properties || {});
+    this._drainTrackBatch();
+    Helper.callWriteMethod(
+      this,
+      "registerSuperPropertiesOnce",
+      properties || {}
+    );
+    this._invalidateSuperProperties();
   }
 
   /**
@@ -473,7 +1041,9 @@ export class Mixpanel {
     if (!StringHelper.isValid(propertyName)) {
       StringHelper.raiseError(PARAMS.PROPERTY_NAME);
     }
+    this._drainTrackBatch();
     this.mixpanelImpl.unregisterSuperProperty(this.token, propertyName);
+    this._invalidateSuperProperties();
   }
 
   /**
@@ -485,7 +1055,19 @@ export class Mixpanel {
    * @return {Promise<object>} Super properties for this Mixpanel instance.
    */
   getSuperProperties() {
-    return this.mixpanelImpl.getSuperProperties(this.token);
+    if (!this.superPropertiesSubscription) {
+      return this.mixpanelImpl.getSuperProperties(this.token);
+    }
+    if (this.superPropertiesCache) {
+      return Promise.resolve(this.superPropertiesCache);
+    }
+    const version = this.superPropertiesVersion;
+    return this.mixpanelImpl
+      .getSuperProperties(this.token)
+      .then((superProperties) => {
+        this._cacheSuperProperties(superProperties, version);
+        return superProperties;
+      });
   }
 
   /**
@@ -497,7 +1079,55 @@ export class Mixpanel {
    * <p>To remove a single superProperty, use unregisterSuperProperty()
    */
   clearSuperProperties() {
+    this._drainTrackBatch();
     this.mixpanelImpl.clearSuperProperties(this.token);
+    this._invalidateSuperProperties();
+  }
+
+  /**
+   * Push scoped properties, such as those of the current screen, that are added to every event
+   * tracked until popContext() is called with the same id. Later contexts override earlier ones,
+   * and the properties passed to track() override both. Unlike super properties they are not
+   * persisted. On Android they are kept natively, so they are not sent again with each event.
+   *
+   * @param {string} id The id to pass to popContext()
+   * @param {object} properties The properties of the context
+   */
+  pushContext(id, properties) {
+    if (!StringHelper.isValid(id)) {
+      StringHelper.raiseError(PARAMS.CONTEXT_ID);
+    }
+    if (!ObjectHelper.isValidOrUndefined(properties)) {
+      ObjectHelper.raiseError(PARAMS.PROPERTIES);
+    }
+    this._drainTrackBatch();
+    if (Helper.isAndroidNative(this.mixpanelImpl)) {
+      this.mixpanelImpl.pushContext(this.token, id, properties || {});
+      return;
+    }
+    this.contexts.push({id, properties: properties || {}});
+    this._mergeContexts();
+  }
+
+  /**
+   * Remove the most recent context pushed with the id, along with any context pushed after it.
+   *
+   * @param {string} id The id passed to pushContext()
+   */
+  popContext(id) {
+    if (!StringHelper.isValid(id)) {
+      StringHelper.raiseError(PARAMS.CONTEXT_ID);
+    }
+    this._drainTrackBatch();
+    if (Helper.isAndroidNative(this.mixpanelImpl)) {
+      this.mixpanelImpl.popContext(this.token, id);
+      return;
+    }
+    const index = this.contexts.map((context) => context.id).lastIndexOf(id);
+    if (index >= 0) {
+      this.contexts.splice(index);
+      this._mergeContexts();
+    }
   }
 
   /**
@@ -511,7 +1141,8 @@ export class Mixpanel {
     if (!StringHelper.isValid(eventName)) {
       StringHelper.raiseError(PARAMS.EVENT_NAME);
     }
-    this.mixpanelImpl.timeEvent(this.token, eventName);
+    this._drainTrackBatch();
+    Helper.callWriteMethod(this, "timeEvent", eventName);
   }
 
   /**
@@ -533,7 +1164,9 @@ export class Mixpanel {
       Useful for clearing data when a user logs out.
      */
   reset() {
+    this._drainTrackBatch();
     this.mixpanelImpl.reset(this.token);
+    this._invalidateSuperProperties();
   }
 
   /**
@@ -572,6 +1205,70 @@ export class Mixpanel {
     return this.mixpanelImpl.getDeviceId(this.token);
   }
 
+  /**
+   * Android only. Synchronous variants of the reads above. They return the value directly,
+   * without a Promise, and are answered over JSI when the app uses the New Architecture.
+   * They answer from the values the native module last published, so they never wait for the
+   * queued calls: a call still queued, such as identify(), is not reflected yet, and they
+   * return empty values until init() completes.
+   *
+   * @return {string} the distinct id, or undefined on other platforms
+   *
+   */
+  getDistinctIdSync() {
+    return this._callAndroidNative("getDistinctIdSync");
+  }
+
+  /**
+   * Android only. Synchronous variant of getDeviceId(), see getDistinctIdSync().
+   *
+   * @return {string} the device id, or undefined on other platforms
+   *
+   */
+  getDeviceIdSync() {
+    return this._callAndroidNative("getDeviceIdSync");
+  }
+
+  /**
+   * Android only. Synchronous variant of hasOptedOutTracking(), see getDistinctIdSync().
+   *
+   * @return {boolean} whether the user has opted out, or undefined on other platforms
+   *
+   */
+  hasOptedOutTrackingSync() {
+    return this._callAndroidNative("hasOptedOutTrackingSync");
+  }
+
+  /**
+   * Android only. Synchronous variant of eventElapsedTime(), see getDistinctIdSync().
+   *
+   * @param {string} eventName the name of the timed event
+   * @return {number} the elapsed time, or undefined on other platforms
+   *
+   */
+  eventElapsedTimeSync(eventName) {
+    if (!StringHelper.isValid(eventName)) {
+      StringHelper.raiseError(PARAMS.EVENT_NAME);
+    }
+    return this._callAndroidNative("eventElapsedTimeSync", eventName);
+  }
+
+  /**
+   * Android only. Synchronous variant of getSuperProperties(), see getDistinctIdSync().
+   *
+   * @return {object} the super properties, or undefined on other platforms
+   *
+   */
+  getSuperPropertiesSync() {
+    if (this.superPropertiesCache) {
+      return this.superPropertiesCache;
+    }
+    const version = this.superPropertiesVersion;
+    const superProperties = this._callAndroidNative("getSuperPropertiesSync");
+    this._cacheSuperProperties(superProperties, version);
+    return superProperties;
+  }
+
   /**
    * Push all queued Mixpanel events and People Analytics changes to Mixpanel servers.
    *
@@ -582,8 +1279,75 @@ export class Mixpanel {
    * send all remaining messages to the server.
    */
   flush() {
+    this._drainTrackBatch();
     this.mixpanelImpl.flush(this.token);
   }
+
+  /**
+   * Call a method only the Android native module implements, warning on other platforms and in JavaScript mode.
+   */
+  _callAndroidNative(methodName, ...args) {
+    if (Helper.isAndroidNative(this.mixpanelImpl)) {
+      return MixpanelReactNative[methodName](this.token, ...args);
+    }
+    console.warn(
+      `Mixpanel ${methodName} was called and ignored because this method only works on Android in native mode.`
+    );
+  }
+
+  /**
+   * Send a batch of buffered track calls, falling back to one track() per event when
+   * trackBatch() is unavailable.
+   */
+  _sendTrackBatch(events) {
+    if (typeof this.mixpanelImpl.trackBatch === "function") {
+      Helper.callWriteMethod(this, "trackBatch", events);
+    } else {
+      events.forEach(({eventName, properties}) => {
+        Helper.callWriteMethod(this, "track", eventName, properties);
+      });
+    }
+  }
+
+  /**
+   * Merge the pushed contexts into the properties added to each event outside of Android.
+   */
+  _mergeContexts() {
+    this.contextProperties = Object.assign(
+      {},
+      ...this.contexts.map((context) => context.properties)
+    );
+  }
+
+  /**
+   * Drop the cached super properties, including any read still in flight.
+   */
+  _invalidateSuperProperties() {
+    this.superPropertiesVersion++;
+    this.superPropertiesCache = null;
+  }
+
+  /**
+   * Cache super properties read at the given version, unless they may have changed since.
+   */
+  _cacheSuperProperties(superProperties, version) {
+    if (
+      this.superPropertiesSubscription &&
+      superProperties &&
+      version === this.superPropertiesVersion
+    ) {
+      this.superPropertiesCache = superProperties;
+    }
+  }
+
+  /**
+   * Send any events buffered by setTrackBatchingEnabled() ahead of the next call.
+   */
+  _drainTrackBatch() {
+    if (this.trackBatcher) {
+      this.trackBatcher.drain();
+    }
+  }
 }
 
 /**
@@ -604,6 +1368,7 @@ export class People {
     }
     this.token = token;
     this.mixpanelImpl = mixpanelImpl;
+    this.fireAndForget = false;
   }
 
   /**
@@ -624,7 +1389,24 @@ export class People {
       }
       properties[prop] = to;
     }
-    this.mixpanelImpl.set(this.token, properties);
+    Helper.callWriteMethod(this, "set", properties);
+  }
+
+  /**
+   * Same as set() with a map of properties, already serialized with JSON.stringify().
+   * On Android the native module parses the string directly.
+   *
+   * @param {string} json The JSON.stringify() output of the properties to set
+   */
+  setJson(json) {
+    if (typeof json !== "string") {
+      ObjectHelper.raiseError(PARAMS.PROPERTIES);
+    }
+    if (!Helper.isAndroidNative(this.mixpanelImpl)) {
+      this.set(JSON.parse(json));
+      return;
+    }
+    Helper.callWriteMethod(this, "setJson", json);
   }
 
   /**
@@ -644,7 +1426,7 @@ export class People {
       }
       properties[prop] = to;
     }
-    this.mixpanelImpl.setOnce(this.token, properties);
+    Helper.callWriteMethod(this, "setOnce", properties);
   }
 
   /**
@@ -682,7 +1464,7 @@ export class People {
 
       add[prop] = by;
     }
-    this.mixpanelImpl.increment(this.token, add);
+    Helper.callWriteMethod(this, "increment", add);
   }
 
   /**
@@ -701,9 +1483,9 @@ export class People {
     }
 
     if (DevicePlatform.iOS === Helper.getDevicePlatform()) {
-      this.mixpanelImpl.append(this.token, appendProp);
+      Helper.callWriteMethod(this, "append", appendProp);
     } else {
-      this.mixpanelImpl.append(this.token, name, value);
+      Helper.callWriteMethod(this, "append", name, value);
     }
   }
 
@@ -723,10 +1505,10 @@ export class People {
     value = Array.isArray(value) ? value : [value];
 
     if (DevicePlatform.iOS === Helper.getDevicePlatform()) {
-      this.mixpanelImpl.union(this.token, {[name]: value});
-      this.mixpanelImpl.union(this.token, {[name]: value});
+      Helper.callWriteMethod(this, "union", {[name]: value});
+      Helper.callWriteMethod(this, "union", {[name]: value});
     } else {
-      this.mixpanelImpl.union(this.token, name, value);
+      Helper.callWriteMethod(this, "union", name, value);
     }
   }
 
@@ -746,9 +1528,9 @@ export class People {
     }
 
     if (DevicePlatform.iOS === Helper.getDevicePlatform()) {
-      this.mixpanelImpl.remove(this.token, removeProp);
+      Helper.callWriteMethod(this, "remove", removeProp);
     } else {
-      this.mixpanelImpl.remove(this.token, name, value);
+      Helper.callWriteMethod(this, "remove", name, value);
     }
   }
 
@@ -760,7 +1542,7 @@ export class People {
     if (!StringHelper.isValid(name)) {
       StringHelper.raiseError(PARAMS.PROPERTY_NAME);
     }
-    this.mixpanelImpl.unset(this.token, name);
+    Helper.callWriteMethod(this, "unset", name);
   }
 
   /**
@@ -796,6 +1578,44 @@ export class People {
   deleteUser() {
     this.mixpanelImpl.deleteUser(this.token);
   }
+
+  /**
+   * Apply an ordered list of profile operations in a single call. On Android the native module
+   * applies them under one lock and merges consecutive operations that combine into one profile
+   * update: sets, setOnces, increments, and unions of the same property. Elsewhere each operation
+   * is applied with the matching method of this object.
+   *
+   * @param {Array<object>} operations Operations of the form {operation: "set" | "setOnce" | "increment", properties},
+   *                   {operation: "union" | "append" | "remove", name, value} or {operation: "unset", name}
+   */
+  batch(operations) {
+    if (!Array.isArray(operations)) {
+      ObjectHelper.raiseError(PARAMS.PROPERTIES);
+    }
+    if (Helper.isAndroidNative(this.mixpanelImpl)) {
+      Helper.callWriteMethod(this, "peopleBatch", operations);
+      return;
+    }
+    operations.forEach(({operation, properties, name, value}) => {
+      switch (operation) {
+        case "set":
+        case "setOnce":
+        case "increment":
+          this[operation](properties);
+          break;
+        case "union":
+        case "append":
+        case "remove":
+          this[operation](name, value);
+          break;
+        case "unset":
+          this.unset(name);
+          break;
+        default:
+          throw new Error(`Unsupported people operation ${operation}`);
+      }
+    });
+  }
 }
 
 /**
@@ -936,6 +1756,26 @@ class Helper {
     return metadata;
   }
 
+  /**
+      Call a write-only method of the owner's implementation, using its promise-less "Void" variant
+      when the owner has fire-and-forget enabled and the implementation provides one.
+     */
+  static callWriteMethod(owner, methodName, ...args) {
+    const impl = owner.mixpanelImpl;
+    const voidMethod = owner.fireAndForget ? impl[`${methodName}Void`] : null;
+    if (typeof voidMethod === "function") {
+      return voidMethod(owner.token, ...args);
+    }
+    return impl[methodName](owner.token, ...args);
+  }
+
+  /**
+      Check whether the implementation is the Android native module.
+     */
+  static isAndroidNative(impl) {
+    return Platform.OS === "android" && impl === MixpanelReactNative;
+  }
+
   /**
       Get current device platform.
      */
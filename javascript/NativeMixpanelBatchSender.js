@@ -0,0 +1,26 @@
+/**
+ * Codegen spec of the Android native module that sends the JavaScript mode
+ * batches off the JS thread, see MixpanelNetwork in mixpanel-network.js.
+ *
+ * @flow strict-local
+ */
+
+import type {TurboModule} from "react-native/Libraries/TurboModule/RCTExport";
+import {TurboModuleRegistry} from "react-native";
+
+export type BatchResponse = {|
+  status: number,
+  body: ?string,
+  error: ?string,
+  attempts: number,
+|};
+
+export interface Spec extends TurboModule {
+  +sendBatch: (
+    url: string,
+    batch: Array<Object>,
+    useGzipCompression: boolean
+  ) => Promise<BatchResponse>;
+}
+
+export default (TurboModuleRegistry.get<Spec>("MixpanelBatchSender"): ?Spec);
@@ -0,0 +1,32 @@
+/**
+ * Codegen spec of the Android native module that keeps the JavaScript mode
+ * queues in append-only logs, see NativeQueueStorage in mixpanel-storage.js.
+ *
+ * @flow strict-local
+ */
+
+import type {TurboModule} from "react-native/Libraries/TurboModule/RCTExport";
+import {TurboModuleRegistry} from "react-native";
+
+export interface Spec extends TurboModule {
+  +loadQueue: (token: string, type: string) => Promise<string>;
+  +appendToQueue: (
+    token: string,
+    type: string,
+    record: string
+  ) => Promise<void>;
+  +acknowledgeQueue: (
+    token: string,
+    type: string,
+    count: number
+  ) => Promise<void>;
+  +replaceQueue: (
+    token: string,
+    type: string,
+    records: Array<string>
+  ) => Promise<void>;
+  +isQueueMigrated: (token: string, type: string) => Promise<boolean>;
+  +markQueueMigrated: (token: string, type: string) => Promise<void>;
+}
+
+export default (TurboModuleRegistry.get<Spec>("MixpanelQueueStorage"): ?Spec);
@@ -0,0 +1,306 @@
+/**
+ * Codegen spec of the Android native module. On the New Architecture it is
+ * served as a TurboModule, so arguments are passed over JSI and the *Sync
+ * reads return directly. The legacy bridge module implements the same methods.
+ *
+ * @flow strict-local
+ */
+
+import type {TurboModule} from "react-native/Libraries/TurboModule/RCTExport";
+import {TurboModuleRegistry} from "react-native";
+
+// Property maps, super properties and the per-method or per-event stats have
+// open keys and stay Object; values that may be a string, number or boolean,
+// such as group ids, stay mixed.
+
+export type InterningStats = {|
+  hits: number,
+  misses: number,
+  hitRate: number,
+  size: number,
+  maxEntries: number,
+|};
+
+export type PayloadLimits = {|
+  maxDepth?: number,
+  maxKeys?: number,
+  maxArrayLength?: number,
+  maxBytes?: number,
+  reject?: boolean,
+|};
+
+export type PayloadStats = {|
+  maxDepth: number,
+  maxKeys: number,
+  maxArrayLength: number,
+  maxBytes: number,
+  reject: boolean,
+  truncated: number,
+  rejected: number,
+|};
+
+export type FlushSchedulerStats = {|
+  flushCount: number,
+  flushes: {|
+    background: number,
+    interval: number,
+    queueDepth: number,
+    reconnect: number,
+  |},
+  deferrals: number,
+  lastDecision: {|action: string, reason?: string, delayMs: number|},
+  pendingEvents: number,
+  enqueueRate: number,
+  foreground: boolean,
+  connected: boolean,
+  metered: boolean,
+  slowNetwork: boolean,
+  powerSave: boolean,
+|};
+
+export type BatchEvent = {|eventName: string, properties?: ?Object|};
+
+export type PeopleOperation = {|
+  operation: string,
+  properties?: Object,
+  name?: string,
+  value?: mixed,
+|};
+
+export type GroupOperation = {|
+  operation: string,
+  groupKey: string,
+  groupID: mixed,
+  properties?: Object,
+  name?: string,
+  value?: mixed,
+|};
+
+export interface Spec extends TurboModule {
+  +initialize: (
+    token: string,
+    trackAutomaticEvents: boolean,
+    optOutTrackingDefault: boolean,
+    metadata: Object,
+    serverURL: string,
+    useGzipCompression: boolean
+  ) => Promise<void>;
+  +setAsyncInitializationEnabled: (
+    token: string,
+    enabled: boolean,
+    maxPendingCalls: number
+  ) => Promise<void>;
+  +setServerURL: (token: string, serverURL: string) => Promise<void>;
+  +setUseIpAddressForGeolocation: (
+    token: string,
+    useIpAddressForGeolocation: boolean
+  ) => Promise<void>;
+  +setFlushBatchSize: (token: string, flushBatchSize: number) => Promise<void>;
+  +setLoggingEnabled: (token: string, enableLogging: boolean) => Promise<void>;
+  +setSerialExecutionEnabled: (token: string, enabled: boolean) => Promise<void>;
+  +setParallelConversionEnabled: (
+    token: string,
+    enabled: boolean,
+    workers: number
+  ) => Promise<void>;
+  +setTrackBufferingEnabled: (
+    token: string,
+    enabled: boolean,
+    maxBatchSize: number,
+    flushInterval: number
+  ) => Promise<void>;
+  +setPropertyInterningEnabled: (
+    token: string,
+    enabled: boolean,
+    maxEntries: number
+  ) => Promise<void>;
+  +getInterningStats: (token: string) => Promise<?InterningStats>;
+  +setPayloadLimits: (
+    token: string,
+    limits: ?PayloadLimits
+  ) => Promise<void>;
+  +getPayloadStats: (token: string) => Promise<?PayloadStats>;
+  +setPerformanceStatsEnabled: (
+    token: string,
+    enabled: boolean,
+    reportInterval: number
+  ) => Promise<void>;
+  +getPerformanceStats: (token: string) => Promise<Object>;
+  +setSamplingPolicies: (token: string, policies: Object) => Promise<void>;
+  +getSamplingStats: (token: string) => Promise<Object>;
+  +hasOptedOutTracking: (token: string) => Promise<boolean>;
+  +optInTracking: (token: string) => Promise<void>;
+  +optOutTracking: (token: string) => Promise<void>;
+  +identify: (token: string, distinctId: string) => Promise<void>;
+  +getDistinctId: (token: string) => Promise<string>;
+  +getDeviceId: (token: string) => Promise<string>;
+  +track: (token: string, eventName: string, properties: Object) => Promise<void>;
+  +trackJson: (
+    token: string,
+    eventName: string,
+    properties: string
+  ) => Promise<void>;
+  +trackBatch: (token: string, events: Array<BatchEvent>) => Promise<void>;
+  +trackWithPriority: (
+    token: string,
+    eventName: string,
+    properties: Object,
+    priority: string
+  ) => Promise<void>;
+  +setPriorityLanesEnabled: (
+    token: string,
+    enabled: boolean,
+    criticalFlushDelay: number,
+    bulkFlushInterval: number,
+    maxBulkEvents: number
+  ) => Promise<void>;
+  +trackAggregated: (
+    token: string,
+    eventName: string,
+    dimensions: Object,
+    metrics: Object
+  ) => Promise<void>;
+  +setAggregationWindow: (token: string, window: number) => Promise<void>;
+  +setAdaptiveFlushEnabled: (
+    token: string,
+    enabled: boolean,
+    interval: number,
+    queueDepth: number
+  ) => Promise<void>;
+  +getFlushSchedulerStats: (
+    token: string
+  ) => Promise<?FlushSchedulerStats>;
+  +registerSuperProperties: (token: string, properties: Object) => Promise<void>;
+  +registerSuperPropertiesJson: (
+    token: string,
+    properties: string
+  ) => Promise<void>;
+  +registerSuperPropertiesOnce: (
+    token: string,
+    properties: Object
+  ) => Promise<void>;
+  +unregisterSuperProperty: (
+    token: string,
+    superPropertyName: string
+  ) => Promise<void>;
+  +union: (token: string, name: string, value: Array<mixed>) => Promise<void>;
+  +getSuperProperties: (token: string) => Promise<Object>;
+  +clearSuperProperties: (token: string) => Promise<void>;
+  +setSuperPropertiesCacheEnabled: (
+    token: string,
+    enabled: boolean
+  ) => Promise<void>;
+  +pushContext: (token: string, id: string, properties: Object) => Promise<void>;
+  +popContext: (token: string, id: string) => Promise<void>;
+  +alias: (token: string, alias: string, original: string) => Promise<void>;
+  +reset: (token: string) => Promise<void>;
+  +flush: (token: string) => Promise<void>;
+  +timeEvent: (token: string, eventName: string) => Promise<void>;
+  +eventElapsedTime: (token: string, eventName: string) => Promise<number>;
+  +set: (token: string, properties: Object) => Promise<void>;
+  +setJson: (token: string, properties: string) => Promise<void>;
+  +unset: (token: string, propertyName: string) => Promise<void>;
+  +setOnce: (token: string, properties: Object) => Promise<void>;
+  +peopleBatch: (
+    token: string,
+    operations: Array<PeopleOperation>
+  ) => Promise<void>;
+  +trackCharge: (
+    token: string,
+    charge: number,
+    properties: Object
+  ) => Promise<void>;
+  +clearCharges: (token: string) => Promise<void>;
+  +increment: (token: string, properties: Object) => Promise<void>;
+  +append: (token: string, name: string, value: mixed) => Promise<void>;
+  +deleteUser: (token: string) => Promise<void>;
+  +remove: (token: string, name: string, value: mixed) => Promise<void>;
+  +trackWithGroups: (
+    token: string,
+    eventName: string,
+    properties: Object,
+    groups: Object
+  ) => Promise<void>;
+  +setGroup: (token: string, groupKey: string, groupID: mixed) => Promise<void>;
+  +setGroups: (
+    token: string,
+    groupKey: string,
+    groupIDs: Array<mixed>
+  ) => Promise<void>;
+  +addGroup: (token: string, groupKey: string, groupID: mixed) => Promise<void>;
+  +removeGroup: (
+    token: string,
+    groupKey: string,
+    groupID: mixed
+  ) => Promise<void>;
+  +deleteGroup: (
+    token: string,
+    groupKey: string,
+    groupID: mixed
+  ) => Promise<void>;
+  +groupBatch: (
+    token: string,
+    operations: Array<GroupOperation>
+  ) => Promise<void>;
+  +groupSetProperties: (
+    token: string,
+    groupKey: string,
+    groupID: mixed,
+    properties: Object
+  ) => Promise<void>;
+  +groupSetPropertyOnce: (
+    token: string,
+    groupKey: string,
+    groupID: mixed,
+    properties: Object
+  ) => Promise<void>;
+  +groupUnsetProperty: (
+    token: string,
+    groupKey: string,
+    groupID: mixed,
+    propertyName: string
+  ) => Promise<void>;
+  +groupRemovePropertyValue: (
+    token: string,
+    groupKey: string,
+    groupID: mixed,
+    name: string,
+    value: mixed
+  ) => Promise<void>;
+  +groupUnionProperty: (
+    token: string,
+    groupKey: string,
+    groupID: mixed,
+    name: string,
+    values: Array<mixed>
+  ) => Promise<void>;
+
+  // Promise-less variants, see setFireAndForgetEnabled().
+  +trackVoid: (token: string, eventName: string, properties: Object) => void;
+  +trackBatchVoid: (token: string, events: Array<BatchEvent>) => void;
+  +trackWithGroupsVoid: (
+    token: string,
+    eventName: string,
+    properties: Object,
+    groups: Object
+  ) => void;
+  +timeEventVoid: (token: string, eventName: string) => void;
+  +registerSuperPropertiesVoid: (token: string, properties: Object) => void;
+  +registerSuperPropertiesOnceVoid: (token: string, properties: Object) => void;
+  +setVoid: (token: string, properties: Object) => void;
+  +setOnceVoid: (token: string, properties: Object) => void;
+  +unsetVoid: (token: string, propertyName: string) => void;
+  +incrementVoid: (token: string, properties: Object) => void;
+  +appendVoid: (token: string, name: string, value: mixed) => void;
+  +unionVoid: (token: string, name: string, value: Array<mixed>) => void;
+  +removeVoid: (token: string, name: string, value: mixed) => void;
+
+  // Synchronous reads.
+  +getDistinctIdSync: (token: string) => ?string;
+  +getDeviceIdSync: (token: string) => ?string;
+  +hasOptedOutTrackingSync: (token: string) => boolean;
+  +eventElapsedTimeSync: (token: string, eventName: string) => number;
+  +getSuperPropertiesSync: (token: string) => ?Object;
+}
+
+export default (TurboModuleRegistry.get<Spec>("MixpanelReactNative"): ?Spec);
@@ -89,6 +89,38 @@ export class MixpanelConfig {
     );
   }
 
+  setGzipCompression(token, useGzipCompression) {
+    this._config[token] = {
+      ...this._config[token],
+      useGzipCompression,
+    };
+    MixpanelLogger.log(token, `Set useGzipCompression: ${useGzipCompression}`);
+  }
+
+  getGzipCompression(token) {
+    return (
+      (this._config[token] && this._config[token].useGzipCompression) || false
+    );
+  }
+
+  setNativeBatchSenderEnabled(token, nativeBatchSenderEnabled) {
+    this._config[token] = {
+      ...this._config[token],
+      nativeBatchSenderEnabled,
+    };
+    MixpanelLogger.log(
+      token,
+      `Set nativeBatchSenderEnabled: ${nativeBatchSenderEnabled}`
+    );
+  }
+
+  getNativeBatchSenderEnabled(token) {
+    return (
+      (this._config[token] && this._config[token].nativeBatchSenderEnabled) ||
+      false
+    );
+  }
+
   setFlushInterval(token, flushInterval) {
     this._config[token] = {
       ...this._config[token],
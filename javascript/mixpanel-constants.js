@@ -20,3 +20,12 @@ export const getAppHasOpenedBeforeKey = (token) =>
 export const defaultServerURL = `https://api.mixpanel.com`;
 export const defaultBatchSize = 50;
 export const defaultFlushInterval = 10 * 1000; // 10s
+export const defaultTrackBatchSize = 50;
+export const defaultTrackBatchInterval = 100; // 100ms
+export const defaultPayloadLimits = {
+  maxDepth: 8,
+  maxKeys: 255,
+  maxArrayLength: 255,
+  maxBytes: 64 * 1024, // 64KB
+  reject: false,
+};
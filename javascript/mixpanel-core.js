@@ -120,6 +120,8 @@ export const MixpanelCore = (storage) => {
             serverURL: config.getServerURL(token),
             useIPAddressForGeoLocation:
               config.getUseIpAddressForGeolocation(token),
+            useGzipCompression: config.getGzipCompression(token),
+            useNativeSender: config.getNativeBatchSenderEnabled(token),
           });
           await MixpanelQueueManager.spliceQueue(token, type, 0, batch.length);
           // Process the next batch if there are more events in the queue
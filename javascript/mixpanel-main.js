@@ -21,7 +21,8 @@ export default class MixpanelMain {
     trackAutomaticEvents = false,
     optOutTrackingDefault = false,
     superProperties = null,
-    serverURL = "https://api.mixpanel.com"
+    serverURL = "https://api.mixpanel.com",
+    useGzipCompression = false
   ) {
     MixpanelLogger.log(token, `Initializing Mixpanel`);
 
@@ -34,6 +35,7 @@ export default class MixpanelMain {
     }
 
     this.setServerURL(token, serverURL);
+    this.config.setGzipCompression(token, useGzipCompression);
     await this.registerSuperProperties(token, {
       ...superProperties,
     });
@@ -117,6 +119,13 @@ export default class MixpanelMain {
     await this.core.addToMixpanelQueue(token, MixpanelType.EVENTS, eventData);
   }
 
+  async trackBatch(token, events) {
+    MixpanelLogger.log(token, `Track batch of ${events.length} events`);
+    for (const { eventName, properties } of events) {
+      await this.track(token, eventName, properties);
+    }
+  }
+
   setLoggingEnabled(token, loggingEnabled) {
     this.config.setLoggingEnabled(token, loggingEnabled);
   }
@@ -136,6 +145,10 @@ export default class MixpanelMain {
     this.config.setFlushBatchSize(token, flushBatchSize);
   }
 
+  setNativeBatchSenderEnabled(token, enabled) {
+    this.config.setNativeBatchSenderEnabled(token, enabled);
+  }
+
   flush(token) {
     this.core.flush(token);
   }
@@ -1,3 +1,5 @@
+import {NativeModules} from "react-native";
+import NativeMixpanelBatchSender from "mixpanel-react-native/javascript/NativeMixpanelBatchSender";
 import {MixpanelLogger} from "mixpanel-react-native/javascript/mixpanel-logger";
 
 export class MixpanelHttpError extends Error {
@@ -8,18 +10,88 @@ export class MixpanelHttpError extends Error {
 }
 
 export const MixpanelNetwork = (() => {
+  /**
+   * Returns the Android MixpanelBatchSender module when it is available, which encodes,
+   * compresses and retries batches off the JS thread over a reused connection. It is only
+   * used when setNativeBatchSenderEnabled() turned it on.
+   */
+  const getNativeSender = () => {
+    const nativeModule =
+      NativeMixpanelBatchSender ?? NativeModules.MixpanelBatchSender;
+    return nativeModule && typeof nativeModule.sendBatch === "function"
+      ? nativeModule
+      : null;
+  };
+
+  const sendNativeRequest = async (nativeSender, {
+    token,
+    endpoint,
+    data,
+    url,
+    useGzipCompression,
+  }) => {
+    let response;
+    try {
+      response = await nativeSender.sendBatch(url, data, !!useGzipCompression);
+    } catch (error) {
+      MixpanelLogger.warn(
+        token,
+        `API request to ${url} has failed with reason: ${error.message}`
+      );
+      throw new MixpanelHttpError(`Native sender error: ${error.message}`, 0);
+    }
+    const {status, body, error, attempts} = response;
+    if (status !== 200) {
+      MixpanelLogger.warn(
+        token,
+        `API request to ${url} has failed after ${attempts} attempts with reason: ${
+          error || `status ${status}`
+        }`
+      );
+      throw new MixpanelHttpError(`HTTP error! status: ${status}`, status);
+    }
+    let responseBody = null;
+    try {
+      responseBody = body != null ? JSON.parse(body) : null;
+    } catch {
+      // not JSON, so not the rejection marker either
+    }
+    const message =
+      responseBody === 0
+        ? `${url} api rejected some items`
+        : `Mixpanel batch sent successfully, endpoint: ${endpoint}, data: ${JSON.stringify(
+            data
+          )}`;
+
+    MixpanelLogger.log(token, message);
+  };
+
   const sendRequest = async ({
     token,
     endpoint,
     data,
     serverURL,
     useIPAddressForGeoLocation,
+    useGzipCompression = false,
+    useNativeSender = false,
     retryCount = 0,
   }) => {
     retryCount = retryCount || 0;
     const url = `${serverURL}${endpoint}?ip=${+useIPAddressForGeoLocation}`;
     MixpanelLogger.log(token, `Sending request to: ${url}`);
 
+    const nativeSender = useNativeSender ? getNativeSender() : null;
+    if (nativeSender) {
+      // the native sender retries on its own
+      return sendNativeRequest(nativeSender, {
+        token,
+        endpoint,
+        data,
+        url,
+        useGzipCompression,
+      });
+    }
+
     try {
       const response = await fetch(url, {
         method: "POST",
@@ -68,6 +140,7 @@ export const MixpanelNetwork = (() => {
           data,
           serverURL,
           useIPAddressForGeoLocation,
+          useGzipCompression,
           retryCount: retryCount + 1,
         });
       } else {
@@ -269,6 +269,25 @@ export class MixpanelPersistent {
   }
 
   async loadQueue(token, type) {
+    if (this.hasQueueLog()) {
+      const queue = await this.storageAdapter.loadQueue(token, type);
+      if (await this.storageAdapter.isQueueMigrated(token, type)) {
+        return queue;
+      }
+      // move a queue saved before the log was used into the log, once
+      const queueString = await this.storageAdapter.getItem(
+        getQueueKey(token, type)
+      );
+      if (!queueString) {
+        await this.storageAdapter.markQueueMigrated(token, type);
+        return queue;
+      }
+      const migratedQueue = [...JSON.parse(queueString), ...queue];
+      await this.storageAdapter.replaceQueue(token, type, migratedQueue);
+      await this.storageAdapter.removeItem(getQueueKey(token, type));
+      await this.storageAdapter.markQueueMigrated(token, type);
+      return migratedQueue;
+    }
     const queueString = await this.storageAdapter.getItem(
       getQueueKey(token, type)
     );
@@ -276,12 +295,31 @@ export class MixpanelPersistent {
   }
 
   async saveQueue(token, type, queue) {
+    if (this.hasQueueLog()) {
+      await this.storageAdapter.replaceQueue(token, type, queue);
+      return;
+    }
     await this.storageAdapter.setItem(
       getQueueKey(token, type),
       JSON.stringify(queue)
     );
   }
 
+  /**
+   * Whether the storage keeps queues as logs, see appendToQueue() and acknowledgeQueue().
+   */
+  hasQueueLog() {
+    return this.storageAdapter.hasQueueLog();
+  }
+
+  async appendToQueue(token, type, record) {
+    await this.storageAdapter.appendToQueue(token, type, record);
+  }
+
+  async acknowledgeQueue(token, type, count) {
+    await this.storageAdapter.acknowledgeQueue(token, type, count);
+  }
+
   async loadAppHasOpenedBefore(token) {
     const appHasOpenedBeforeString = await this.storageAdapter.getItem(
       getAppHasOpenedBeforeKey(token)
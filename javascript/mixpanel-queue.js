@@ -37,6 +37,10 @@ export const MixpanelQueueManager = (() => {
       };
     }
     _queues[token][type].push(data);
+    if (getPersistent().hasQueueLog?.()) {
+      await getPersistent().appendToQueue(token, type, data);
+      return;
+    }
     await updateQueueInStorage(token, type);
   };
 
@@ -56,7 +60,11 @@ export const MixpanelQueueManager = (() => {
     if (!_queues[token] || !_queues[token][type]) {
       return;
     }
-    _queues[token][type].splice(start, deleteCount);
+    const removed = _queues[token][type].splice(start, deleteCount);
+    if (start === 0 && getPersistent().hasQueueLog?.()) {
+      await getPersistent().acknowledgeQueue(token, type, removed.length);
+      return;
+    }
     await updateQueueInStorage(token, type);
   };
 
@@ -64,7 +72,12 @@ export const MixpanelQueueManager = (() => {
     if (!_queues[token] || !_queues[token][type]) {
       return;
     }
+    const count = _queues[token][type].length;
     _queues[token][type] = [];
+    if (getPersistent().hasQueueLog?.()) {
+      await getPersistent().acknowledgeQueue(token, type, count);
+      return;
+    }
     await updateQueueInStorage(token, type);
   };
 
@@ -1,3 +1,5 @@
+import {NativeModules} from "react-native";
+import NativeMixpanelQueueStorage from "mixpanel-react-native/javascript/NativeMixpanelQueueStorage";
 import {MixpanelLogger} from "mixpanel-react-native/javascript/mixpanel-logger";
 
 export class AsyncStorageAdapter {
@@ -46,6 +48,128 @@ export class AsyncStorageAdapter {
       MixpanelLogger.error("error removing item from storage");
     }
   }
+
+  /**
+   * Whether the storage keeps queues as logs, so enqueueing and dequeueing do not rewrite the queue.
+   */
+  hasQueueLog() {
+    return (
+      typeof this.storage.hasQueueLog === "function" &&
+      this.storage.hasQueueLog()
+    );
+  }
+
+  async loadQueue(token, type) {
+    try {
+      return await this.storage.loadQueue(token, type);
+    } catch {
+      MixpanelLogger.error("error loading queue from storage");
+      return [];
+    }
+  }
+
+  async appendToQueue(token, type, record) {
+    try {
+      await this.storage.appendToQueue(token, type, record);
+    } catch {
+      MixpanelLogger.error("error appending to queue in storage");
+    }
+  }
+
+  async acknowledgeQueue(token, type, count) {
+    try {
+      await this.storage.acknowledgeQueue(token, type, count);
+    } catch {
+      MixpanelLogger.error("error acknowledging queue in storage");
+    }
+  }
+
+  async replaceQueue(token, type, queue) {
+    try {
+      await this.storage.replaceQueue(token, type, queue);
+    } catch {
+      MixpanelLogger.error("error replacing queue in storage");
+    }
+  }
+
+  async isQueueMigrated(token, type) {
+    try {
+      return await this.storage.isQueueMigrated(token, type);
+    } catch {
+      MixpanelLogger.error("error reading queue migration from storage");
+      return false;
+    }
+  }
+
+  async markQueueMigrated(token, type) {
+    try {
+      await this.storage.markQueueMigrated(token, type);
+    } catch {
+      MixpanelLogger.error("error marking queue migration in storage");
+    }
+  }
+}
+
+/**
+ * Storage for JavaScript mode that keeps the queues in append-only log files of the Android
+ * MixpanelQueueStorage module, and everything else in the given AsyncStorage-like storage.
+ * Enqueueing then writes only the new record, and dequeueing after an upload only moves an
+ * offset, instead of rewriting the whole queue. Without that module, queues are stored like
+ * the rest.
+ */
+export class NativeQueueStorage {
+  constructor(storage) {
+    this.storage = new AsyncStorageAdapter(storage);
+    this.nativeModule =
+      NativeMixpanelQueueStorage ?? NativeModules.MixpanelQueueStorage;
+  }
+
+  hasQueueLog() {
+    return (
+      !!this.nativeModule &&
+      typeof this.nativeModule.appendToQueue === "function"
+    );
+  }
+
+  getItem(key) {
+    return this.storage.getItem(key);
+  }
+
+  setItem(key, value) {
+    return this.storage.setItem(key, value);
+  }
+
+  removeItem(key) {
+    return this.storage.removeItem(key);
+  }
+
+  async loadQueue(token, type) {
+    return JSON.parse(await this.nativeModule.loadQueue(token, type));
+  }
+
+  appendToQueue(token, type, record) {
+    return this.nativeModule.appendToQueue(token, type, JSON.stringify(record));
+  }
+
+  acknowledgeQueue(token, type, count) {
+    return this.nativeModule.acknowledgeQueue(token, type, count);
+  }
+
+  replaceQueue(token, type, queue) {
+    return this.nativeModule.replaceQueue(
+      token,
+      type,
+      queue.map((record) => JSON.stringify(record))
+    );
+  }
+
+  isQueueMigrated(token, type) {
+    return this.nativeModule.isQueueMigrated(token, type);
+  }
+
+  markQueueMigrated(token, type) {
+    return this.nativeModule.markQueueMigrated(token, type);
+  }
 }
 
 class InMemoryStorage {
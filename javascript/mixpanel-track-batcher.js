@@ -0,0 +1,47 @@
+import {
+  defaultTrackBatchInterval,
+  defaultTrackBatchSize,
+} from "./mixpanel-constants";
+
+/**
+ * Coalesces track() calls into batches so that a burst of events crosses
+ * the native bridge as a single trackBatch() call instead of one call per event.
+ */
+export class MixpanelTrackBatcher {
+  constructor(
+    sendBatch,
+    maxBatchSize = defaultTrackBatchSize,
+    flushInterval = defaultTrackBatchInterval
+  ) {
+    this.sendBatch = sendBatch;
+    this.maxBatchSize = maxBatchSize;
+    this.flushInterval = flushInterval;
+    this._events = [];
+    this._timer = null;
+  }
+
+  add(eventName, properties) {
+    this._events.push({ eventName, properties });
+    if (this._events.length >= this.maxBatchSize) {
+      this.drain();
+    } else if (this._timer === null) {
+      this._timer = setTimeout(() => this.drain(), this.flushInterval);
+    }
+  }
+
+  /**
+   * Hands every buffered event to sendBatch, preserving call order.
+   */
+  drain() {
+    if (this._timer !== null) {
+      clearTimeout(this._timer);
+      this._timer = null;
+    }
+    if (this._events.length === 0) {
+      return;
+    }
+    const events = this._events;
+    this._events = [];
+    this.sendBatch(events);
+  }
+}